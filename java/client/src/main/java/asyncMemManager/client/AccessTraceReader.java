@@ -0,0 +1,142 @@
+package asyncMemManager.client;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * reads trace written by {@link AccessTraceRecorder}, one event at a time.
+ */
+public class AccessTraceReader implements AutoCloseable {
+	private final InputStream in;
+	private final long startEpochMillis;
+	private final List<String> flowKeys = new ArrayList<>();
+	private long micros = 0;
+
+	public AccessTraceReader(String file) throws IOException
+	{
+		this(new FileInputStream(file));
+	}
+
+	public AccessTraceReader(InputStream in) throws IOException
+	{
+		this.in = new BufferedInputStream(in);
+		if (this.readFixedInt() != AccessTraceRecorder.MAGIC)
+		{
+			throw new IOException("not an access trace");
+		}
+		long high = this.readFixedInt() & 0xFFFFFFFFL;
+		long low = this.readFixedInt() & 0xFFFFFFFFL;
+		this.startEpochMillis = (high << 32) | low;
+	}
+
+	public long getStartEpochMillis()
+	{
+		return this.startEpochMillis;
+	}
+
+	/**
+	 * next event, null at end of trace.
+	 */
+	public Event next() throws IOException
+	{
+		int type = this.in.read();
+		if (type < 0)
+		{
+			return null;
+		}
+
+		Event event = new Event();
+		event.type = (byte)type;
+		this.micros += this.readVarLong();
+		event.micros = this.micros;
+		event.id = this.readVarLong();
+		switch (event.type)
+		{
+		case AccessTraceRecorder.MANAGE:
+			int flowIndex = (int)this.readVarLong();
+			if (flowIndex == this.flowKeys.size())
+			{
+				byte[] bytes = new byte[(int)this.readVarLong()];
+				for (int i = 0; i < bytes.length; i++)
+				{
+					bytes[i] = (byte)this.readByte();
+				}
+				this.flowKeys.add(new String(bytes, StandardCharsets.UTF_8));
+			}
+			event.flowKey = this.flowKeys.get(flowIndex);
+			event.size = this.readVarLong();
+			break;
+		case AccessTraceRecorder.EVICT:
+		case AccessTraceRecorder.RESTORE:
+			event.size = this.readVarLong();
+			break;
+		default:
+			break;
+		}
+		return event;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		this.in.close();
+	}
+
+	private int readByte() throws IOException
+	{
+		int b = this.in.read();
+		if (b < 0)
+		{
+			throw new EOFException("truncated access trace");
+		}
+		return b;
+	}
+
+	private int readFixedInt() throws IOException
+	{
+		return (this.readByte() << 24) | (this.readByte() << 16) | (this.readByte() << 8) | this.readByte();
+	}
+
+	private long readVarLong() throws IOException
+	{
+		long v = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = this.readByte();
+			v |= (long)(b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return v;
+	}
+
+	public static class Event
+	{
+		/**
+		 * one of AccessTraceRecorder event types
+		 */
+		public byte type;
+
+		/**
+		 * micros since trace start
+		 */
+		public long micros;
+		public long id;
+
+		/**
+		 * MANAGE only
+		 */
+		public String flowKey;
+
+		/**
+		 * estimated size for MANAGE, persisted data length for EVICT/RESTORE
+		 */
+		public long size;
+	}
+}
@@ -0,0 +1,283 @@
+package asyncMemManager.client;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * records manager events to a compact binary trace, replayed offline by {@link AccessTraceReader}.
+ * format: header MAGIC (4 bytes) + start epoch millis (8 bytes), then per event:
+ * type (1 byte), micros since previous event (varint), object id (varint),
+ * MANAGE adds flow index (varint, followed by UTF-8 flow key on first use) and estimated size (varint),
+ * EVICT/RESTORE add persisted data length (varint).
+ * recording threads only timestamp and enqueue an event, one writer thread encodes and writes them in queue order,
+ * so file order is time order (up to enqueue races, deltas never negative).
+ * events over queue bound, or after a write error, are dropped and counted.
+ */
+public class AccessTraceRecorder implements AutoCloseable {
+	public static final int MAGIC = 0x414D5431; // AMT1
+
+	public static final byte MANAGE = 1;
+	public static final byte ASYNC = 2;
+	public static final byte SETUP_CLOSE = 3;
+	public static final byte ACCESS = 4;
+	public static final byte CLOSE = 5;
+	public static final byte EVICT = 6;
+	public static final byte RESTORE = 7;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final int MAX_QUEUED_EVENTS = 1 << 20;
+	private static final long IDLE_PARK_NANOS = 1_000_000;
+
+	private final ConcurrentLinkedQueue<Event> queue = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger queued = new AtomicInteger();
+	private final AtomicLong droppedCount = new AtomicLong();
+	private final long startNanos;
+	private final Thread writer;
+	private volatile boolean closed = false;
+	private volatile IOException error;
+
+	// writer thread only
+	private final OutputStream out;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int position = 0;
+	private final Map<String, Integer> flowIndexes = new HashMap<>();
+	private long lastMicros = 0;
+	private volatile long eventCount = 0;
+
+	public AccessTraceRecorder(String file) throws IOException
+	{
+		this(new FileOutputStream(file));
+	}
+
+	public AccessTraceRecorder(OutputStream out) throws IOException
+	{
+		this.out = new BufferedOutputStream(out);
+		long startMillis = System.currentTimeMillis();
+		this.startNanos = System.nanoTime();
+
+		this.writeFixedInt(MAGIC);
+		this.writeFixedInt((int)(startMillis >>> 32));
+		this.writeFixedInt((int)startMillis);
+		this.flushBuffer();
+
+		this.writer = new Thread(this::writeLoop, "access-trace-writer");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	public void manage(long id, String flowKey, long estimatedSize)
+	{
+		this.enqueue(MANAGE, id, estimatedSize, flowKey);
+	}
+
+	public void record(byte type, long id)
+	{
+		this.enqueue(type, id, 0, null);
+	}
+
+	public void record(byte type, long id, long size)
+	{
+		this.enqueue(type, id, size, null);
+	}
+
+	/**
+	 * events written so far
+	 */
+	public long getEventCount()
+	{
+		return this.eventCount;
+	}
+
+	/**
+	 * events not recorded: queue full, closed or write failed
+	 */
+	public long getDroppedCount()
+	{
+		return this.droppedCount.get();
+	}
+
+	/**
+	 * write error stopping the recording, null if none
+	 */
+	public IOException getError()
+	{
+		return this.error;
+	}
+
+	/**
+	 * writes events queued so far.
+	 * @throws IOException write error met while recording, trace truncated at that point
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if (!this.closed)
+		{
+			this.closed = true;
+			LockSupport.unpark(this.writer);
+			try {
+				this.writer.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		if (this.error != null)
+		{
+			throw this.error;
+		}
+	}
+
+	private void enqueue(byte type, long id, long size, String flowKey)
+	{
+		if (this.closed || this.error != null)
+		{
+			this.droppedCount.incrementAndGet();
+			return;
+		}
+		if (this.queued.incrementAndGet() > MAX_QUEUED_EVENTS) // writer behind, don't hold up caller
+		{
+			this.queued.decrementAndGet();
+			this.droppedCount.incrementAndGet();
+			return;
+		}
+		this.queue.offer(new Event(type, System.nanoTime(), id, size, flowKey));
+	}
+
+	private void writeLoop()
+	{
+		try {
+			while (true)
+			{
+				Event event = this.queue.poll();
+				if (event == null)
+				{
+					if (this.closed && this.queue.isEmpty())
+					{
+						break;
+					}
+					// idle: push out what was buffered, then wait
+					this.flushBuffer();
+					this.out.flush();
+					LockSupport.parkNanos(IDLE_PARK_NANOS);
+					continue;
+				}
+
+				this.queued.decrementAndGet();
+				this.write(event);
+			}
+			this.flushBuffer();
+			this.out.close();
+		} catch (IOException e) {
+			this.error = e;
+			this.droppedCount.addAndGet(this.queue.size());
+			this.queue.clear();
+			try {
+				this.out.close();
+			} catch (IOException e1) {
+				e.addSuppressed(e1);
+			}
+		}
+	}
+
+	private void write(Event event) throws IOException
+	{
+		long micros = Math.max(this.lastMicros, (event.nanos - this.startNanos) / 1000);
+		this.writeByte(event.type);
+		this.writeVarLong(micros - this.lastMicros);
+		this.writeVarLong(event.id);
+		this.lastMicros = micros;
+
+		switch (event.type)
+		{
+		case MANAGE:
+			Integer flowIndex = this.flowIndexes.get(event.flowKey);
+			if (flowIndex == null)
+			{
+				flowIndex = this.flowIndexes.size();
+				this.flowIndexes.put(event.flowKey, flowIndex);
+				this.writeVarLong(flowIndex);
+				byte[] bytes = event.flowKey.getBytes(StandardCharsets.UTF_8);
+				this.writeVarLong(bytes.length);
+				for (byte b : bytes)
+				{
+					this.writeByte(b);
+				}
+			}else {
+				this.writeVarLong(flowIndex);
+			}
+			this.writeVarLong(event.size);
+			break;
+		case EVICT:
+		case RESTORE:
+			this.writeVarLong(event.size);
+			break;
+		default:
+			break;
+		}
+		this.eventCount++;
+	}
+
+	private void writeByte(byte b) throws IOException
+	{
+		if (this.position == this.buffer.length)
+		{
+			this.flushBuffer();
+		}
+		this.buffer[this.position++] = b;
+	}
+
+	private void writeFixedInt(int v) throws IOException
+	{
+		this.writeByte((byte)(v >>> 24));
+		this.writeByte((byte)(v >>> 16));
+		this.writeByte((byte)(v >>> 8));
+		this.writeByte((byte)v);
+	}
+
+	private void writeVarLong(long v) throws IOException
+	{
+		while ((v & ~0x7FL) != 0)
+		{
+			this.writeByte((byte)((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		this.writeByte((byte)v);
+	}
+
+	private void flushBuffer() throws IOException
+	{
+		if (this.position > 0)
+		{
+			this.out.write(this.buffer, 0, this.position);
+			this.position = 0;
+		}
+	}
+
+	private static class Event
+	{
+		final byte type;
+		final long nanos;
+		final long id;
+		final long size;
+		final String flowKey;
+
+		Event(byte type, long nanos, long id, long size, String flowKey)
+		{
+			this.type = type;
+			this.nanos = nanos;
+			this.id = id;
+			this.size = size;
+			this.flowKey = flowKey;
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package asyncMemManager.client;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Adaptive concurrency limit of stores to caching server, AIMD:
+ * limit grows by 1/limit per accepted call (about +1 per full window), halves when server asks to retry later,
+ * at most once per retry delay so a burst of rejections from one window only backs off once.
+ */
+public class AimdConcurrencyLimiter {
+	private final int minLimit;
+	private final int maxLimit;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition available = this.lock.newCondition();
+	private double limit;
+	private int inFlight = 0;
+	private long lastDecrease = 0;
+
+	public AimdConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+		this.minLimit = Math.max(1, minLimit);
+		this.maxLimit = Math.max(this.minLimit, maxLimit);
+		this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+	}
+
+	/**
+	 * wait for a slot under current limit.
+	 */
+	public void acquire() throws InterruptedException
+	{
+		this.lock.lock();
+		try {
+			while (this.inFlight >= (int)this.limit)
+			{
+				this.available.await();
+			}
+			this.inFlight++;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * call accepted by server, additive increase.
+	 */
+	public void onSuccess()
+	{
+		this.lock.lock();
+		try {
+			this.limit = Math.min(this.maxLimit, this.limit + 1 / this.limit);
+			this.release();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * server overloaded, multiplicative decrease.
+	 * @param retryAfter milliseconds suggested by server
+	 */
+	public void onOverload(long retryAfter)
+	{
+		this.lock.lock();
+		try {
+			long now = System.currentTimeMillis();
+			if (now - this.lastDecrease >= retryAfter)
+			{
+				this.limit = Math.max(this.minLimit, this.limit / 2);
+				this.lastDecrease = now;
+			}
+			this.release();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * call failed for other reason, limit unchanged.
+	 */
+	public void onError()
+	{
+		this.lock.lock();
+		try {
+			this.release();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	private void release()
+	{
+		this.inFlight--;
+		this.available.signalAll();
+	}
+
+	public double getLimit() {
+		return this.limit;
+	}
+}
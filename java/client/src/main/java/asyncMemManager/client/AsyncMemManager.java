@@ -1,25 +1,40 @@
 package asyncMemManager.client;
 
+import java.time.Clock;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.time.temporal.ChronoField;
 import java.util.*;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import asyncMemManager.client.di.*;
 import asyncMemManager.common.Configuration;
 import asyncMemManager.common.ManagedObjectQueue;
 import asyncMemManager.common.ReadWriteLock;
+import asyncMemManager.common.ReadWriteLock.Locker;
 import asyncMemManager.common.ReadWriteLock.ReadWriteLockableObject;
 import asyncMemManager.common.di.IndexableQueuedObject;
 
 
+/**
+ * blocking only through java.util.concurrent locks and parking, no monitors nor spin-waits,
+ * so flows may run on virtual threads without pinning carriers.
+ */
 public class AsyncMemManager implements asyncMemManager.client.di.AsyncMemManager, AutoCloseable {
+	private Logger logger = LoggerFactory.getLogger(AsyncMemManager.class);
 	
 	// this is for special marker only.
 	private static final ManagedObjectQueue<ManagedObjectBase> queuedForManageCandle = new ManagedObjectQueue<>(0, null);
@@ -34,6 +49,83 @@ public class AsyncMemManager implements asyncMemManager.client.di.AsyncMemManage
 	private Comparator<ManagedObjectBase> cacheNodeComparator = (n1, n2) -> (n2.isObsoleted()) ? 1 : 
 																			(n1.isObsoleted()) ? -1 : 
 																			n2.hotTime.compareTo(n1.hotTime);
+	
+	/**
+	 * number of candles adapts to contention: every ADAPT_INTERVAL acquisitions, 
+	 * average wait to acquire a candle and peak candles in use decide to add a candle or retire one,
+	 * entries are moved between candles to rebalance.
+	 */
+	private static final int ADAPT_INTERVAL = 4096;
+	private static final long GROW_WAIT_NANOS = 20000;
+	private static final long SHRINK_WAIT_NANOS = 1000;
+	private static final int MIN_CANDLES = 1;
+	private int maxCandles;
+	private int initCandleSize;
+	/**
+	 * candles being emptied, not given for new entries, dropped when empty
+	 */
+	private Set<ManagedObjectQueue<ManagedObjectBase>> retiringCandles = ConcurrentHashMap.newKeySet();
+	private AtomicLong candleWaitNanos = new AtomicLong(0);
+	private AtomicInteger candleAcquisitions = new AtomicInteger(0);
+	private AtomicInteger candlesInUse = new AtomicInteger(0);
+	private AtomicInteger peakCandlesInUse = new AtomicInteger(0);
+	private AtomicBoolean adapting = new AtomicBoolean();
+	private volatile long lastCandleWaitNanos = 0;
+	
+	/**
+	 * threads waiting for a specific candle park here, signalled when candle given back.
+	 */
+	private ReentrantLock candleReturnLock = new ReentrantLock();
+	private Condition candleReturned = this.candleReturnLock.newCondition();
+	private AtomicInteger candleReturnWaiters = new AtomicInteger(0);
+	
+	/**
+	 * back off when nothing can be cleaned up right now (all candidates busy).
+	 */
+	private static final long CLEANUP_BACKOFF_NANOS = 50000;
+	
+	/**
+	 * chunks get own hot time stats, apart from their object's flow.
+	 */
+	private static final String CHUNK_FLOW_SUFFIX = "#chunk";
+	private AtomicLong chunkEvictedCount = new AtomicLong(0);
+	private AtomicLong chunkRestoredCount = new AtomicLong(0);
+	
+	/**
+	 * object recycling of {@link RecyclingAsyncMemSerializer}: evicted instances pooled / dropped as pool full,
+	 * restores of recycling types served from pool / allocated.
+	 */
+	private AtomicLong recycledCount = new AtomicLong(0);
+	private AtomicLong recycleDroppedCount = new AtomicLong(0);
+	private AtomicLong reusedCount = new AtomicLong(0);
+	private AtomicLong reuseMissedCount = new AtomicLong(0);
+	
+	/**
+	 * evictions given up as persistence failed to store, objects stay resident.
+	 */
+	private AtomicLong persistFailedCount = new AtomicLong(0);
+	
+	/**
+	 * server asked to retry later: no store tried before this time (epoch millis), objects stay resident meanwhile.
+	 * waiting happens here, not in a thread holding a candle or an object's lock.
+	 */
+	private volatile long storeRetryAt = 0;
+	
+	/**
+	 * source of start/hot times, virtual clock when replaying a trace.
+	 */
+	private final Clock clock;
+	
+	/**
+	 * optional event recording {@link AccessTraceRecorder}, objects numbered in manage order.
+	 */
+	private volatile AccessTraceRecorder traceRecorder;
+	private AtomicLong objectIdSeq = new AtomicLong(0);
+	
+	/**
+	 * combined capacity shared with other managers {@link SharedMemoryBudget#register}, null when on own capacity only.
+	 */
+	private volatile SharedMemoryBudget budget;
 
 	/**
 	 * Construct Async Mem Manager
@@ -45,21 +137,40 @@ public class AsyncMemManager implements asyncMemManager.client.di.AsyncMemManage
 								HotTimeCalculator coldTimeCalculator, 
 								Persistence persistence) 
 	{
+		this(config, coldTimeCalculator, persistence, Clock.systemDefaultZone());
+	}
+	
+	/**
+	 * Construct Async Mem Manager with given clock
+	 * @param config
+	 * @param coldTimeCalculator
+	 * @param persistence
+	 * @param clock
+	 */
+	public AsyncMemManager(Configuration config,
+								HotTimeCalculator coldTimeCalculator, 
+								Persistence persistence,
+								Clock clock) 
+	{
+		this.clock = clock;
 		this.config = config;
 		this.hotTimeCalculator = coldTimeCalculator;
 		this.persistence = persistence;
-		this.candlesPool = new PriorityBlockingQueue<>(this.config.getCandlePoolSize(), 
-														(c1, c2) -> Integer.compare(c1.getSize(), c2.getSize()));
-		this.candlesSrc = new ArrayList<>(this.config.getCandlePoolSize());
+		// least loaded candle first, retiring ones last
+		this.candlesPool = new PriorityBlockingQueue<>(Math.max(1, this.config.getCandlePoolSize()), 
+														(c1, c2) -> Integer.compare(this.candleLoad(c1), this.candleLoad(c2)));
+		this.candlesSrc = new CopyOnWriteArrayList<>();
 		
 		int numberOfManagementThread = this.config.getCandlePoolSize();
 		numberOfManagementThread = numberOfManagementThread > 0 ? numberOfManagementThread : 1;
+		this.maxCandles = Math.max(numberOfManagementThread, 4 * Runtime.getRuntime().availableProcessors());
 		
-		int initcandleSize = this.config.getInitialSize() / this.config.getCandlePoolSize();
+		int initcandleSize = this.config.getInitialSize() / numberOfManagementThread;
 		initcandleSize = initcandleSize > 0 ? initcandleSize : this.config.getInitialSize();
+		this.initCandleSize = initcandleSize;
 		
 		// init candle pool
-		for(int i = 0; i < config.getCandlePoolSize(); i++)
+		for(int i = 0; i < numberOfManagementThread; i++)
 		{
 			ManagedObjectQueue<ManagedObjectBase> candle = new ManagedObjectQueue<>(initcandleSize, this.cacheNodeComparator); // thread-safe ensured by candlesPool
 			this.candlesPool.add(candle);
@@ -87,6 +198,11 @@ public class AsyncMemManager implements asyncMemManager.client.di.AsyncMemManage
 		long estimatedSize = serializer.estimateObjectSize(object);
 		
 		ManagedObject<T> managedObj = new ManagedObject<>(flowKey, object,  estimatedSize, baseSerializer);
+		AccessTraceRecorder recorder = this.traceRecorder;
+		if (recorder != null)
+		{
+			recorder.manage(managedObj.id, flowKey, estimatedSize);
+		}
 		
 		return new SetupObject<T>(managedObj);
 	}
@@ -101,11 +217,114 @@ public class AsyncMemManager implements asyncMemManager.client.di.AsyncMemManage
 			countItems += queue.getSize();
 		}
 		res.append(" Items:"); res.append(countItems);
+		res.append(" ChunkEvicted:"); res.append(this.chunkEvictedCount.get());
+		res.append(" ChunkRestored:"); res.append(this.chunkRestoredCount.get());
+		res.append(" PersistFailed:"); res.append(this.persistFailedCount.get());
+		res.append(" Recycled:"); res.append(this.recycledCount.get());
+		res.append(" Reused:"); res.append(this.reusedCount.get());
+		res.append(" ReuseRate:"); res.append(String.format("%.2f", this.getReuseRate()));
+		res.append(" Candles:"); res.append(this.getCandleCount());
+		res.append(" CandleWaitNs:"); res.append(this.lastCandleWaitNanos);
+		SharedMemoryBudget budget = this.budget;
+		if (budget != null)
+		{
+			res.append(" "); res.append(budget.debugInfo());
+		}
 		return res.toString();
 	}
+	
+	/**
+	 * start recording events to given recorder, null to stop. recorder closed by caller.
+	 */
+	public void setTraceRecorder(AccessTraceRecorder traceRecorder) {
+		this.traceRecorder = traceRecorder;
+	}
+	
+	/**
+	 * chunks not traced: they have no MANAGE/ACCESS of their own, replay models whole objects.
+	 */
+	private void trace(byte type, ManagedObjectBase managedObject) {
+		AccessTraceRecorder recorder = this.traceRecorder;
+		if (recorder != null && !(managedObject instanceof ManagedChunk))
+		{
+			recorder.record(type, managedObject.id);
+		}
+	}
+	
+	private void trace(byte type, ManagedObjectBase managedObject, long size) {
+		AccessTraceRecorder recorder = this.traceRecorder;
+		if (recorder != null && !(managedObject instanceof ManagedChunk))
+		{
+			recorder.record(type, managedObject.id, size);
+		}
+	}
+	
+	/**
+	 * estimated size of objects resident in managed candles
+	 */
+	public long getUsedSize() {
+		return this.usedSize.get();
+	}
+	
+	/**
+	 * candles currently taking new entries
+	 */
+	public int getCandleCount() {
+		return this.candlesSrc.size() - this.retiringCandles.size();
+	}
+	
+	public long getChunkEvictedCount() {
+		return this.chunkEvictedCount.get();
+	}
+	
+	public long getChunkRestoredCount() {
+		return this.chunkRestoredCount.get();
+	}
+	
+	public long getPersistFailedCount() {
+		return this.persistFailedCount.get();
+	}
+	
+	public long getRecycledCount() {
+		return this.recycledCount.get();
+	}
+	
+	public long getRecycleDroppedCount() {
+		return this.recycleDroppedCount.get();
+	}
+	
+	public long getReusedCount() {
+		return this.reusedCount.get();
+	}
+	
+	/**
+	 * share of restores of recycling types deserialized into pooled instance.
+	 */
+	public double getReuseRate() {
+		long reused = this.reusedCount.get();
+		long total = reused + this.reuseMissedCount.get();
+		return total == 0 ? 0 : (double)reused / total;
+	}
+	
+	/**
+	 * average wait to acquire a candle over last adapt interval, nanoseconds
+	 */
+	public long getCandleWaitNanos() {
+		return this.lastCandleWaitNanos;
+	}
 
 	@Override
 	public void close() throws Exception {
+		SharedMemoryBudget budget = this.budget;
+		if (budget != null)
+		{
+			budget.unregister(this);
+		}
+		// stop striping adaptation for good
+		while (!this.adapting.compareAndSet(false, true))
+		{
+			LockSupport.parkNanos(CLEANUP_BACKOFF_NANOS);
+		}
 		for (int i=0; i < this.candlesSrc.size(); i++)
 		{
 			this.candlesPool.take();
@@ -116,16 +335,33 @@ public class AsyncMemManager implements asyncMemManager.client.di.AsyncMemManage
 			{
 				ManagedObjectBase managedObj = candle.getAndRemoveAt(candle.getSize() - 1);		
 				this.usedSize.addAndGet(-managedObj.estimatedSize);	
-				this.persistence.remove(managedObj.key);
+				this.removePersisted(managedObj.key);
 			}
 		}
 	}
 	
+	/**
+	 * drop stored copy no longer needed, failure only leaves it to expire on server.
+	 */
+	private void removePersisted(UUID key)
+	{
+		try {
+			this.persistence.remove(key);
+		} catch (PersistenceException ex) {
+			this.logger.warn("Remove {} failed, left to expire: {}", key, ex.getMessage());
+		}
+	}
+	
 	private void track(ManagedObjectBase managedObj) {		
 		this.doManageAction(managedObj, EnumSet.of(ManagementState.None, ManagementState.Managing), (containerCandle) ->{
 				
 			long nextwaitDuration = this.hotTimeCalculator.calculate(this.config, managedObj.flowKey, managedObj.numberOfAccess);
 			managedObj.hotTime = managedObj.startTime.plus(nextwaitDuration, ChronoField.MILLI_OF_SECOND.getBaseUnit());	
+			if (managedObj.chunks != null) // never evicted, keep it away from candle top where cleanup looks for candidates.
+			{
+				managedObj.hotTime = LocalDateTime.MIN;
+				nextwaitDuration = 0;
+			}
 			boolean needcheckRemove = true;
 			if (containerCandle == null) // unmanaged, probably none or cached.
 			{
@@ -142,8 +378,8 @@ public class AsyncMemManager implements asyncMemManager.client.di.AsyncMemManage
 								(final ManagedObjectQueue<ManagedObjectBase> coldestCandle) -> { 
 									this.cache(coldestCandle, coldestNode); 
 								});
-					}else {						 
-						this.persistObject(managedObj);
+					}else if (managedObj.chunks == null // object with chunks stays resident, only chunks go to storage
+							&& this.persistObject(managedObj)) { // tracked over capacity when store failed
 						managedObj.setManagementState(null);
 						shouldTracking = false;
 						needcheckRemove = false;
@@ -169,7 +405,7 @@ public class AsyncMemManager implements asyncMemManager.client.di.AsyncMemManage
 						System.out.println(ex.getMessage());
 					}						
 					
-					this.candlesPool.offer(candle);
+					this.releaseCandle(candle);
 				}
 			} else {
 				this.pollCandle(containerCandle);
@@ -185,7 +421,7 @@ public class AsyncMemManager implements asyncMemManager.client.di.AsyncMemManage
 					System.out.println(ex.getMessage());
 				}
 				
-				this.candlesPool.offer(containerCandle);
+				this.releaseCandle(containerCandle);
 			}			
 
 			if (needcheckRemove && managedObj.isObsoleted()) { // to void other remove failed to be queued while this action running.
@@ -209,10 +445,28 @@ public class AsyncMemManager implements asyncMemManager.client.di.AsyncMemManage
 				System.out.println(ex.getMessage());
 			}
 				
-			this.candlesPool.offer(containerCandle);
+			this.releaseCandle(containerCandle);
 		});
 	}	
 	
+	/**
+	 * stop managing chunks of obsoleted object, drop their persisted copy.
+	 */
+	private void removeChunks(ManagedObjectBase owner) {
+		List<ManagedChunk<?>> chunks = owner.chunks;
+		if (chunks != null)
+		{
+			for (ManagedChunk<?> chunk : chunks)
+			{
+				this.removeFromManagement(chunk);
+				if (chunk.object == null)
+				{
+					this.removePersisted(chunk.key);
+				}
+			}
+		}
+	}
+	
 	private boolean doManageAction(ManagedObjectBase managedObj, ManagementState expectedCurrentState, Consumer<ManagedObjectQueue<ManagedObjectBase>> action) {
 		return doManageAction(managedObj, EnumSet.of(expectedCurrentState), action);
 	}
@@ -225,12 +479,15 @@ public class AsyncMemManager implements asyncMemManager.client.di.AsyncMemManage
 		ManagedObjectQueue<ManagedObjectBase> containerCandle = null;
 		ManagementState state = managedObj.getManagementState();
 		if (expectedCurrentState.contains(state)) { 
-			synchronized (managedObj) { 
+			managedObj.stateLock.lock();
+			try { 
 				if (state == managedObj.getManagementState()) // state unchanged. 
 				{ 
 					containerCandle = managedObj.setManagementState(AsyncMemManager.queuedForManageCandle);
 					queued = true;
 				}
+			} finally {
+				managedObj.stateLock.unlock();
 			}
 			
 			if(queued)
@@ -248,23 +505,208 @@ public class AsyncMemManager implements asyncMemManager.client.di.AsyncMemManage
 	}
 	
 	private ManagedObjectQueue<ManagedObjectBase>  pollCandle(){
+		long start = System.nanoTime();
+		ManagedObjectQueue<ManagedObjectBase> candle = this.takeCandle();
+		if (candle != null)
+		{
+			this.acquired(start);
+		}
+		return candle;
+	}
+	
+	private ManagedObjectQueue<ManagedObjectBase>  pollCandle(ManagedObjectQueue<ManagedObjectBase> containerCandle)
+	{
+		long start = System.nanoTime();
+		this.takeCandle(containerCandle);
+		this.acquired(start);
+		return containerCandle;
+	}
+	
+	/**
+	 * least loaded candle not retiring.
+	 */
+	private ManagedObjectQueue<ManagedObjectBase> takeCandle()
+	{
 		try {
-			return this.candlesPool.take();
+			ManagedObjectQueue<ManagedObjectBase> candle = this.candlesPool.take();
+			while (this.retiringCandles.contains(candle)) // only retiring ones free now
+			{
+				ManagedObjectQueue<ManagedObjectBase> other = this.candlesPool.take();
+				this.offerCandle(candle);
+				candle = other;
+			}
+			return candle;
 		} catch (InterruptedException e) {
 			return null;
 		}
 	}
 	
-	private ManagedObjectQueue<ManagedObjectBase>  pollCandle(ManagedObjectQueue<ManagedObjectBase> containerCandle)
+	private void takeCandle(ManagedObjectQueue<ManagedObjectBase> candle)
 	{
-		while (!this.candlesPool.remove(containerCandle))
+		if (this.candlesPool.remove(candle))
 		{
-			Thread.yield();
+			return;
+		}
+		
+		// register as waiter before re-checking, so a release seeing no waiter happened before the re-check.
+		this.candleReturnWaiters.incrementAndGet();
+		this.candleReturnLock.lock();
+		try {
+			while (!this.candlesPool.remove(candle))
+			{
+				this.candleReturned.awaitUninterruptibly();
+			}
+		} finally {
+			this.candleReturnLock.unlock();
+			this.candleReturnWaiters.decrementAndGet();
+		}
+	}
+	
+	/**
+	 * give candle back to pool, wake threads waiting for a specific one.
+	 */
+	private void offerCandle(ManagedObjectQueue<ManagedObjectBase> candle)
+	{
+		this.candlesPool.offer(candle);
+		if (this.candleReturnWaiters.get() > 0)
+		{
+			this.candleReturnLock.lock();
+			try {
+				this.candleReturned.signalAll();
+			} finally {
+				this.candleReturnLock.unlock();
+			}
+		}
+	}
+	
+	private void acquired(long start)
+	{
+		this.candleWaitNanos.addAndGet(System.nanoTime() - start);
+		this.candleAcquisitions.incrementAndGet();
+		int inUse = this.candlesInUse.incrementAndGet();
+		this.peakCandlesInUse.accumulateAndGet(inUse, Math::max);
+	}
+	
+	/**
+	 * give candle back to pool, adapt striping once per interval.
+	 * candle holders never wait for a second candle, so adapting here (holding none) can't deadlock.
+	 */
+	private void releaseCandle(ManagedObjectQueue<ManagedObjectBase> candle)
+	{
+		this.offerCandle(candle);
+		this.candlesInUse.decrementAndGet();
+		if (this.candleAcquisitions.get() >= ADAPT_INTERVAL && this.adapting.compareAndSet(false, true))
+		{
+			try {
+				this.adaptStriping();
+			} finally {
+				this.adapting.set(false);
+			}
+		}
+	}
+	
+	private int candleLoad(ManagedObjectQueue<ManagedObjectBase> candle)
+	{
+		return this.retiringCandles.contains(candle) ? Integer.MAX_VALUE : candle.getSize();
+	}
+	
+	private void adaptStriping()
+	{
+		int acquisitions = this.candleAcquisitions.getAndSet(0);
+		long waitNanos = this.candleWaitNanos.getAndSet(0);
+		int peakInUse = this.peakCandlesInUse.getAndSet(this.candlesInUse.get());
+		long averageWait = acquisitions > 0 ? waitNanos / acquisitions : 0;
+		this.lastCandleWaitNanos = averageWait;
+		
+		// finish moving out entries left behind by earlier retirement
+		for (ManagedObjectQueue<ManagedObjectBase> candle : this.retiringCandles)
+		{
+			this.takeCandle(candle);
+			this.retire(candle);
+		}
+		
+		int active = this.getCandleCount();
+		if (averageWait > GROW_WAIT_NANOS && active < this.maxCandles)
+		{
+			this.addCandle();
+		} else if (averageWait < SHRINK_WAIT_NANOS && peakInUse * 2 < active && active > MIN_CANDLES)
+		{
+			ManagedObjectQueue<ManagedObjectBase> candle = this.takeCandle();
+			if (candle != null)
+			{
+				this.retire(candle);
+			}
+		}
+	}
+	
+	/**
+	 * new candle takes half of the largest one, new entries go to least loaded anyway.
+	 */
+	private void addCandle()
+	{
+		ManagedObjectQueue<ManagedObjectBase> largest = null;
+		for (ManagedObjectQueue<ManagedObjectBase> candle : this.candlesSrc)
+		{
+			if (!this.retiringCandles.contains(candle) && (largest == null || candle.getSize() > largest.getSize()))
+			{
+				largest = candle;
+			}
+		}
+		
+		ManagedObjectQueue<ManagedObjectBase> newCandle = new ManagedObjectQueue<>(this.initCandleSize, this.cacheNodeComparator);
+		this.candlesSrc.add(newCandle);
+		if (largest != null)
+		{
+			this.takeCandle(largest);
+			this.moveEntries(largest, newCandle, largest.getSize() / 2);
+			this.offerCandle(largest);
+		}
+		this.offerCandle(newCandle);
+	}
+	
+	/**
+	 * move entries of held candle to least loaded one, drop candle when empty.
+	 * entries with pending action can't move, candle left retiring for next round then.
+	 */
+	private void retire(ManagedObjectQueue<ManagedObjectBase> candle)
+	{
+		this.retiringCandles.add(candle);
+		if (candle.getSize() > 0)
+		{
+			ManagedObjectQueue<ManagedObjectBase> target = this.takeCandle();
+			if (target != null)
+			{
+				this.moveEntries(candle, target, candle.getSize());
+				this.offerCandle(target);
+			}
+		}
+		
+		if (candle.getSize() == 0)
+		{
+			this.candlesSrc.remove(candle);
+			this.retiringCandles.remove(candle);
+		}else {
+			this.offerCandle(candle);
 		}
-		return containerCandle;
 	}
 	
-	private ManagedObjectBase getColdestCandidate()
+	/**
+	 * both candles held by caller.
+	 */
+	private void moveEntries(ManagedObjectQueue<ManagedObjectBase> from, ManagedObjectQueue<ManagedObjectBase> to, int count)
+	{
+		int moved = 0;
+		for (int i = from.getSize() - 1; i >= 0 && moved < count; i--)
+		{
+			ManagedObjectBase managedObj = from.getAt(i);
+			if (managedObj != null && managedObj.moveCandle(from, to))
+			{
+				moved++;
+			}
+		}
+	}
+	
+	ManagedObjectBase getColdestCandidate()
 	{			
 		ManagedObjectBase coldestCandidate = null;
 		for (ManagedObjectQueue<ManagedObjectBase> candle : this.candlesSrc)
@@ -282,47 +724,96 @@ public class AsyncMemManager implements asyncMemManager.client.di.AsyncMemManage
 		return coldestCandidate;
 	}
 	
-	private void persistObject(ManagedObjectBase managedObject)
+	/**
+	 * @return false if store failed, object kept in memory then
+	 */
+	private boolean persistObject(ManagedObjectBase managedObject)
 	{
 		if (managedObject.asyncCounter.get() > 0)
 		{
-			final ReadWriteLock<ManagedObjectBase> lock = managedObject.lockManage();
-			if(managedObject.object != null && !managedObject.isObsoleted())
+			if (this.isStoreBackingOff())
 			{
-				long expectedDuration = LocalTime.now().until(managedObject.hotTime, ChronoField.MILLI_OF_SECOND.getBaseUnit());
-				this.persistence.store(managedObject.key, managedObject.serializer.serialize(managedObject.object), expectedDuration);
-				managedObject.object = null;
+				return false;
+			}
+			final ReadWriteLock<ManagedObjectBase> lock = managedObject.lockManage();
+			try {
+				if(managedObject.object != null && !managedObject.isObsoleted())
+				{
+					long expectedDuration = LocalDateTime.now(this.clock).until(managedObject.hotTime, ChronoField.MILLI_OF_SECOND.getBaseUnit());
+					String data = managedObject.serializer.serialize(managedObject.object);
+					try {
+						this.persistence.store(managedObject.key, data, expectedDuration);
+					} catch (StoreRejectedException ex) {
+						this.persistFailedCount.incrementAndGet();
+						this.storeRetryAt = System.currentTimeMillis() + ex.getRetryAfterMillis();
+						this.logger.debug("Store {} refused, stores held off {} ms", managedObject.key, ex.getRetryAfterMillis());
+						return false;
+					} catch (RuntimeException ex) {
+						this.persistFailedCount.incrementAndGet();
+						this.logger.warn("Store {} failed, kept in memory: {}", managedObject.key, ex.getMessage());
+						return false;
+					}
+					this.trace(AccessTraceRecorder.EVICT, managedObject, data.length());
+					Object evicted = managedObject.object;
+					managedObject.object = null;
+					if (managedObject instanceof ManagedChunk)
+					{
+						this.chunkEvictedCount.incrementAndGet();
+					}
+				
+					// no reader left (manage lock held), instance can be reused by a later restore.
+					if (managedObject.serializer.isRecycling())
+					{
+						if (managedObject.serializer.recycle(evicted))
+						{
+							this.recycledCount.incrementAndGet();
+						}else {
+							this.recycleDroppedCount.incrementAndGet();
+						}
+					}
+				}
+			} finally {
+				lock.unlock();
 			}
-			lock.unlock();			
 		}
+		return true;
 	}
 	
 	/*
 	 * need containerCandle as managedObject's containerCandle may be marked as queued.
 	 */
-	private void cache(ManagedObjectQueue<ManagedObjectBase> containerCandle, ManagedObjectBase managedObject) {
+	private boolean cache(ManagedObjectQueue<ManagedObjectBase> containerCandle, ManagedObjectBase managedObject) {
 		this.pollCandle(containerCandle);
 		
+		boolean stored = false;
 		try {	
 			containerCandle.getAndRemoveAt(managedObject.indexInCandle);
 			this.usedSize.addAndGet(-managedObject.estimatedSize);
-			this.persistObject(managedObject);
-			managedObject.setManagementState(null);
-		
+			stored = this.persistObject(managedObject);
+			if (stored)
+			{
+				managedObject.setManagementState(null);
+			}else { // still resident, keep tracking
+				containerCandle.add(managedObject);
+				this.usedSize.addAndGet(managedObject.estimatedSize);
+				managedObject.setManagementState(containerCandle);
+			}
 		} 
 		catch(Exception ex) {
 			System.out.println(ex.getMessage());
 		}
 		
 		// add back to pool after used.
-		this.candlesPool.offer(containerCandle);
+		this.releaseCandle(containerCandle);
+		return stored;
 	}
 	/**
 	 * this is expected to be run in manage executor, by queueCleanUp
 	 */
 	private void cleanUp()
 	{
-		while (this.isOverCapability())
+		final boolean[] storeFailed = new boolean[1];
+		while (this.isOverCapability() && !storeFailed[0] && !this.isStoreBackingOff()) // storage failing or overloaded, retried on next tracking
 		{
 			boolean isReduced = false;
 			// find the coldest candidate
@@ -333,15 +824,58 @@ public class AsyncMemManager implements asyncMemManager.client.di.AsyncMemManage
 			{							
 				isReduced = this.doManageAction(coldestObject, ManagementState.Managing, 
 						(final ManagedObjectQueue<ManagedObjectBase> coldestCandle) -> {
-							this.cache(coldestCandle, coldestObject);
+							storeFailed[0] = !this.cache(coldestCandle, coldestObject);
 					});
 			}
 			
 			if (!isReduced)
 			{
-				Thread.yield();
+				LockSupport.parkNanos(CLEANUP_BACKOFF_NANOS);
 			}
 		}
+		
+		SharedMemoryBudget budget = this.budget;
+		if (budget != null)
+		{
+			budget.cleanUp();
+		}
+	}
+	
+	/**
+	 * server asked to retry stores later and retry time not reached yet
+	 */
+	boolean isStoreBackingOff()
+	{
+		return this.storeRetryAt > System.currentTimeMillis();
+	}
+	
+	void joinBudget(SharedMemoryBudget budget)
+	{
+		this.budget = budget;
+	}
+	
+	/**
+	 * evict candidate chosen by shared budget, false if it is busy or gone meanwhile, or store failed.
+	 */
+	boolean evict(ManagedObjectBase candidate)
+	{
+		final boolean[] stored = new boolean[1];
+		return this.doManageAction(candidate, ManagementState.Managing, 
+				(final ManagedObjectQueue<ManagedObjectBase> candle) -> {
+					stored[0] = this.cache(candle, candidate);
+			}) && stored[0];
+	}
+	
+	/**
+	 * time until candidate expected to be accessed, obsoleted ones first to go.
+	 */
+	double millisUntilHot(ManagedObjectBase candidate)
+	{
+		if (candidate.isObsoleted())
+		{
+			return Double.POSITIVE_INFINITY;
+		}
+		return LocalDateTime.now(this.clock).until(candidate.hotTime, ChronoField.MILLI_OF_SECOND.getBaseUnit());
 	}
 	
 	
@@ -354,10 +888,14 @@ public class AsyncMemManager implements asyncMemManager.client.di.AsyncMemManage
 	{
 		/***
 		 * key value to lookup object, this is auto unique generated
-		 * also used as key for synchronize access vs management
 		 */
 		final UUID key;
 		
+		/**
+		 * sequence number in this manager, identifies object in access trace, 0 for chunks (not traced)
+		 */
+		final long id = this instanceof ManagedChunk ? 0 : AsyncMemManager.this.objectIdSeq.incrementAndGet();
+		
 		/**
 		 * flow key, this is used for estimate waiting time
 		 */
@@ -388,6 +926,11 @@ public class AsyncMemManager implements asyncMemManager.client.di.AsyncMemManage
 		 */
 		private volatile ManagedObjectQueue<ManagedObjectBase> containerCandle;
 		
+		/**
+		 * guards management state transitions
+		 */
+		final ReentrantLock stateLock = new ReentrantLock();
+		
 		/**
 		 * the index of object in candle, used for fast removal
 		 */
@@ -404,11 +947,16 @@ public class AsyncMemManager implements asyncMemManager.client.di.AsyncMemManage
 		 * init  ManagedObject 
 		 */
 		public ManagedObjectBase(String flowKey, long estimatedSize, SerializerGeneral serializer) {
+			this(flowKey, estimatedSize, serializer, new AtomicInteger(0));
+		}
+		
+		ManagedObjectBase(String flowKey, long estimatedSize, SerializerGeneral serializer, AtomicInteger asyncCounter) {
 			this.flowKey = flowKey;
 			this.key = UUID.randomUUID();
-			this.startTime = this.hotTime = LocalDateTime.now();
+			this.startTime = this.hotTime = LocalDateTime.now(AsyncMemManager.this.clock);
 			this.estimatedSize = estimatedSize;
 			this.serializer = serializer;
+			this.asyncCounter = asyncCounter;
 		}
 
 		/**
@@ -419,7 +967,12 @@ public class AsyncMemManager implements asyncMemManager.client.di.AsyncMemManage
 		/**
 		 * counting of async flows, object stop to be managed when all aync closed
 		 */
-		final AtomicInteger asyncCounter = new AtomicInteger(0);
+		final AtomicInteger asyncCounter;
+		
+		/**
+		 * separately evictable parts, object itself stays resident when it has any.
+		 */
+		volatile List<ManagedChunk<?>> chunks = null;
 		
 		boolean isObsoleted() {
 			return this.doneSetup && this.asyncCounter.get() == 0;
@@ -431,7 +984,8 @@ public class AsyncMemManager implements asyncMemManager.client.di.AsyncMemManage
 		 */
 		ManagementState getManagementState()
 		{
-			synchronized (this) {
+			this.stateLock.lock();
+			try {
 				ManagedObjectQueue<ManagedObjectBase> c = this.containerCandle;  
 				if (c == null)
 				{
@@ -443,6 +997,8 @@ public class AsyncMemManager implements asyncMemManager.client.di.AsyncMemManage
 				}else {
 					return ManagementState.Managing;
 				}
+			} finally {
+				this.stateLock.unlock();
 			}
 		}
 		
@@ -451,10 +1007,33 @@ public class AsyncMemManager implements asyncMemManager.client.di.AsyncMemManage
 		 */
 		ManagedObjectQueue<ManagedObjectBase> setManagementState(ManagedObjectQueue<ManagedObjectBase> containerCandle)
 		{
-			synchronized (this) {
+			this.stateLock.lock();
+			try {
 				ManagedObjectQueue<ManagedObjectBase> prev = this.containerCandle;
 				this.containerCandle = containerCandle;
 				return prev;				
+			} finally {
+				this.stateLock.unlock();
+			}
+		}
+	
+		/**
+		 * move to other candle, only if managed in from candle with no action queued. both candles held by caller.
+		 */
+		boolean moveCandle(ManagedObjectQueue<ManagedObjectBase> from, ManagedObjectQueue<ManagedObjectBase> to)
+		{
+			this.stateLock.lock();
+			try {
+				if (this.containerCandle != from)
+				{
+					return false;
+				}
+				from.getAndRemoveAt(this.indexInCandle);
+				to.add(this);
+				this.containerCandle = to;
+				return true;
+			} finally {
+				this.stateLock.unlock();
 			}
 		}
 	
@@ -462,6 +1041,7 @@ public class AsyncMemManager implements asyncMemManager.client.di.AsyncMemManage
 		 * used for read/write locking this managed object. 
 		 */
 		private volatile int readWriteCounter = 0;
+		private final Locker locker = new Locker();
 		
 		@Override
 		public void setIndexInQueue(int idx)
@@ -474,7 +1054,41 @@ public class AsyncMemManager implements asyncMemManager.client.di.AsyncMemManage
 		 */
 		@Override
 		public boolean isPeekable() {
-			return this.readWriteCounter == 0 && this.getManagementState() == ManagementState.Managing && this.indexInCandle >= 0;
+			return this.readWriteCounter == 0 && this.getManagementState() == ManagementState.Managing && this.indexInCandle >= 0
+					&& this.chunks == null;
+		}
+		
+		/**
+		 * restore object from persistence if evicted, update hot time stats. read lock held by caller.
+		 */
+		void loadIfNeeded(ReadWriteLock<ManagedObjectBase> currentReadlock) {
+			if (this.object == null)
+			{
+				ReadWriteLock<ManagedObjectBase> manageLock = currentReadlock.upgrade();
+				if (this.object == null) 
+				{
+					Object reuse = this.serializer.pollRecycled();
+					String data = AsyncMemManager.this.persistence.retrieve(this.key);
+					this.object = this.serializer.deserialize(data, reuse);
+					AsyncMemManager.this.trace(AccessTraceRecorder.RESTORE, this, data == null ? 0 : data.length());
+					if (this.serializer.isRecycling())
+					{
+						(reuse != null ? AsyncMemManager.this.reusedCount : AsyncMemManager.this.reuseMissedCount).incrementAndGet();
+					}
+					if (this instanceof ManagedChunk)
+					{
+						AsyncMemManager.this.chunkRestoredCount.incrementAndGet();
+					}
+				}
+				
+				manageLock.downgrade();
+			} 
+			
+			LocalDateTime now = LocalDateTime.now(AsyncMemManager.this.clock);
+			long waittime = this.startTime.until(now, ChronoField.MILLI_OF_SECOND.getBaseUnit());
+			AsyncMemManager.this.hotTimeCalculator.stats(AsyncMemManager.this.config, this.flowKey, this.numberOfAccess, waittime);
+			this.startTime = now;
+			this.numberOfAccess++;
 		}
 		
 		/**
@@ -501,8 +1115,8 @@ public class AsyncMemManager implements asyncMemManager.client.di.AsyncMemManage
 			this.readWriteCounter += lockfactor;
 		}
 		
-		public Object getLockerKey() {
-			return this.key;
+		public Locker getLocker() {
+			return this.locker;
 		}
 	}
 	
@@ -535,6 +1149,7 @@ public class AsyncMemManager implements asyncMemManager.client.di.AsyncMemManage
 		AsyncObject(ManagedObject<T> managedObject) {
 			this.managedObject = managedObject;			
 			this.managedObject.asyncCounter.addAndGet(1);
+			AsyncMemManager.this.trace(AccessTraceRecorder.ASYNC, managedObject);
 		}
 		
 		/**
@@ -542,39 +1157,34 @@ public class AsyncMemManager implements asyncMemManager.client.di.AsyncMemManage
 		 */
 		@SuppressWarnings("unchecked")
 		public <R> R supply(Function<T,R> f) {
+			AsyncMemManager.this.trace(AccessTraceRecorder.ACCESS, this.managedObject);
 			ReadWriteLock<ManagedObjectBase> lock = this.managedObject.lockRead();
-			this.loadFromStoreIfNeeded(lock);
-			R res = f.apply((T)this.managedObject.object);
-			lock.unlock();			
+			R res;
+			try {
+				this.loadFromStoreIfNeeded(lock);
+				res = f.apply((T)this.managedObject.object);
+			} finally {
+				lock.unlock(); // f may throw, object must not stay locked
+			}
 			this.trackIfNeeded();
 			return res;
 		}		
 		
 		@SuppressWarnings("unchecked")
 		public void apply(Consumer<T> f) {
+			AsyncMemManager.this.trace(AccessTraceRecorder.ACCESS, this.managedObject);
 			ReadWriteLock<ManagedObjectBase> lock = this.managedObject.lockRead();
-			this.loadFromStoreIfNeeded(lock);
-			f.accept((T)this.managedObject.object);
-			lock.unlock();			
+			try {
+				this.loadFromStoreIfNeeded(lock);
+				f.accept((T)this.managedObject.object);
+			} finally {
+				lock.unlock();
+			}
 			this.trackIfNeeded();
 		}
 		
 		private void loadFromStoreIfNeeded(ReadWriteLock<ManagedObjectBase> currentReadlock) {
-			if (this.managedObject.object == null)
-			{
-				ReadWriteLock<ManagedObjectBase> manageLock = currentReadlock.upgrade();
-				if (this.managedObject.object == null) 
-				{
-					this.managedObject.object = this.managedObject.serializer.deserialize(AsyncMemManager.this.persistence.retrieve(this.managedObject.key));
-				}
-				
-				manageLock.downgrade();
-			} 
-			
-			long waittime = this.managedObject.startTime.until(LocalDateTime.now(), ChronoField.MILLI_OF_SECOND.getBaseUnit());
-			AsyncMemManager.this.hotTimeCalculator.stats(AsyncMemManager.this.config, this.managedObject.flowKey, this.managedObject.numberOfAccess, waittime);
-			this.managedObject.startTime = LocalDateTime.now();
-			this.managedObject.numberOfAccess++;
+			this.managedObject.loadIfNeeded(currentReadlock);
 		}
 		
 		private void trackIfNeeded() {
@@ -586,13 +1196,79 @@ public class AsyncMemManager implements asyncMemManager.client.di.AsyncMemManage
 		
 		@Override
 		public void close() throws Exception {
+			AsyncMemManager.this.trace(AccessTraceRecorder.CLOSE, this.managedObject);
 			if (this.managedObject.asyncCounter.addAndGet(-1) == 0 && this.managedObject.doneSetup)
 			{
 				AsyncMemManager.this.removeFromManagement(this.managedObject);
+				AsyncMemManager.this.removeChunks(this.managedObject);
 			}
 		}		
 	}
 	
+	/**
+	 * Separately evictable part of managed object {@link SetupObject#chunk}
+	 * tracked by its own hot time, shares async flows of its object so obsoleted together.
+	 */
+	public class ManagedChunk<C> extends ManagedObjectBase implements asyncMemManager.client.di.AsyncMemManager.ManagedChunk<C>
+	{
+		final ManagedObjectBase owner;
+		ManagedChunk(ManagedObjectBase owner, C part, long estimatedSize, SerializerGeneral serializer)
+		{
+			super(owner.flowKey + CHUNK_FLOW_SUFFIX, estimatedSize, serializer, owner.asyncCounter);
+			this.owner = owner;
+			this.object = part;
+		}
+		
+		@Override
+		boolean isObsoleted() {
+			return this.owner.isObsoleted();
+		}
+		
+		/**
+		 * run method provided by caller synchronously, part restored first if evicted.
+		 */
+		@SuppressWarnings("unchecked")
+		public <R> R supply(Function<C,R> f) {
+			ReadWriteLock<ManagedObjectBase> lock = this.lockRead();
+			R res;
+			try {
+				this.loadIfNeeded(lock);
+				res = f.apply((C)this.object);
+			} finally {
+				lock.unlock();
+			}
+			this.trackIfNeeded();
+			return res;
+		}
+		
+		@SuppressWarnings("unchecked")
+		public void apply(Consumer<C> f) {
+			ReadWriteLock<ManagedObjectBase> lock = this.lockRead();
+			try {
+				this.loadIfNeeded(lock);
+				f.accept((C)this.object);
+			} finally {
+				lock.unlock();
+			}
+			this.trackIfNeeded();
+		}
+		
+		public boolean isResident() {
+			return this.object != null;
+		}
+		
+		public long getEstimatedSize() {
+			return this.estimatedSize;
+		}
+		
+		private void trackIfNeeded() {
+			if (this.asyncCounter.get() > 0 && this.owner.doneSetup)
+			{
+				AsyncMemManager.this.track(this);
+			}
+		}
+	}
+	
 	/**
 	 * Object for setup flow {@link ManagedObjectBase#beingSetup}
 	 */	
@@ -617,16 +1293,44 @@ public class AsyncMemManager implements asyncMemManager.client.di.AsyncMemManage
 		public T o() {
 			return (T) managedObject.object;
 		}
+		
+		/**
+		 * declare large part of object as separately evictable chunk, object itself then stays resident.
+		 */
+		public <C> ManagedChunk<C> chunk(C part, AsyncMemSerializer<C> serializer) {
+			if (this.managedObject.doneSetup)
+			{
+				throw new IllegalStateException("chunks can only be declared during setup");
+			}
+			
+			ManagedChunk<C> chunk = new ManagedChunk<>(this.managedObject, part, serializer.estimateObjectSize(part), 
+														SerializerGeneral.getSerializerBaseInstance(serializer));
+			if (this.managedObject.chunks == null)
+			{
+				this.managedObject.chunks = new CopyOnWriteArrayList<>();
+			}
+			this.managedObject.chunks.add(chunk);
+			return chunk;
+		}
 
 		/**
 		 * finished setup flow
 		 */
 		@Override
 		public void close() throws Exception {
+			AsyncMemManager.this.trace(AccessTraceRecorder.SETUP_CLOSE, this.managedObject);
 			this.managedObject.doneSetup = true;
 			if (this.managedObject.asyncCounter.get() > 0)
 			{
 				AsyncMemManager.this.track(this.managedObject);
+				List<ManagedChunk<?>> chunks = this.managedObject.chunks;
+				if (chunks != null)
+				{
+					for (ManagedChunk<?> chunk : chunks)
+					{
+						AsyncMemManager.this.track(chunk);
+					}
+				}
 			}
 		}
 	}
@@ -2,6 +2,7 @@ package asyncMemManager.client;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 import asyncMemManager.client.di.*;
 import asyncMemManager.common.Configuration;
@@ -39,16 +40,20 @@ public class AvgWaitTimeCalculator implements HotTimeCalculator{
 		}
 		
 		int nextCount = avg.count + 1;
-		synchronized (avg) {
+		avg.lock.lock();
+		try {
 			avg.average = (long) (1.0 * avg.average / nextCount * avg.count +  1.0 * waittime / nextCount);
 			if (nextCount<5)
 			{
 				avg.count = nextCount;
 			}
+		} finally {
+			avg.lock.unlock();
 		}
 	}
 	
 	private static class WaitTimeStats{
+		final ReentrantLock lock = new ReentrantLock();
 		int count;
 		long average;
 	}
@@ -0,0 +1,294 @@
+package asyncMemManager.client;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import asyncMemManager.client.di.Persistence;
+import asyncMemManager.client.di.PersistenceException;
+import asyncMemManager.client.di.StoreRejectedException;
+import asyncMemManager.common.BinaryProtocol;
+
+/**
+ * Persistence talking {@link BinaryProtocol} to caching server,
+ * requests are pipelined over few persistent connections and matched back by request id.
+ */
+public class BinaryProtocolPersistence implements Persistence, AutoCloseable {
+	private Logger logger = LoggerFactory.getLogger(BinaryProtocolPersistence.class);
+	private static final long RESPONSE_TIMEOUT_SECONDS = 20;
+	/**
+	 * retry delay when server gave none
+	 */
+	private static final long DEFAULT_RETRY_AFTER_MILLIS = 1000;
+
+	private final Connection[] connections;
+	private final AtomicInteger nextConnection = new AtomicInteger();
+	private final AtomicLong nextRequestId = new AtomicLong();
+	private final AtomicLong bytesSent = new AtomicLong();
+	private final AtomicLong bytesReceived = new AtomicLong();
+	private final AimdConcurrencyLimiter storeLimiter;
+
+	public BinaryProtocolPersistence(String host, int port, int numberOfConnections) {
+		this.connections = new Connection[numberOfConnections > 0 ? numberOfConnections : 1];
+		this.storeLimiter = new AimdConcurrencyLimiter(8 * this.connections.length, 1, 64 * this.connections.length);
+		for (int i = 0; i < this.connections.length; i++)
+		{
+			this.connections[i] = new Connection(new InetSocketAddress(host, port));
+		}
+	}
+
+	/**
+	 * single attempt, over adaptive concurrency limit; slot given back however the call ends.
+	 */
+	@Override
+	public void store(UUID key, String data, long expectedDuration) {
+		byte[] payload = data.getBytes(StandardCharsets.UTF_8);
+		try {
+			this.storeLimiter.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new PersistenceException("store of " + key + " interrupted", e);
+		}
+
+		boolean released = false;
+		try {
+			BinaryProtocol.Response response = this.call(BinaryProtocol.OP_STORE, key, expectedDuration, payload);
+			if (response.status == BinaryProtocol.STATUS_OK)
+			{
+				this.storeLimiter.onSuccess();
+				released = true;
+				return;
+			}
+			if (response.status == BinaryProtocol.STATUS_RETRY_LATER)
+			{
+				// server overloaded, caller backs off
+				long retryAfter = response.payload != null && response.payload.length >= Long.BYTES
+									? ByteBuffer.wrap(response.payload).getLong() : DEFAULT_RETRY_AFTER_MILLIS;
+				this.storeLimiter.onOverload(retryAfter);
+				released = true;
+				throw new StoreRejectedException("store of " + key + " refused, server overloaded", retryAfter);
+			}
+			throw new PersistenceException("store of " + key + " failed, status " + response.status);
+		} finally {
+			if (!released)
+			{
+				this.storeLimiter.onError();
+			}
+		}
+	}
+
+	@Override
+	public String retrieve(UUID key) {
+		BinaryProtocol.Response response;
+		try {
+			response = this.call(BinaryProtocol.OP_RETRIEVE, key, 0, null);
+		} catch (PersistenceException e) {
+			this.logger.warn("Retrieve {} failed: {}", key, e.getMessage());
+			return null;
+		}
+		if (response.status == BinaryProtocol.STATUS_OK)
+		{
+			return new String(response.payload, StandardCharsets.UTF_8);
+		}
+		if (response.status != BinaryProtocol.STATUS_NOT_FOUND)
+		{
+			this.logger.warn("Retrieve {} failed, status {}", key, response.status);
+		}
+		return null;
+	}
+
+	@Override
+	public void remove(UUID key) {
+		BinaryProtocol.Response response = this.call(BinaryProtocol.OP_REMOVE, key, 0, null);
+		if (response.status == BinaryProtocol.STATUS_ERROR)
+		{
+			throw new PersistenceException("remove of " + key + " failed, status " + response.status);
+		}
+	}
+
+	public long getBytesSent() {
+		return this.bytesSent.get();
+	}
+
+	public long getBytesReceived() {
+		return this.bytesReceived.get();
+	}
+
+	/**
+	 * current adaptive limit of concurrent stores
+	 */
+	public double getStoreConcurrencyLimit() {
+		return this.storeLimiter.getLimit();
+	}
+
+	/**
+	 * @throws PersistenceException connection lost, no response in time or interrupted
+	 */
+	private BinaryProtocol.Response call(byte opcode, UUID key, long expectedDuration, byte[] payload)
+	{
+		long requestId = this.nextRequestId.incrementAndGet();
+		Connection connection = this.connections[Math.floorMod(this.nextConnection.getAndIncrement(), this.connections.length)];
+		CompletableFuture<BinaryProtocol.Response> res = null;
+		try {
+			res = connection.send(BinaryProtocol.encodeRequest(opcode, requestId, key, expectedDuration, payload), requestId);
+			return res.get(RESPONSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		} catch (TimeoutException e) {
+			// late response dropped by reader, pending entry removed on cancel
+			res.cancel(false);
+			throw new PersistenceException("no response for " + key + " within " + RESPONSE_TIMEOUT_SECONDS + "s", e);
+		} catch (IOException e) {
+			throw new PersistenceException("send of request for " + key + " failed", e);
+		} catch (ExecutionException e) {
+			throw new PersistenceException("connection lost waiting for " + key, e.getCause());
+		} catch (InterruptedException e) {
+			res.cancel(false);
+			Thread.currentThread().interrupt();
+			throw new PersistenceException("request for " + key + " interrupted", e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (Connection connection : this.connections)
+		{
+			connection.close();
+		}
+	}
+
+	/**
+	 * one socket, writes serialized by lock, responses read by dedicated thread.
+	 */
+	private class Connection
+	{
+		private final InetSocketAddress address;
+		private final ReentrantLock writeLock = new ReentrantLock();
+		private volatile Link link;
+
+		Connection(InetSocketAddress address)
+		{
+			this.address = address;
+		}
+
+		CompletableFuture<BinaryProtocol.Response> send(ByteBuffer request, long requestId) throws IOException
+		{
+			CompletableFuture<BinaryProtocol.Response> res = new CompletableFuture<>();
+			int size = request.remaining();
+			// not a monitor: socket write blocks, would pin a virtual thread's carrier
+			this.writeLock.lock();
+			try {
+				Link l = this.connectIfNeeded();
+				l.pending.put(requestId, res);
+				// however completed (response, lost link, cancelled call), no longer pending
+				res.whenComplete((r, ex) -> l.pending.remove(requestId, res));
+				try {
+					while (request.hasRemaining())
+					{
+						l.channel.write(request);
+					}
+				} catch (IOException e) {
+					l.pending.remove(requestId);
+					throw e;
+				}
+			} finally {
+				this.writeLock.unlock();
+			}
+			BinaryProtocolPersistence.this.bytesSent.addAndGet(size);
+			return res;
+		}
+
+		private Link connectIfNeeded() throws IOException
+		{
+			Link l = this.link;
+			if (l == null || !l.channel.isOpen())
+			{
+				SocketChannel ch = SocketChannel.open(this.address);
+				ch.socket().setTcpNoDelay(true);
+				final Link newLink = new Link(ch);
+				Thread reader = new Thread(() -> this.readLoop(newLink), "binary-protocol-reader");
+				reader.setDaemon(true);
+				reader.start();
+				this.link = l = newLink;
+			}
+			return l;
+		}
+
+		private void readLoop(Link l)
+		{
+			try {
+				DataInputStream in = new DataInputStream(Channels.newInputStream(l.channel));
+				while (true)
+				{
+					int frameLength = in.readInt();
+					if (frameLength < BinaryProtocol.RESPONSE_HEADER_SIZE || frameLength > BinaryProtocol.MAX_FRAME_SIZE)
+					{
+						throw new IOException("invalid frame length " + frameLength);
+					}
+					byte[] frame = new byte[frameLength];
+					in.readFully(frame);
+					BinaryProtocolPersistence.this.bytesReceived.addAndGet(BinaryProtocol.LENGTH_FIELD_SIZE + frameLength);
+
+					BinaryProtocol.Response response = new BinaryProtocol.Response(ByteBuffer.wrap(frame));
+					CompletableFuture<BinaryProtocol.Response> res = l.pending.remove(response.requestId);
+					if (res != null)
+					{
+						res.complete(response);
+					}
+				}
+			} catch (IOException e) {
+				// connection lost, fail waiting calls of this link, next send reconnects
+				try {
+					l.channel.close();
+				} catch (IOException e1) {
+				}
+				for (Long requestId : l.pending.keySet())
+				{
+					CompletableFuture<BinaryProtocol.Response> res = l.pending.remove(requestId);
+					if (res != null)
+					{
+						res.completeExceptionally(e);
+					}
+				}
+			}
+		}
+
+		void close() throws IOException
+		{
+			Link l = this.link;
+			if (l != null)
+			{
+				l.channel.close();
+			}
+		}
+	}
+
+	/**
+	 * an opened socket with calls waiting for response on it.
+	 */
+	private static class Link
+	{
+		final SocketChannel channel;
+		final Map<Long, CompletableFuture<BinaryProtocol.Response>> pending = new ConcurrentHashMap<>();
+
+		Link(SocketChannel channel)
+		{
+			this.channel = channel;
+		}
+	}
+}
@@ -0,0 +1,460 @@
+package asyncMemManager.client;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Runtime support of serializers generated for {@link asyncMemManager.client.di.AsyncMemSerializable} types.
+ * values are written as bytes: ints/longs zigzag varint, other primitives fixed size, strings UTF-8,
+ * length -1 marks null string/array. bytes are carried in a ISO-8859-1 String (one char per byte),
+ * as persistence takes String, which keeps one byte per char in memory and round trips any byte.
+ * heap size estimate assumes 64-bit JVM with compressed oops.
+ */
+public final class BinarySerialization {
+	public static final int OBJECT_HEADER = 12;
+	public static final int ARRAY_HEADER = 16;
+	public static final int REFERENCE = 4;
+	private static final int STRING_SHALLOW = 24;
+
+	private BinarySerialization() {
+	}
+
+	public static long align(long size)
+	{
+		return (size + 7) & ~7L;
+	}
+
+	/**
+	 * object with given bytes of own fields.
+	 */
+	public static long shallow(long fieldsSize)
+	{
+		return align(OBJECT_HEADER + fieldsSize);
+	}
+
+	public static long array(int length, int elementSize)
+	{
+		return align(ARRAY_HEADER + (long)length * elementSize);
+	}
+
+	/**
+	 * compact strings: one byte per char when all latin-1.
+	 */
+	public static long string(String s)
+	{
+		if (s == null)
+		{
+			return 0;
+		}
+
+		int coder = 1;
+		for (int i = 0; i < s.length(); i++)
+		{
+			if (s.charAt(i) > 0xFF)
+			{
+				coder = 2;
+				break;
+			}
+		}
+		return STRING_SHALLOW + array(s.length(), coder);
+	}
+
+	public static long strings(String[] a)
+	{
+		if (a == null)
+		{
+			return 0;
+		}
+
+		long size = array(a.length, REFERENCE);
+		for (String s : a)
+		{
+			size += string(s);
+		}
+		return size;
+	}
+
+	public static final class Writer
+	{
+		private byte[] buffer;
+		private int position = 0;
+
+		public Writer()
+		{
+			this(64);
+		}
+
+		public Writer(int initialSize)
+		{
+			this.buffer = new byte[Math.max(16, initialSize)];
+		}
+
+		private void ensure(int more)
+		{
+			if (this.position + more > this.buffer.length)
+			{
+				this.buffer = Arrays.copyOf(this.buffer, Math.max(this.buffer.length * 2, this.position + more));
+			}
+		}
+
+		public void writeByte(byte v)
+		{
+			this.ensure(1);
+			this.buffer[this.position++] = v;
+		}
+
+		public void writeBoolean(boolean v)
+		{
+			this.writeByte(v ? (byte)1 : (byte)0);
+		}
+
+		public void writeShort(short v)
+		{
+			this.ensure(2);
+			this.buffer[this.position++] = (byte)(v >>> 8);
+			this.buffer[this.position++] = (byte)v;
+		}
+
+		public void writeChar(char v)
+		{
+			this.writeShort((short)v);
+		}
+
+		public void writeInt(int v)
+		{
+			this.writeVarLong(((v << 1) ^ (v >> 31)) & 0xFFFFFFFFL);
+		}
+
+		public void writeLong(long v)
+		{
+			this.writeVarLong((v << 1) ^ (v >> 63));
+		}
+
+		public void writeFloat(float v)
+		{
+			this.writeFixedInt(Float.floatToRawIntBits(v));
+		}
+
+		public void writeDouble(double v)
+		{
+			long bits = Double.doubleToRawLongBits(v);
+			this.writeFixedInt((int)(bits >>> 32));
+			this.writeFixedInt((int)bits);
+		}
+
+		public void writeString(String v)
+		{
+			if (v == null)
+			{
+				this.writeInt(-1);
+				return;
+			}
+			byte[] bytes = v.getBytes(StandardCharsets.UTF_8);
+			this.writeInt(bytes.length);
+			this.ensure(bytes.length);
+			System.arraycopy(bytes, 0, this.buffer, this.position, bytes.length);
+			this.position += bytes.length;
+		}
+
+		/**
+		 * length of array, -1 when null. returns whether elements follow.
+		 */
+		public boolean writeLength(Object array, int length)
+		{
+			this.writeInt(array == null ? -1 : length);
+			return array != null;
+		}
+
+		public void writeBooleans(boolean[] a)
+		{
+			if (this.writeLength(a, a == null ? 0 : a.length))
+			{
+				for (boolean v : a) this.writeBoolean(v);
+			}
+		}
+
+		public void writeBytes(byte[] a)
+		{
+			if (this.writeLength(a, a == null ? 0 : a.length))
+			{
+				this.ensure(a.length);
+				System.arraycopy(a, 0, this.buffer, this.position, a.length);
+				this.position += a.length;
+			}
+		}
+
+		public void writeShorts(short[] a)
+		{
+			if (this.writeLength(a, a == null ? 0 : a.length))
+			{
+				for (short v : a) this.writeShort(v);
+			}
+		}
+
+		public void writeChars(char[] a)
+		{
+			if (this.writeLength(a, a == null ? 0 : a.length))
+			{
+				for (char v : a) this.writeChar(v);
+			}
+		}
+
+		public void writeInts(int[] a)
+		{
+			if (this.writeLength(a, a == null ? 0 : a.length))
+			{
+				this.ensure(a.length);
+				for (int v : a) this.writeInt(v);
+			}
+		}
+
+		public void writeLongs(long[] a)
+		{
+			if (this.writeLength(a, a == null ? 0 : a.length))
+			{
+				this.ensure(a.length);
+				for (long v : a) this.writeLong(v);
+			}
+		}
+
+		public void writeFloats(float[] a)
+		{
+			if (this.writeLength(a, a == null ? 0 : a.length))
+			{
+				this.ensure(a.length * 4);
+				for (float v : a) this.writeFloat(v);
+			}
+		}
+
+		public void writeDoubles(double[] a)
+		{
+			if (this.writeLength(a, a == null ? 0 : a.length))
+			{
+				this.ensure(a.length * 8);
+				for (double v : a) this.writeDouble(v);
+			}
+		}
+
+		public void writeStrings(String[] a)
+		{
+			if (this.writeLength(a, a == null ? 0 : a.length))
+			{
+				for (String v : a) this.writeString(v);
+			}
+		}
+
+		private void writeFixedInt(int v)
+		{
+			this.ensure(4);
+			this.buffer[this.position++] = (byte)(v >>> 24);
+			this.buffer[this.position++] = (byte)(v >>> 16);
+			this.buffer[this.position++] = (byte)(v >>> 8);
+			this.buffer[this.position++] = (byte)v;
+		}
+
+		private void writeVarLong(long v)
+		{
+			this.ensure(10);
+			while ((v & ~0x7FL) != 0)
+			{
+				this.buffer[this.position++] = (byte)((v & 0x7F) | 0x80);
+				v >>>= 7;
+			}
+			this.buffer[this.position++] = (byte)v;
+		}
+
+		public int size()
+		{
+			return this.position;
+		}
+
+		/**
+		 * written bytes as one char each.
+		 */
+		@Override
+		public String toString()
+		{
+			return new String(this.buffer, 0, this.position, StandardCharsets.ISO_8859_1);
+		}
+	}
+
+	public static final class Reader
+	{
+		private final String data;
+		private int position = 0;
+
+		public Reader(String data)
+		{
+			this.data = data;
+		}
+
+		public byte readByte()
+		{
+			return (byte)this.data.charAt(this.position++);
+		}
+
+		public boolean readBoolean()
+		{
+			return this.readByte() != 0;
+		}
+
+		public short readShort()
+		{
+			return (short)(((this.readByte() & 0xFF) << 8) | (this.readByte() & 0xFF));
+		}
+
+		public char readChar()
+		{
+			return (char)this.readShort();
+		}
+
+		public int readInt()
+		{
+			long v = this.readVarLong();
+			return (int)((v >>> 1) ^ -(v & 1));
+		}
+
+		public long readLong()
+		{
+			long v = this.readVarLong();
+			return (v >>> 1) ^ -(v & 1);
+		}
+
+		public float readFloat()
+		{
+			return Float.intBitsToFloat(this.readFixedInt());
+		}
+
+		public double readDouble()
+		{
+			long high = this.readFixedInt() & 0xFFFFFFFFL;
+			long low = this.readFixedInt() & 0xFFFFFFFFL;
+			return Double.longBitsToDouble((high << 32) | low);
+		}
+
+		public String readString()
+		{
+			int length = this.readInt();
+			if (length < 0)
+			{
+				return null;
+			}
+			return new String(this.readRaw(length), StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * array length, -1 for null.
+		 */
+		public int readLength()
+		{
+			return this.readInt();
+		}
+
+		public boolean[] readBooleans()
+		{
+			int length = this.readLength();
+			if (length < 0) return null;
+			boolean[] a = new boolean[length];
+			for (int i = 0; i < length; i++) a[i] = this.readBoolean();
+			return a;
+		}
+
+		public byte[] readBytes()
+		{
+			int length = this.readLength();
+			return length < 0 ? null : this.readRaw(length);
+		}
+
+		public short[] readShorts()
+		{
+			int length = this.readLength();
+			if (length < 0) return null;
+			short[] a = new short[length];
+			for (int i = 0; i < length; i++) a[i] = this.readShort();
+			return a;
+		}
+
+		public char[] readChars()
+		{
+			int length = this.readLength();
+			if (length < 0) return null;
+			char[] a = new char[length];
+			for (int i = 0; i < length; i++) a[i] = this.readChar();
+			return a;
+		}
+
+		public int[] readInts()
+		{
+			int length = this.readLength();
+			if (length < 0) return null;
+			int[] a = new int[length];
+			for (int i = 0; i < length; i++) a[i] = this.readInt();
+			return a;
+		}
+
+		public long[] readLongs()
+		{
+			int length = this.readLength();
+			if (length < 0) return null;
+			long[] a = new long[length];
+			for (int i = 0; i < length; i++) a[i] = this.readLong();
+			return a;
+		}
+
+		public float[] readFloats()
+		{
+			int length = this.readLength();
+			if (length < 0) return null;
+			float[] a = new float[length];
+			for (int i = 0; i < length; i++) a[i] = this.readFloat();
+			return a;
+		}
+
+		public double[] readDoubles()
+		{
+			int length = this.readLength();
+			if (length < 0) return null;
+			double[] a = new double[length];
+			for (int i = 0; i < length; i++) a[i] = this.readDouble();
+			return a;
+		}
+
+		public String[] readStrings()
+		{
+			int length = this.readLength();
+			if (length < 0) return null;
+			String[] a = new String[length];
+			for (int i = 0; i < length; i++) a[i] = this.readString();
+			return a;
+		}
+
+		private byte[] readRaw(int length)
+		{
+			byte[] bytes = new byte[length];
+			for (int i = 0; i < length; i++)
+			{
+				bytes[i] = (byte)this.data.charAt(this.position++);
+			}
+			return bytes;
+		}
+
+		private int readFixedInt()
+		{
+			return ((this.readByte() & 0xFF) << 24) | ((this.readByte() & 0xFF) << 16)
+					| ((this.readByte() & 0xFF) << 8) | (this.readByte() & 0xFF);
+		}
+
+		private long readVarLong()
+		{
+			long v = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = this.readByte();
+				v |= (long)(b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			return v;
+		}
+	}
+}
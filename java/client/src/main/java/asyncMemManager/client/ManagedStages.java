@@ -0,0 +1,122 @@
+package asyncMemManager.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import asyncMemManager.client.di.AsyncMemManager.AsyncObject;
+import asyncMemManager.client.di.AsyncMemManager.SetupObject;
+
+/**
+ * continuations bound to managed object: async object taken when attached (so attach during setup),
+ * closed right after the continuation ran, on exception of stage too,
+ * so object obsoleted as soon as its last continuation finished, not when whole chain completes.
+ * failure to close fails the continuation's stage.
+ */
+public final class ManagedStages {
+	private ManagedStages() {
+	}
+
+	public static <T, U, R> CompletableFuture<R> thenApplyManaged(CompletionStage<U> stage, SetupObject<T> setupObject,
+																	BiFunction<? super U, ? super T, ? extends R> fn)
+	{
+		Handle<T> handle = new Handle<>(setupObject.asyncObject());
+		return released(stage.handle(handle.bind(fn)), handle);
+	}
+
+	public static <T, U, R> CompletableFuture<R> thenApplyManagedAsync(CompletionStage<U> stage, SetupObject<T> setupObject,
+																		BiFunction<? super U, ? super T, ? extends R> fn, Executor executor)
+	{
+		Handle<T> handle = new Handle<>(setupObject.asyncObject());
+		return released(stage.handleAsync(handle.bind(fn), executor), handle);
+	}
+
+	public static <T, U> CompletableFuture<Void> thenAcceptManaged(CompletionStage<U> stage, SetupObject<T> setupObject,
+																	BiConsumer<? super U, ? super T> action)
+	{
+		return thenApplyManaged(stage, setupObject, (u, o) -> {
+			action.accept(u, o);
+			return null;
+		});
+	}
+
+	public static <T, U> CompletableFuture<Void> thenAcceptManagedAsync(CompletionStage<U> stage, SetupObject<T> setupObject,
+																		BiConsumer<? super U, ? super T> action, Executor executor)
+	{
+		return thenApplyManagedAsync(stage, setupObject, (u, o) -> {
+			action.accept(u, o);
+			return null;
+		}, executor);
+	}
+
+	public static <T, R> CompletableFuture<R> supplyManagedAsync(SetupObject<T> setupObject, Function<? super T, ? extends R> fn, Executor executor)
+	{
+		return thenApplyManagedAsync(CompletableFuture.completedFuture(null), setupObject, (u, o) -> fn.apply(o), executor);
+	}
+
+	/**
+	 * safety net: continuation never ran, e.g. executor rejected it.
+	 */
+	private static <R> CompletableFuture<R> released(CompletionStage<R> stage, Handle<?> handle)
+	{
+		return stage.whenComplete((r, ex) -> handle.release()).toCompletableFuture();
+	}
+
+	/**
+	 * async object closed once, whichever path comes first.
+	 */
+	static class Handle<T>
+	{
+		private final AsyncObject<T> asyncObject;
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		Handle(AsyncObject<T> asyncObject)
+		{
+			this.asyncObject = asyncObject;
+		}
+
+		<U, R> BiFunction<U, Throwable, R> bind(BiFunction<? super U, ? super T, ? extends R> fn)
+		{
+			return (u, ex) -> {
+				R res;
+				try {
+					if (ex != null)
+					{
+						throw ex instanceof CompletionException ? (CompletionException)ex : new CompletionException(ex);
+					}
+					res = this.asyncObject.supply((o) -> fn.apply(u, o));
+				} catch (Throwable t) {
+					// stage failure kept, close failure attached to it
+					try {
+						this.release();
+					} catch (CompletionException e) {
+						t.addSuppressed(e.getCause());
+					}
+					throw t;
+				}
+				this.release();
+				return res;
+			};
+		}
+
+		/**
+		 * @throws CompletionException if async object failed to close, failing the continuation's stage
+		 */
+		void release()
+		{
+			if (this.released.compareAndSet(false, true))
+			{
+				try {
+					this.asyncObject.close();
+				} catch (Exception e) {
+					throw new CompletionException(e);
+				}
+			}
+		}
+	}
+}
@@ -4,10 +4,15 @@ import java.io.IOException;
 import java.time.Duration;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import asyncMemManager.client.di.Persistence;
+import asyncMemManager.client.di.PersistenceException;
+import asyncMemManager.client.di.StoreRejectedException;
 import okhttp3.ConnectionPool;
 import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
 import retrofit2.Call;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
@@ -18,7 +23,15 @@ import retrofit2.http.POST;
 import retrofit2.http.Path;
 
 public class MemCacheServerPersistence implements Persistence{
+	private static final int TOO_MANY_REQUESTS = 429;
+	/**
+	 * retry delay when server gave none
+	 */
+	private static final long DEFAULT_RETRY_AFTER_MILLIS = 1000;
 	private AsyncCachingREST restClient;
+	private final AimdConcurrencyLimiter storeLimiter = new AimdConcurrencyLimiter(10, 1, 64);
+	private final AtomicLong bytesSent = new AtomicLong();
+	private final AtomicLong bytesReceived = new AtomicLong();
 	
 	public MemCacheServerPersistence(String asyncCachingUrl) {
 		ConnectionPool pool = new ConnectionPool(5, 1, TimeUnit.MINUTES);
@@ -26,6 +39,17 @@ public class MemCacheServerPersistence implements Persistence{
 		OkHttpClient client = new OkHttpClient.Builder()
 									  .readTimeout(Duration.ofSeconds(20))
 		                              .connectionPool(pool)
+		                              .addNetworkInterceptor(chain -> {
+		                            	  // rough bytes on wire: request line, headers and bodies
+		                            	  Request request = chain.request();
+		                            	  this.bytesSent.addAndGet(request.method().length() + request.url().encodedPath().length() + 12
+		                            			  					+ request.headers().byteCount()
+		                            			  					+ (request.body() != null ? request.body().contentLength() : 0));
+		                            	  Response response = chain.proceed(request);
+		                            	  this.bytesReceived.addAndGet(response.headers().byteCount() + 15
+		                            			  					+ Math.max(0, response.body() != null ? response.body().contentLength() : 0));
+		                            	  return response;
+		                              })
 		                              .build();
 		
 		Retrofit retrofit = new Retrofit.Builder()
@@ -37,14 +61,61 @@ public class MemCacheServerPersistence implements Persistence{
 		this.restClient = retrofit.create(AsyncCachingREST.class);
 	}
 	
+	/**
+	 * single attempt, over adaptive concurrency limit; slot given back however the call ends.
+	 */
 	@Override
 	public void store(UUID key, String data, long expectedDuration) {
 		try {
-			this.restClient.store(key, data, expectedDuration).execute().body();
+			this.storeLimiter.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new PersistenceException("store of " + key + " interrupted", e);
+		}
+		
+		boolean released = false;
+		try {
+			retrofit2.Response<Void> response = this.restClient.store(key, data, expectedDuration).execute();
+			if (response.isSuccessful())
+			{
+				this.storeLimiter.onSuccess();
+				released = true;
+				return;
+			}
+			if (response.code() == TOO_MANY_REQUESTS)
+			{
+				// server overloaded, caller backs off
+				long retryAfter = retryAfterMillis(response.headers());
+				this.storeLimiter.onOverload(retryAfter);
+				released = true;
+				throw new StoreRejectedException("store of " + key + " refused, server overloaded", retryAfter);
+			}
+			throw new PersistenceException("store of " + key + " failed, status " + response.code());
 		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			throw new PersistenceException("store of " + key + " failed", e);
+		} finally {
+			if (!released)
+			{
+				this.storeLimiter.onError();
+			}
+		}
+	}
+	
+	private static long retryAfterMillis(okhttp3.Headers headers)
+	{
+		try {
+			String millis = headers.get("X-Retry-After-Millis");
+			if (millis != null) {
+				return Long.parseLong(millis.trim());
+			}
+			String seconds = headers.get("Retry-After");
+			if (seconds != null) {
+				return Long.parseLong(seconds.trim()) * 1000;
+			}
+		} catch (NumberFormatException e) {
+			// malformed or http-date, fall back to default
 		}
+		return DEFAULT_RETRY_AFTER_MILLIS;
 	}
 
 	@Override
@@ -68,6 +139,21 @@ public class MemCacheServerPersistence implements Persistence{
 		}	
 	}
 	
+	public long getBytesSent() {
+		return this.bytesSent.get();
+	}
+
+	public long getBytesReceived() {
+		return this.bytesReceived.get();
+	}
+	
+	/**
+	 * current adaptive limit of concurrent stores
+	 */
+	public double getStoreConcurrencyLimit() {
+		return this.storeLimiter.getLimit();
+	}
+	
 	private static interface AsyncCachingREST
 	{
 		@POST("/cache/{key}/{expectedDuration}")
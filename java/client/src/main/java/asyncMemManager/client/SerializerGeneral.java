@@ -1,19 +1,28 @@
 package asyncMemManager.client;
 
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Function;
 
 import asyncMemManager.client.di.AsyncMemSerializer;
+import asyncMemManager.client.di.RecyclingAsyncMemSerializer;
 
 
 class SerializerGeneral {
 	
 	private static Map<Object, SerializerGeneral> instances = new ConcurrentHashMap<Object, SerializerGeneral>();
 	
-	private Function<Object, String> serialzeFunc;
-	private Function<String, Object> deserializeFunc;
-	private Function<Object, Long> estimateObjectSizeFunc;
+	/**
+	 * called directly, no wrapping lambdas (nor boxed size) between manager and serializer.
+	 */
+	private AsyncMemSerializer<Object> serializer;
+	
+	/**
+	 * evicted instances waiting for reuse, only for {@link RecyclingAsyncMemSerializer}.
+	 */
+	private RecyclingAsyncMemSerializer<Object> recyclingSerializer;
+	private BlockingQueue<Object> recycled;
 	
 	// it's ok to in-thread safe here, as object override wouldn't cause any issue.
 	@SuppressWarnings("unchecked")
@@ -23,18 +32,12 @@ class SerializerGeneral {
 		if(inst == null)
 		{
 			inst = new SerializerGeneral();
-			
-			inst.serialzeFunc = (obj) -> {
-				return serializer.serialize((T)obj);
-			};		
-			
-			inst.deserializeFunc = (data) -> {
-				return serializer.deserialize(data);
-			};
-			
-			inst.estimateObjectSizeFunc = (obj) -> {
-				return serializer.estimateObjectSize((T)obj);
-			};
+			inst.serializer = (AsyncMemSerializer<Object>)serializer;
+			if (serializer instanceof RecyclingAsyncMemSerializer)
+			{
+				inst.recyclingSerializer = (RecyclingAsyncMemSerializer<Object>)serializer;
+				inst.recycled = new ArrayBlockingQueue<>(Math.max(1, inst.recyclingSerializer.recyclePoolSize()));
+			}
 			
 			SerializerGeneral.instances.put(serializer.getClass(), inst);
 		}
@@ -47,17 +50,51 @@ class SerializerGeneral {
 	
 	public String serialize(Object object)
 	{
-		return this.serialzeFunc.apply(object);
+		return this.serializer.serialize(object);
 	}
 	
 	@SuppressWarnings("unchecked")
 	public <T> T deserialize(String data)
 	{
-		return (T)this.deserializeFunc.apply(data);
+		return (T)this.serializer.deserialize(data);
+	}
+	
+	/**
+	 * deserialize into reuse target from {@link #pollRecycled()}, null to allocate.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T deserialize(String data, Object reuse)
+	{
+		if (reuse == null)
+		{
+			return (T)this.serializer.deserialize(data);
+		}
+		return (T)this.recyclingSerializer.deserialize(data, reuse);
+	}
+	
+	/**
+	 * pooled evicted instance, null if none or serializer not recycling.
+	 */
+	public Object pollRecycled()
+	{
+		return this.recycled == null ? null : this.recycled.poll();
+	}
+	
+	/**
+	 * give evicted instance for reuse, false when not recycling or pool full.
+	 */
+	public boolean recycle(Object object)
+	{
+		return this.recycled != null && object != null && this.recycled.offer(object);
+	}
+	
+	public boolean isRecycling()
+	{
+		return this.recycled != null;
 	}
 	
 	public long estimateObjectSize(Object object)
 	{
-		return this.estimateObjectSizeFunc.apply(object);
+		return this.serializer.estimateObjectSize(object);
 	}
 }
@@ -0,0 +1,155 @@
+package asyncMemManager.client;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * combined capacity of several managers, each still bound by its own configured capacity.
+ * over budget, coldest entry across all managers evicted first: the one expected back furthest ahead,
+ * time ahead divided by weight of its manager, so higher weight keeps a manager's entries longer.
+ * used size summed from managers, one thread evicts for the budget at a time.
+ */
+public class SharedMemoryBudget {
+	private static final long CLEANUP_BACKOFF_NANOS = 50000;
+
+	private final long capacity;
+	private final List<Member> members = new CopyOnWriteArrayList<>();
+	private final AtomicBoolean cleaning = new AtomicBoolean();
+	private final AtomicLong evictedCount = new AtomicLong(0);
+
+	public SharedMemoryBudget(long capacity)
+	{
+		this.capacity = capacity;
+	}
+
+	public void register(AsyncMemManager manager)
+	{
+		this.register(manager, 1);
+	}
+
+	/**
+	 * @param weight relative priority to stay resident, > 0
+	 */
+	public void register(AsyncMemManager manager, double weight)
+	{
+		if (weight <= 0)
+		{
+			throw new IllegalArgumentException("weight must be positive");
+		}
+		manager.joinBudget(this);
+		this.members.add(new Member(manager, weight));
+	}
+
+	public void unregister(AsyncMemManager manager)
+	{
+		this.members.removeIf((m) -> m.manager == manager);
+		manager.joinBudget(null);
+	}
+
+	public long getCapacity() {
+		return this.capacity;
+	}
+
+	public long getUsedSize()
+	{
+		long used = 0;
+		for (Member member : this.members)
+		{
+			used += member.manager.getUsedSize();
+		}
+		return used;
+	}
+
+	public boolean isOverCapacity() {
+		return this.getUsedSize() > this.capacity;
+	}
+
+	/**
+	 * entries evicted to keep budget, apart from those evicted by managers' own capacity
+	 */
+	public long getEvictedCount() {
+		return this.evictedCount.get();
+	}
+
+	/**
+	 * evict globally coldest entries until under budget, or nothing evictable.
+	 * skipped when other thread already at it.
+	 */
+	void cleanUp()
+	{
+		if (!this.cleaning.compareAndSet(false, true))
+		{
+			return;
+		}
+
+		try {
+			while (this.isOverCapacity())
+			{
+				Member victimMember = null;
+				AsyncMemManager.ManagedObjectBase victim = null;
+				double victimScore = Double.NEGATIVE_INFINITY;
+				for (Member member : this.members)
+				{
+					AsyncMemManager.ManagedObjectBase candidate = member.manager.getColdestCandidate();
+					if (candidate != null)
+					{
+						double score = member.score(candidate);
+						if (victim == null || score > victimScore)
+						{
+							victimMember = member;
+							victim = candidate;
+							victimScore = score;
+						}
+					}
+				}
+
+				if (victim == null)
+				{
+					break;
+				}
+
+				long persistFailed = victimMember.manager.getPersistFailedCount();
+				if (victimMember.manager.evict(victim))
+				{
+					this.evictedCount.incrementAndGet();
+				}else if (victimMember.manager.getPersistFailedCount() != persistFailed
+							|| victimMember.manager.isStoreBackingOff()) {
+					break; // storage failing or overloaded, retried on next cleanup
+				}else {
+					LockSupport.parkNanos(CLEANUP_BACKOFF_NANOS);
+				}
+			}
+		} finally {
+			this.cleaning.set(false);
+		}
+	}
+
+	public String debugInfo()
+	{
+		return "BudgetUsed:" + this.getUsedSize() + " BudgetCapacity:" + this.capacity + " BudgetEvicted:" + this.evictedCount.get();
+	}
+
+	static class Member
+	{
+		final AsyncMemManager manager;
+		final double weight;
+
+		Member(AsyncMemManager manager, double weight)
+		{
+			this.manager = manager;
+			this.weight = weight;
+		}
+
+		/**
+		 * higher is colder. overdue entries (negative time ahead) scaled the other way to keep order by weight.
+		 */
+		double score(AsyncMemManager.ManagedObjectBase candidate)
+		{
+			double ahead = this.manager.millisUntilHot(candidate);
+			return ahead >= 0 ? ahead / this.weight : ahead * this.weight;
+		}
+	}
+}
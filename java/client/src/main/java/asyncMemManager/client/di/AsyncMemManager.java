@@ -10,6 +10,12 @@ public interface AsyncMemManager extends AutoCloseable{
 	public interface SetupObject<T> extends AutoCloseable{
 		public AsyncObject<T> asyncObject();
 		public T o();
+		
+		/**
+		 * declare large part of object as separately evictable chunk, only during setup.
+		 * object's own size estimate should leave the part out.
+		 */
+		public <C> ManagedChunk<C> chunk(C part, AsyncMemSerializer<C> serializer);
 	}
 	
 	public interface AsyncObject<T> extends AutoCloseable
@@ -17,4 +23,13 @@ public interface AsyncMemManager extends AutoCloseable{
 		public <R> R supply(Function<T,R> f);
 		public void apply(Consumer<T> f);
 	}
+	
+	/**
+	 * part of managed object evicted on its own, restored on first access.
+	 */
+	public interface ManagedChunk<C>
+	{
+		public <R> R supply(Function<C,R> f);
+		public void apply(Consumer<C> f);
+	}
 }
@@ -0,0 +1,18 @@
+package asyncMemManager.client.di;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generate binary {@link AsyncMemSerializer} for annotated class at compile time (asyncMemManager.processor),
+ * named {@code <Class>BinarySerializer} in same package, used through its static {@code Instance}.
+ * class needs non-private no-arg constructor; non-static, non-transient fields are serialized:
+ * primitives, String, classes annotated as well, and arrays of those.
+ * private fields need getter/setter.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface AsyncMemSerializable {
+}
@@ -4,10 +4,12 @@ import java.util.UUID;
 
 public interface Persistence {
 	/**
-	 * save data storage
+	 * save data storage, single attempt: never waits for an overloaded server to accept it.
 	 * @param key
 	 * @param data
 	 * @return
+	 * @throws StoreRejectedException if server overloaded, with delay before next store
+	 * @throws PersistenceException if data not stored
 	 */
 	public void store(UUID key, String data, long expectedDuration);
 	
@@ -21,6 +23,7 @@ public interface Persistence {
 	/**
 	 * remove data from storage.
 	 * @param key
+	 * @throws PersistenceException if storage could not be reached
 	 */
 	public void remove(UUID key);
 }
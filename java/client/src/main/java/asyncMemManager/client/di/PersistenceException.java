@@ -0,0 +1,17 @@
+package asyncMemManager.client.di;
+
+/**
+ * data could not be stored: server unreachable, not answering in time or failed to store.
+ * manager keeps the object in memory then.
+ */
+public class PersistenceException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	public PersistenceException(String message) {
+		super(message);
+	}
+
+	public PersistenceException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
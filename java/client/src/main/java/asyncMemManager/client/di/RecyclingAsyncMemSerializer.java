@@ -0,0 +1,20 @@
+package asyncMemManager.client.di;
+
+/**
+ * Serializer opting in to object recycling: instances evicted to persistence are kept in a bounded pool per type
+ * and handed back as target of a later deserialize, instead of allocating new ones.
+ * only safe when flows don't keep references to managed object outside supply/apply (nor setup's o() after close).
+ */
+public interface RecyclingAsyncMemSerializer<T> extends AsyncMemSerializer<T> {
+	/**
+	 * deserialize into reuse when given, its whole state must be overwritten. reuse is null when pool empty.
+	 */
+	public T deserialize(String data, T reuse);
+	
+	/**
+	 * max evicted instances kept for reuse.
+	 */
+	public default int recyclePoolSize() {
+		return 16;
+	}
+}
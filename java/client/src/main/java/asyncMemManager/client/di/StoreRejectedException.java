@@ -0,0 +1,23 @@
+package asyncMemManager.client.di;
+
+/**
+ * server overloaded and asked to retry the store later, nothing stored.
+ * manager keeps the object in memory and holds off storing until retry time.
+ */
+public class StoreRejectedException extends PersistenceException {
+	private static final long serialVersionUID = 1L;
+
+	private final long retryAfterMillis;
+
+	public StoreRejectedException(String message, long retryAfterMillis) {
+		super(message);
+		this.retryAfterMillis = retryAfterMillis;
+	}
+
+	/**
+	 * milliseconds server asked to wait before next store
+	 */
+	public long getRetryAfterMillis() {
+		return this.retryAfterMillis;
+	}
+}
@@ -0,0 +1,113 @@
+package asyncMemManager.common;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Length-prefixed binary protocol between AsyncMemManager client and caching server.
+ *
+ * request frame: [int frameLength][byte opcode][long requestId][long keyMsb][long keyLsb][long expectedDuration][payload]
+ * response frame: [int frameLength][long requestId][byte status][payload]
+ * frameLength counts bytes after the length field itself.
+ * for retrieve, expectedDuration carries read deadline in millis from now, 0 if none.
+ * Requests are pipelined, responses may come back in any order, matched by requestId.
+ */
+public final class BinaryProtocol {
+
+	public static final byte OP_STORE = 1;
+	public static final byte OP_RETRIEVE = 2;
+	public static final byte OP_REMOVE = 3;
+
+	public static final byte STATUS_OK = 0;
+	public static final byte STATUS_NOT_FOUND = 1;
+	public static final byte STATUS_ERROR = 2;
+	/**
+	 * store not admitted, server overloaded, payload: [long retryAfterMillis]
+	 */
+	public static final byte STATUS_RETRY_LATER = 3;
+
+	public static final int LENGTH_FIELD_SIZE = 4;
+	public static final int REQUEST_HEADER_SIZE = 1 + 8 + 8 + 8 + 8;
+	public static final int RESPONSE_HEADER_SIZE = 8 + 1;
+
+	/**
+	 * guard against corrupted length field.
+	 */
+	public static final int MAX_FRAME_SIZE = 256 * 1024 * 1024;
+
+	private BinaryProtocol() {
+	}
+
+	public static ByteBuffer encodeRequest(byte opcode, long requestId, UUID key, long expectedDuration, byte[] payload)
+	{
+		int payloadSize = payload == null ? 0 : payload.length;
+		ByteBuffer buffer = ByteBuffer.allocate(LENGTH_FIELD_SIZE + REQUEST_HEADER_SIZE + payloadSize);
+		buffer.putInt(REQUEST_HEADER_SIZE + payloadSize);
+		buffer.put(opcode);
+		buffer.putLong(requestId);
+		buffer.putLong(key.getMostSignificantBits());
+		buffer.putLong(key.getLeastSignificantBits());
+		buffer.putLong(expectedDuration);
+		if (payload != null)
+		{
+			buffer.put(payload);
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	public static ByteBuffer encodeResponse(long requestId, byte status, byte[] payload)
+	{
+		int payloadSize = payload == null ? 0 : payload.length;
+		ByteBuffer buffer = ByteBuffer.allocate(LENGTH_FIELD_SIZE + RESPONSE_HEADER_SIZE + payloadSize);
+		buffer.putInt(RESPONSE_HEADER_SIZE + payloadSize);
+		buffer.putLong(requestId);
+		buffer.put(status);
+		if (payload != null)
+		{
+			buffer.put(payload);
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * decoded request, frame is the body after length field.
+	 */
+	public static class Request
+	{
+		public final byte opcode;
+		public final long requestId;
+		public final UUID key;
+		public final long expectedDuration;
+		public final byte[] payload;
+
+		public Request(ByteBuffer frame)
+		{
+			this.opcode = frame.get();
+			this.requestId = frame.getLong();
+			this.key = new UUID(frame.getLong(), frame.getLong());
+			this.expectedDuration = frame.getLong();
+			this.payload = new byte[frame.remaining()];
+			frame.get(this.payload);
+		}
+	}
+
+	/**
+	 * decoded response, frame is the body after length field.
+	 */
+	public static class Response
+	{
+		public final long requestId;
+		public final byte status;
+		public final byte[] payload;
+
+		public Response(ByteBuffer frame)
+		{
+			this.requestId = frame.getLong();
+			this.status = frame.get();
+			this.payload = new byte[frame.remaining()];
+			frame.get(this.payload);
+		}
+	}
+}
@@ -6,12 +6,12 @@ import java.util.Map;
 public class Configuration
 {
 	int initialSize;
-	int capacity;
+	long capacity;
 	int cleanupInterval;
 	int candlePoolSize;
 	Map<String, FlowKeyConfiguration> flowKeyConfig = new HashMap<>();
 
-	public Configuration(int capacity, 
+	public Configuration(long capacity, 
 							int initialSize, 
 							int cleanupInterval,
 							int candlePoolSize,
@@ -28,7 +28,7 @@ public class Configuration
 		return initialSize;
 	}
 
-	public int getCapacity() {
+	public long getCapacity() {
 		return capacity;
 	}
 
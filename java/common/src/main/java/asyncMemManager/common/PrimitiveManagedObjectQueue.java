@@ -0,0 +1,206 @@
+package asyncMemManager.common;
+
+import java.util.Arrays;
+
+import asyncMemManager.common.di.IndexableQueuedObject;
+
+/**
+ * d-ary min heap keyed by primitive long priority, variant of {@link ManagedObjectQueue}.
+ * priorities kept in a long[] alongside element slots, so sifting compares array values without touching elements,
+ * and a wider node (4-ary by default) makes the heap shallower.
+ * grows by bulk copy, shrinks back when mostly empty after a burst.
+ * not thread-safe, expected to be owned by one thread (or guarded by caller).
+ */
+public class PrimitiveManagedObjectQueue<T extends IndexableQueuedObject> {
+
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+	private static final int MAX_POLL_CANDIDATE_CHECK_RANGE = 5;
+	public static final int DEFAULT_ARITY = 4;
+
+	private final int arity;
+	private final int minCapacity;
+	private long[] priorities;
+	private Object[] elements;
+	private int size = 0;
+
+	public PrimitiveManagedObjectQueue(int initSize) {
+		this(initSize, DEFAULT_ARITY);
+	}
+
+	/**
+	 * @param initSize initial capacity, heap never shrinks below it
+	 * @param arity children per node, at least 2
+	 */
+	public PrimitiveManagedObjectQueue(int initSize, int arity) {
+		if (arity < 2) {
+			throw new IllegalArgumentException("arity must be at least 2");
+		}
+		this.arity = arity;
+		this.minCapacity = Math.max(1, initSize);
+		this.priorities = new long[this.minCapacity];
+		this.elements = new Object[this.minCapacity];
+	}
+
+	/**
+	 * add element, lower priority comes first.
+	 */
+	public boolean add(T e, long priority) {
+		if (e == null)
+			throw new NullPointerException();
+		int i = this.size;
+		if (i >= this.elements.length)
+			this.resize(this.grownCapacity(i + 1));
+		this.size = i + 1;
+		this.siftUp(i, e, priority);
+		return true;
+	}
+
+	public T getAndRemoveAt(int i) {
+		if (i < 0 || i >= this.size)
+		{
+			return null;
+		}
+
+		T removed = this.elementAt(i);
+		int s = --this.size;
+		if (s != i)
+		{
+			T moved = this.elementAt(s);
+			long movedPriority = this.priorities[s];
+			this.elements[s] = null;
+			this.place(i, moved, movedPriority);
+		} else {
+			this.elements[s] = null;
+		}
+		removed.setIndexInQueue(-1);
+
+		// after burst, give memory back once only a quarter is used
+		int capacity = this.elements.length;
+		if (capacity > this.minCapacity && this.size < capacity >>> 2)
+		{
+			this.resize(Math.max(this.minCapacity, capacity >>> 1));
+		}
+		return removed;
+	}
+
+	/**
+	 * change priority of element at index, moved up or down accordingly.
+	 */
+	public void updatePriorityAt(int i, long priority) {
+		this.place(i, this.elementAt(i), priority);
+	}
+
+	public T getAt(int i)
+	{
+		return i < this.size ? this.elementAt(i) : null;
+	}
+
+	public long getPriorityAt(int i)
+	{
+		return this.priorities[i];
+	}
+
+	public T getPollCandidate() {
+		for (int i = 0; i < MAX_POLL_CANDIDATE_CHECK_RANGE && i < this.size; i++)
+		{
+			T o = this.elementAt(i);
+			if (o.isPeekable()) {
+				return o;
+			}
+		}
+		return null;
+	}
+
+	public int getSize()
+	{
+		return this.size;
+	}
+
+	public int getCapacity()
+	{
+		return this.elements.length;
+	}
+
+	/**
+	 * put element at index or wherever its priority leads from there.
+	 */
+	private void place(int k, T x, long priority) {
+		if (k > 0 && priority < this.priorities[(k - 1) / this.arity])
+		{
+			this.siftUp(k, x, priority);
+		} else {
+			this.siftDown(k, x, priority);
+		}
+	}
+
+	private void siftUp(int k, T x, long priority) {
+		long[] p = this.priorities;
+		Object[] es = this.elements;
+		while (k > 0) {
+			int parent = (k - 1) / this.arity;
+			if (priority >= p[parent])
+				break;
+			this.set(k, es[parent], p[parent]);
+			k = parent;
+		}
+		this.set(k, x, priority);
+	}
+
+	private void siftDown(int k, T x, long priority) {
+		long[] p = this.priorities;
+		Object[] es = this.elements;
+		int n = this.size;
+		while (true) {
+			int first = k * this.arity + 1;
+			if (first >= n || first < 0)
+				break;
+			int end = Math.min(first + this.arity, n);
+			int child = first;
+			long childPriority = p[first];
+			for (int c = first + 1; c < end; c++) {
+				if (p[c] < childPriority) {
+					child = c;
+					childPriority = p[c];
+				}
+			}
+			if (priority <= childPriority)
+				break;
+			this.set(k, es[child], childPriority);
+			k = child;
+		}
+		this.set(k, x, priority);
+	}
+
+	private void set(int idx, Object value, long priority)
+	{
+		this.elements[idx] = value;
+		this.priorities[idx] = priority;
+		((IndexableQueuedObject)value).setIndexInQueue(idx);
+	}
+
+	@SuppressWarnings("unchecked")
+	private T elementAt(int i)
+	{
+		return (T)this.elements[i];
+	}
+
+	private int grownCapacity(int minCapacity) {
+		int oldCapacity = this.elements.length;
+		// Double size if small; else grow by 50%
+		int newCapacity = oldCapacity
+				+ ((oldCapacity < 64) ? (oldCapacity + 2) : (oldCapacity >> 1));
+		// overflow-conscious code
+		if (newCapacity - MAX_ARRAY_SIZE > 0) {
+			if (minCapacity < 0) // overflow
+				throw new OutOfMemoryError();
+			newCapacity = (minCapacity > MAX_ARRAY_SIZE) ? Integer.MAX_VALUE : MAX_ARRAY_SIZE;
+		}
+		return newCapacity;
+	}
+
+	private void resize(int capacity)
+	{
+		this.elements = Arrays.copyOf(this.elements, capacity);
+		this.priorities = Arrays.copyOf(this.priorities, capacity);
+	}
+}
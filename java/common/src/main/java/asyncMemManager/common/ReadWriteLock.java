@@ -1,7 +1,12 @@
 package asyncMemManager.common;
 
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * key lock for read/write.
+ * waiters park on the object's {@link Locker} until lock state changes, no monitor held nor spinning,
+ * so virtual threads unmount while waiting.
  */
 public class ReadWriteLock<T extends ReadWriteLock.ReadWriteLockableObject> implements AutoCloseable {
 	protected volatile boolean unlocked = false;
@@ -13,17 +18,15 @@ public class ReadWriteLock<T extends ReadWriteLock.ReadWriteLockableObject> impl
 		this.object = obj;
 		this.lockFactor = lockFactor;
 		
-		while (true) {
-			if (this.lockable()) {
-				synchronized (this.object.getLockerKey()) {
-					if (this.lockable()) {
-						this.object.addLockFactor(this.lockFactor);
-						return;
-					}
-				}
+		Locker locker = this.object.getLocker();
+		locker.lock.lock();
+		try {
+			while (!this.lockable()) {
+				locker.changed.awaitUninterruptibly();
 			}
-
-			Thread.yield();
+			this.object.addLockFactor(this.lockFactor);
+		} finally {
+			locker.lock.unlock();
 		}
 	}
 
@@ -58,8 +61,13 @@ public class ReadWriteLock<T extends ReadWriteLock.ReadWriteLockableObject> impl
 			this.updownLock.unlock();
 		} else {
 			if (!this.unlocked) {
-				synchronized (this.object.getLockerKey()) {
+				Locker locker = this.object.getLocker();
+				locker.lock.lock();
+				try {
 					this.unlockWhenSynced();
+					locker.changed.signalAll();
+				} finally {
+					locker.lock.unlock();
 				}
 			}
 		}
@@ -73,22 +81,24 @@ public class ReadWriteLock<T extends ReadWriteLock.ReadWriteLockableObject> impl
 		
 		if (this.lockFactor == 2) {	
 			ReadWriteLock<T> replaceLock = new ReadWriteLock<>();
-			boolean upgraded = false;
-			while (!upgraded) {
-				synchronized (this.object.getLockerKey()) {
-					if ((this.object.getLockFactor() & 1) == 0) {
-						replaceLock.initUpdownLock(this.object, 1);
-						this.unlockWhenSynced();
-						upgraded = true;						
-					}else {
-						this.unlockWhenSynced();
-					}
+			Locker locker = this.object.getLocker();
+			locker.lock.lock();
+			try {
+				// give up read while other writer pending, let it finish.
+				while ((this.object.getLockFactor() & 1) != 0) {
+					this.unlockWhenSynced();
+					locker.changed.signalAll();
+					locker.changed.awaitUninterruptibly();
 				}
-				Thread.yield();
-			}
-
-			while (this.object.getLockFactor() > 1) {
-				Thread.yield();
+				replaceLock.initUpdownLock(this.object, 1);
+				this.unlockWhenSynced();
+				
+				// wait for other readers leaving.
+				while (this.object.getLockFactor() > 1) {
+					locker.changed.awaitUninterruptibly();
+				}
+			} finally {
+				locker.lock.unlock();
 			}
 			
 			return this.updownLock = replaceLock;			
@@ -105,8 +115,15 @@ public class ReadWriteLock<T extends ReadWriteLock.ReadWriteLockableObject> impl
 		
 		if (this.lockFactor == 1) {			
 			ReadWriteLock<T> replaceLock = new ReadWriteLock<>();
-			replaceLock.initUpdownLock(this.object, 2);
-			this.unlock();
+			Locker locker = this.object.getLocker();
+			locker.lock.lock();
+			try {
+				replaceLock.initUpdownLock(this.object, 2);
+				this.unlockWhenSynced();
+				locker.changed.signalAll();
+			} finally {
+				locker.lock.unlock();
+			}
 			return this.updownLock = replaceLock;
 		} else {
 			return this;
@@ -127,7 +144,15 @@ public class ReadWriteLock<T extends ReadWriteLock.ReadWriteLockableObject> impl
 
 		void addLockFactor(int lockfactor);
 
-		Object getLockerKey();
+		Locker getLocker();
+	}
+	
+	/**
+	 * guards lock state of one object, waiters parked on its condition.
+	 */
+	public static class Locker {
+		final ReentrantLock lock = new ReentrantLock();
+		final Condition changed = this.lock.newCondition();
 	}
 
 	/**
@@ -0,0 +1,96 @@
+package asyneMemManager.clientDemo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import asyncMemManager.client.AvgWaitTimeCalculator;
+import asyncMemManager.client.di.*;
+import asyneMemManager.clientDemo.model.ChunkedEntity;
+import asyneMemManager.clientDemo.model.TestEntity;
+
+/**
+ * flows mostly touching small header of large entities: whole-object eviction ({@link TestEntity})
+ * vs large property as managed chunk ({@link ChunkedEntity}), header kept resident.
+ * args: [flows=2000] [percent of flows touching large part=10]
+ */
+public class ChunkDemoApp {
+
+	public static void main(String[] args) throws Exception {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		int largePercent = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+		run("whole-object", n, largePercent, false);
+		run("chunked", n, largePercent, true);
+	}
+
+	private static void run(String name, int n, int largePercent, boolean chunked) throws Exception
+	{
+		InMemoryPersistence persistence = new InMemoryPersistence();
+		asyncMemManager.common.Configuration config = new asyncMemManager.common.Configuration(50 * TestEntity.LARGE_PROPERTY_SIZE, 100, 3600, 4, new HashMap<>());
+		asyncMemManager.client.AsyncMemManager memManager = new asyncMemManager.client.AsyncMemManager(config, new AvgWaitTimeCalculator(50), persistence);
+		ExecutorService executor = Executors.newFixedThreadPool(20);
+
+		List<CompletableFuture<Void>> tasks = new ArrayList<>();
+		long start = System.nanoTime();
+		for (int i = 0; i < n; i++)
+		{
+			final boolean touchLarge = new Random().nextInt(100) < largePercent;
+			if (chunked)
+			{
+				AsyncMemManager.SetupObject<ChunkedEntity> setup = ChunkedEntity.manageLargeObject(memManager, "ChunkFlow");
+				AsyncMemManager.AsyncObject<ChunkedEntity> e = setup.asyncObject();
+				setup.close();
+				tasks.add(CompletableFuture.runAsync(() -> {
+					ThreadSleep(50 + new Random().nextInt(50));
+					e.apply((o) -> {
+						o.getHeader();
+						if (touchLarge) {
+							o.getFirstLarge();
+						}
+					});
+					CloseObject(e);
+				}, executor));
+			} else {
+				AsyncMemManager.SetupObject<TestEntity> setup = memManager.manage("WholeFlow", TestEntity.initLargeObject(), TestEntity.TestEntityAsyncMemSerializer.Instance);
+				AsyncMemManager.AsyncObject<TestEntity> e = setup.asyncObject();
+				setup.close();
+				tasks.add(CompletableFuture.runAsync(() -> {
+					ThreadSleep(50 + new Random().nextInt(50));
+					e.apply((o) -> o.hashCode()); // header access still restores whole object
+					CloseObject(e);
+				}, executor));
+			}
+		}
+
+		CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+		long elapsed = System.nanoTime() - start;
+		executor.shutdown();
+		System.out.println(String.format("%s flows:%d elapsed:%dms stored:%dB retrieved:%dB %s",
+							name, n, elapsed / 1000000, persistence.getBytesStored(), persistence.getBytesRetrieved(), memManager.debugInfo()));
+		memManager.close();
+	}
+
+	private static void ThreadSleep(long mi) {
+		try {
+			Thread.sleep(mi);
+		} catch (InterruptedException ex) {
+			// TODO Auto-generated catch block
+			ex.printStackTrace();
+		}
+	}
+
+	private static void CloseObject(AutoCloseable e)
+	{
+		try {
+			e.close();
+		} catch (Exception e1) {
+			// TODO Auto-generated catch block
+			e1.printStackTrace();
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package asyneMemManager.clientDemo;
 
+import java.io.IOException;
 import java.io.InvalidObjectException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -10,7 +11,9 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+import asyncMemManager.client.AccessTraceRecorder;
 import asyncMemManager.client.AvgWaitTimeCalculator;
+import asyncMemManager.client.ManagedStages;
 import asyncMemManager.client.MemCacheServerPersistence;
 import asyncMemManager.client.di.*;
 import asyneMemManager.clientDemo.model.TestEntity;
@@ -33,6 +36,20 @@ public class DemoApp {
 		HotTimeCalculator hotTimeCalculator = new AvgWaitTimeCalculator(500);
 		AsyncMemManager memManager = new asyncMemManager.client.AsyncMemManager(config, hotTimeCalculator, memCachePersistence);
 		
+		// -DtraceFile=<path> records accesses for offline replay by TraceReplaySimulator
+		AccessTraceRecorder traceRecorder = null;
+		String traceFile = System.getProperty("traceFile");
+		if (traceFile != null)
+		{
+			try {
+				traceRecorder = new AccessTraceRecorder(traceFile);
+				((asyncMemManager.client.AsyncMemManager)memManager).setTraceRecorder(traceRecorder);
+			} catch (IOException e) {
+				// TODO Auto-generated catch block
+				e.printStackTrace();
+			}
+		}
+		
 		DemoApiClient demoApiClient = new DemoApiClient("http://localhost:8080/");
 		
 		List<CompletableFuture<Void>> tasks = new ArrayList<>();
@@ -40,31 +57,26 @@ public class DemoApp {
 		for (int i=0; i<n; i++)
 		{			
 			final AsyncMemManager.SetupObject<TestEntity> setupEntity = memManager.manage("DemoFlow", TestEntity.initLargeObject(), TestEntity.TestEntityAsyncMemSerializer.Instance);
-			final AsyncMemManager.AsyncObject<TestEntity> e12 = setupEntity.asyncObject();
-			final AsyncMemManager.AsyncObject<TestEntity> e3 = setupEntity.asyncObject();
 			final int idx = i;
 			
 			CompletableFuture<String> t = CompletableFuture.supplyAsync(() -> demoApiClient.doSomeThing(), requestExecutor);
 			
+			// async object taken here, closed once continuation ran
 			tasks.add(
-				t.thenAcceptAsync((s)->{					
-					CloseAsyncObject(e12); // close as this is last e12 access
-					
-					e12.apply((o) ->{ System.out.println(s + " Then 2nd Async "+ idx +" "+ getSomeText(o)); });
-					
+				ManagedStages.thenApplyManagedAsync(t, setupEntity, (s, o) -> s + " Then 2nd Async "+ idx +" "+ getSomeText(o), executor)
+				.thenAccept((s)->{
+					System.out.println(s);
 					System.out.println(memManager.debugInfo());					
 					ThreadSleep(100 + new Random().nextInt(50));
-				}, executor));
+				}));
 			
-			tasks.add(t.thenAcceptAsync((s)->{				
-					CloseAsyncObject(e3); // close as this is last e3 access
-					
-					System.out.println(s + " Then 3rd Async "+ idx +" "+ e3.supply((o)-> getSomeText(o)));
-					
+			tasks.add(
+				ManagedStages.thenApplyManagedAsync(t, setupEntity, (s, o) -> s + " Then 3rd Async "+ idx +" "+ getSomeText(o), executor)
+				.thenAccept((s)->{
+					System.out.println(s);
 					System.out.println(memManager.debugInfo());
-					
 					ThreadSleep(150 + new Random().nextInt(50));
-				}, executor));
+				}));
 			
 			tasks.add(DoSomethingOther(demoApiClient, requestExecutor, otherExecutor, setupEntity, idx)
 					.whenComplete((r,e) -> {
@@ -86,6 +98,11 @@ public class DemoApp {
 		
 		try {
 			memManager.close();
+			if (traceRecorder != null)
+			{
+				traceRecorder.close();
+				System.out.println("Trace events:" + traceRecorder.getEventCount() + " dropped:" + traceRecorder.getDroppedCount());
+			}
 		} catch (Exception e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
@@ -101,16 +118,6 @@ public class DemoApp {
 		}
 	}
 	
-	private static void CloseAsyncObject(AsyncMemManager.AsyncObject<TestEntity> e)
-	{
-		try {
-			e.close();
-		} catch (Exception e1) {
-			// TODO Auto-generated catch block
-			e1.printStackTrace();
-		}
-	}
-	
 	private static void CloseSetupObject(AsyncMemManager.SetupObject<TestEntity> e)
 	{
 		try {
@@ -134,17 +141,12 @@ public class DemoApp {
 	
 	private static CompletableFuture<Void> DoSomethingOther(DemoApiClient demoApiClient,ExecutorService requestExecutor, ExecutorService otherExecutor, AsyncMemManager.SetupObject<TestEntity> setupEntity, int idx)
 	{
-		final AsyncMemManager.AsyncObject<TestEntity> e = setupEntity.asyncObject();
-
+		CompletableFuture<String> other = CompletableFuture.supplyAsync(() -> demoApiClient.doSomeOtherThing(), requestExecutor);
 		
-		return CompletableFuture.supplyAsync(() -> demoApiClient.doSomeOtherThing(), requestExecutor)
-		.thenAcceptAsync((s)->{					
-				CloseAsyncObject(e);// close as this is last access
-				
-				e.apply((o) ->{
-					System.out.println(s + " Then 2nd Other "+ idx +" "+ getSomeText(o));
-				});
+		return ManagedStages.thenApplyManagedAsync(other, setupEntity, (s, o) -> s + " Then 2nd Other "+ idx +" "+ getSomeText(o), otherExecutor)
+			.thenAccept((s)->{
+				System.out.println(s);
 				ThreadSleep(100 + new Random().nextInt(50));
-			}, otherExecutor);
+			});
 	}
 }
@@ -0,0 +1,46 @@
+package asyneMemManager.clientDemo;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import asyncMemManager.client.di.Persistence;
+
+/**
+ * keeps persisted objects in process, so demos run without caching server.
+ */
+public class InMemoryPersistence implements Persistence {
+	private final Map<UUID, String> store = new ConcurrentHashMap<>();
+	private final AtomicLong bytesStored = new AtomicLong();
+	private final AtomicLong bytesRetrieved = new AtomicLong();
+
+	@Override
+	public void store(UUID key, String data, long expectedDuration) {
+		this.store.put(key, data);
+		this.bytesStored.addAndGet(data.length());
+	}
+
+	@Override
+	public String retrieve(UUID key) {
+		String data = this.store.get(key);
+		if (data != null)
+		{
+			this.bytesRetrieved.addAndGet(data.length());
+		}
+		return data;
+	}
+
+	@Override
+	public void remove(UUID key) {
+		this.store.remove(key);
+	}
+
+	public long getBytesStored() {
+		return this.bytesStored.get();
+	}
+
+	public long getBytesRetrieved() {
+		return this.bytesRetrieved.get();
+	}
+}
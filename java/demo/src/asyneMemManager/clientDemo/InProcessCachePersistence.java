@@ -0,0 +1,39 @@
+package asyneMemManager.clientDemo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import asyncCaching.server.AsyncMemCache;
+import asyncMemManager.client.di.Persistence;
+
+/**
+ * stand-in for caching server: client persistence calling AsyncMemCache in same process,
+ * same payload encoding as over the wire.
+ */
+public class InProcessCachePersistence implements Persistence {
+	private final AsyncMemCache asyncMemCache;
+
+	public InProcessCachePersistence(AsyncMemCache asyncMemCache) {
+		this.asyncMemCache = asyncMemCache;
+	}
+
+	@Override
+	public void store(UUID key, String data, long expectedDuration) {
+		this.asyncMemCache.cache(key, data.getBytes(StandardCharsets.UTF_8), expectedDuration);
+	}
+
+	@Override
+	public String retrieve(UUID key) {
+		byte[] data = this.asyncMemCache.retrieve(key).join();
+		return data == null ? null : new String(data, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public void remove(UUID key) {
+		this.asyncMemCache.remove(key).join();
+	}
+
+	public AsyncMemCache getAsyncMemCache() {
+		return this.asyncMemCache;
+	}
+}
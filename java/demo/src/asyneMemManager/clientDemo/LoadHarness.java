@@ -0,0 +1,421 @@
+package asyneMemManager.clientDemo;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import asyncCaching.server.AsyncMemCache;
+import asyncCaching.server.SegmentLogPersistence;
+import asyncMemManager.client.AvgWaitTimeCalculator;
+import asyncMemManager.client.BinaryProtocolPersistence;
+import asyncMemManager.client.BinarySerialization;
+import asyncMemManager.client.MemCacheServerPersistence;
+import asyncMemManager.client.di.*;
+
+/**
+ * workload harness: each flow manages an object, takes fan-out async objects, each accessed after a random delay
+ * (standing for remote calls) then closed. runs against AsyncMemCache in process or real server,
+ * prints one JSON line: throughput, access latency percentiles, stores/restores, peak heap, GC.
+ * args as key=value, defaults:
+ * target=inprocess (inprocess|binary|rest) host=localhost port=8081 (rest 8080) connections=4
+ * flows=20000 size=10000 (chars, or min-max) fanout=2 accesses=1 (per async object, both at least 1)
+ * delay=exp:50 (ms: fixed:N | uniform:MIN:MAX | exp:MEAN) setupThreads=4 asyncThreads=16 inflight=2000
+ * capacity=50000000 candles=4 defaultWait=50 serverCapacity=256000000 (inprocess only)
+ */
+public class LoadHarness {
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = new HashMap<>();
+		for (String arg : args)
+		{
+			int eq = arg.indexOf('=');
+			if (eq > 0)
+			{
+				options.put(arg.substring(0, eq), arg.substring(eq + 1));
+			}
+		}
+
+		String target = options.getOrDefault("target", "inprocess");
+		int flows = Integer.parseInt(options.getOrDefault("flows", "20000"));
+		String[] size = options.getOrDefault("size", "10000").split("-");
+		int minSize = Integer.parseInt(size[0]);
+		int maxSize = size.length > 1 ? Integer.parseInt(size[1]) : minSize;
+		int fanout = Integer.parseInt(options.getOrDefault("fanout", "2"));
+		int accesses = Integer.parseInt(options.getOrDefault("accesses", "1"));
+		if (fanout < 1 || accesses < 1)
+		{
+			// a flow completes when its last async object closes, none would never complete
+			throw new IllegalArgumentException("fanout and accesses must be at least 1");
+		}
+		DelayDistribution delay = DelayDistribution.parse(options.getOrDefault("delay", "exp:50"));
+		int setupThreads = Integer.parseInt(options.getOrDefault("setupThreads", "4"));
+		int asyncThreads = Integer.parseInt(options.getOrDefault("asyncThreads", "16"));
+		int inflight = Integer.parseInt(options.getOrDefault("inflight", "2000"));
+		long capacity = Long.parseLong(options.getOrDefault("capacity", "50000000"));
+		int candles = Integer.parseInt(options.getOrDefault("candles", "4"));
+		long defaultWait = Long.parseLong(options.getOrDefault("defaultWait", "50"));
+
+		Persistence persistence;
+		switch (target)
+		{
+		case "binary":
+			persistence = new BinaryProtocolPersistence(options.getOrDefault("host", "localhost"),
+														Integer.parseInt(options.getOrDefault("port", "8081")),
+														Integer.parseInt(options.getOrDefault("connections", "4")));
+			break;
+		case "rest":
+			persistence = new MemCacheServerPersistence("http://" + options.getOrDefault("host", "localhost") + ":" + options.getOrDefault("port", "8080") + "/");
+			break;
+		default:
+			long serverCapacity = Long.parseLong(options.getOrDefault("serverCapacity", "256000000"));
+			String folder = Files.createTempDirectory("load-harness").toString() + "/";
+			SegmentLogPersistence serverPersistence = new SegmentLogPersistence(folder, 64L * 1024 * 1024, 0.3, 3600);
+			asyncMemManager.common.Configuration serverConfig = new asyncMemManager.common.Configuration(serverCapacity, 100, 3600, 4, new HashMap<>());
+			persistence = new InProcessCachePersistence(new AsyncMemCache(serverConfig, serverPersistence));
+			break;
+		}
+
+		CountingPersistence counting = new CountingPersistence(persistence);
+		asyncMemManager.common.Configuration config = new asyncMemManager.common.Configuration(capacity, 100, 3600, candles, new HashMap<>());
+		asyncMemManager.client.AsyncMemManager memManager = new asyncMemManager.client.AsyncMemManager(config, new AvgWaitTimeCalculator(defaultWait), counting);
+
+		ExecutorService setupExecutor = Executors.newFixedThreadPool(setupThreads);
+		ExecutorService asyncExecutor = Executors.newFixedThreadPool(asyncThreads);
+		ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+		Semaphore inflightFlows = new Semaphore(inflight);
+		CountDownLatch done = new CountDownLatch(flows);
+		long[] latencies = new long[flows * fanout * accesses];
+		AtomicInteger latencyCount = new AtomicInteger();
+		AtomicLong errors = new AtomicLong();
+		char[] template = randomText(maxSize);
+
+		resetPeakHeap();
+		long gcCountBefore = gcCount();
+		long gcMillisBefore = gcMillis();
+		long start = System.nanoTime();
+
+		for (int i = 0; i < flows; i++)
+		{
+			inflightFlows.acquire();
+			setupExecutor.execute(() -> {
+				int length = minSize == maxSize ? minSize : ThreadLocalRandom.current().nextInt(minSize, maxSize + 1);
+				Payload payload = new Payload(new String(template, 0, length));
+				AtomicInteger openAsyncs = new AtomicInteger(fanout);
+				Runnable flowDone = () -> {
+					if (openAsyncs.decrementAndGet() == 0)
+					{
+						inflightFlows.release();
+						done.countDown();
+					}
+				};
+
+				try {
+					AsyncMemManager.SetupObject<Payload> setup = memManager.manage("LoadFlow", payload, PayloadSerializer.Instance);
+					try {
+						for (int k = 0; k < fanout; k++)
+						{
+							Access access = new Access(setup.asyncObject(), length, accesses, flowDone);
+							access.schedule(timer, asyncExecutor, delay, latencies, latencyCount, errors);
+						}
+					} finally {
+						setup.close();
+					}
+				} catch (Exception e) {
+					errors.incrementAndGet();
+					e.printStackTrace();
+				}
+			});
+		}
+
+		done.await();
+		long elapsed = System.nanoTime() - start;
+		long gcCount = gcCount() - gcCountBefore;
+		long gcMillis = gcMillis() - gcMillisBefore;
+		long peakHeap = peakHeap();
+
+		int n = latencyCount.get();
+		long[] sorted = Arrays.copyOf(latencies, n);
+		Arrays.sort(sorted);
+
+		System.out.println(String.format("{\"target\":\"%s\",\"flows\":%d,\"fanout\":%d,\"accesses\":%d,\"size\":\"%d-%d\",\"delay\":\"%s\","
+											+ "\"elapsedMs\":%d,\"flowsPerSec\":%.1f,\"accessesPerSec\":%.1f,"
+											+ "\"latencyUs\":{\"p50\":%.1f,\"p99\":%.1f,\"p999\":%.1f,\"max\":%.1f},"
+											+ "\"stores\":%d,\"restores\":%d,\"bytesStored\":%d,\"bytesRestored\":%d,\"errors\":%d,"
+											+ "\"peakHeapBytes\":%d,\"gcCount\":%d,\"gcTimeMs\":%d}",
+											target, flows, fanout, accesses, minSize, maxSize, delay,
+											elapsed / 1000000, flows / (elapsed / 1e9), n / (elapsed / 1e9),
+											percentile(sorted, 0.5), percentile(sorted, 0.99), percentile(sorted, 0.999), percentile(sorted, 1),
+											counting.stores.get(), counting.restores.get(), counting.bytesStored.get(), counting.bytesRestored.get(), errors.get(),
+											peakHeap, gcCount, gcMillis));
+
+		timer.shutdown();
+		setupExecutor.shutdown();
+		asyncExecutor.shutdown();
+		memManager.close();
+		if (persistence instanceof AutoCloseable)
+		{
+			((AutoCloseable)persistence).close();
+		}
+		System.exit(0); // in-process cache executors are not daemon
+	}
+
+	/**
+	 * microseconds at given rank
+	 */
+	private static double percentile(long[] sorted, double rank)
+	{
+		if (sorted.length == 0)
+		{
+			return 0;
+		}
+		int idx = (int)Math.min(sorted.length - 1, Math.ceil(rank * sorted.length) - 1);
+		return sorted[Math.max(0, idx)] / 1000.0;
+	}
+
+	private static char[] randomText(int length)
+	{
+		Random random = new Random(42);
+		char[] text = new char[length];
+		for (int i = 0; i < length; i++)
+		{
+			text[i] = (char)('a' + random.nextInt(26));
+		}
+		return text;
+	}
+
+	private static void resetPeakHeap()
+	{
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+		{
+			if (pool.getType() == MemoryType.HEAP)
+			{
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	/**
+	 * sum of heap pools' peaks, upper bound of peak heap used
+	 */
+	private static long peakHeap()
+	{
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+		{
+			if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null)
+			{
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
+
+	private static long gcCount()
+	{
+		long count = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+		{
+			count += Math.max(0, gc.getCollectionCount());
+		}
+		return count;
+	}
+
+	private static long gcMillis()
+	{
+		long millis = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+		{
+			millis += Math.max(0, gc.getCollectionTime());
+		}
+		return millis;
+	}
+
+	/**
+	 * one async object of a flow: accessed given times, each after a delay, then closed.
+	 */
+	static class Access
+	{
+		final AsyncMemManager.AsyncObject<Payload> asyncObject;
+		final int expectedLength;
+		final Runnable onClosed;
+		int accessesLeft;
+
+		Access(AsyncMemManager.AsyncObject<Payload> asyncObject, int expectedLength, int accesses, Runnable onClosed)
+		{
+			this.asyncObject = asyncObject;
+			this.expectedLength = expectedLength;
+			this.accessesLeft = accesses;
+			this.onClosed = onClosed;
+		}
+
+		void schedule(ScheduledExecutorService timer, ExecutorService asyncExecutor, DelayDistribution delay,
+						long[] latencies, AtomicInteger latencyCount, AtomicLong errors)
+		{
+			timer.schedule(() -> asyncExecutor.execute(() -> {
+				long t0 = System.nanoTime();
+				try {
+					int length = this.asyncObject.supply((o) -> o.text.length());
+					if (length != this.expectedLength)
+					{
+						errors.incrementAndGet();
+					}
+				} catch (Exception e) {
+					errors.incrementAndGet();
+				}
+				latencies[latencyCount.getAndIncrement()] = System.nanoTime() - t0;
+
+				if (--this.accessesLeft > 0)
+				{
+					this.schedule(timer, asyncExecutor, delay, latencies, latencyCount, errors);
+				}else {
+					try {
+						this.asyncObject.close();
+					} catch (Exception e) {
+						errors.incrementAndGet();
+					}
+					this.onClosed.run();
+				}
+			}), delay.nextMicros(), TimeUnit.MICROSECONDS);
+		}
+	}
+
+	/**
+	 * delay before each access, ms: fixed:N, uniform:MIN:MAX, exp:MEAN
+	 */
+	static class DelayDistribution
+	{
+		final String kind;
+		final double a;
+		final double b;
+
+		DelayDistribution(String kind, double a, double b)
+		{
+			this.kind = kind;
+			this.a = a;
+			this.b = b;
+		}
+
+		static DelayDistribution parse(String spec)
+		{
+			String[] parts = spec.split(":");
+			double a = parts.length > 1 ? Double.parseDouble(parts[1]) : 0;
+			double b = parts.length > 2 ? Double.parseDouble(parts[2]) : a;
+			if (!parts[0].equals("fixed") && !parts[0].equals("uniform") && !parts[0].equals("exp"))
+			{
+				throw new IllegalArgumentException("unknown delay distribution " + spec);
+			}
+			return new DelayDistribution(parts[0], a, b);
+		}
+
+		long nextMicros()
+		{
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			double millis;
+			switch (this.kind)
+			{
+			case "uniform":
+				millis = this.a + random.nextDouble() * (this.b - this.a);
+				break;
+			case "exp":
+				millis = -this.a * Math.log(1 - random.nextDouble());
+				break;
+			default:
+				millis = this.a;
+				break;
+			}
+			return (long)(millis * 1000);
+		}
+
+		@Override
+		public String toString()
+		{
+			return this.kind + ":" + this.a + (this.kind.equals("uniform") ? ":" + this.b : "");
+		}
+	}
+
+	static class Payload
+	{
+		final String text;
+
+		Payload(String text)
+		{
+			this.text = text;
+		}
+	}
+
+	static class PayloadSerializer implements AsyncMemSerializer<Payload>
+	{
+		static final PayloadSerializer Instance = new PayloadSerializer();
+
+		@Override
+		public String serialize(Payload object) {
+			return object.text;
+		}
+
+		@Override
+		public Payload deserialize(String data) {
+			return new Payload(data);
+		}
+
+		@Override
+		public long estimateObjectSize(Payload object) {
+			return BinarySerialization.shallow(BinarySerialization.REFERENCE) + BinarySerialization.string(object.text);
+		}
+	}
+
+	/**
+	 * counts stores and restores passing to target persistence.
+	 */
+	static class CountingPersistence implements Persistence
+	{
+		final Persistence target;
+		final AtomicLong stores = new AtomicLong();
+		final AtomicLong restores = new AtomicLong();
+		final AtomicLong bytesStored = new AtomicLong();
+		final AtomicLong bytesRestored = new AtomicLong();
+
+		CountingPersistence(Persistence target)
+		{
+			this.target = target;
+		}
+
+		@Override
+		public void store(UUID key, String data, long expectedDuration) {
+			this.target.store(key, data, expectedDuration);
+			this.stores.incrementAndGet();
+			this.bytesStored.addAndGet(data.length());
+		}
+
+		@Override
+		public String retrieve(UUID key) {
+			String data = this.target.retrieve(key);
+			if (data != null)
+			{
+				this.restores.incrementAndGet();
+				this.bytesRestored.addAndGet(data.length());
+			}
+			return data;
+		}
+
+		@Override
+		public void remove(UUID key) {
+			this.target.remove(key);
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package asyneMemManager.clientDemo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.LongSupplier;
+
+import asyncMemManager.client.BinaryProtocolPersistence;
+import asyncMemManager.client.MemCacheServerPersistence;
+import asyncMemManager.client.di.Persistence;
+import asyneMemManager.clientDemo.model.TestEntity;
+
+/**
+ * compare REST vs binary protocol persistence: per-op latency and bytes on wire.
+ * require running asyncMemManager.server (REST on 8080, binary on 8081).
+ */
+public class PersistenceBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		String payload = TestEntity.TestEntityAsyncMemSerializer.Instance.serialize(TestEntity.initLargeObject());
+
+		MemCacheServerPersistence rest = new MemCacheServerPersistence("http://localhost:8080/");
+		BinaryProtocolPersistence binary = new BinaryProtocolPersistence("localhost", 8081, 4);
+
+		// warm up connections, JIT
+		run("warmup-rest", rest, payload, n / 10, threads, rest::getBytesSent, rest::getBytesReceived);
+		run("warmup-binary", binary, payload, n / 10, threads, binary::getBytesSent, binary::getBytesReceived);
+
+		run("rest", rest, payload, n, threads, rest::getBytesSent, rest::getBytesReceived);
+		run("binary", binary, payload, n, threads, binary::getBytesSent, binary::getBytesReceived);
+
+		binary.close();
+	}
+
+	private static void run(String name, Persistence persistence, String payload, int n, int threads,
+							LongSupplier bytesSent, LongSupplier bytesReceived)
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		long sentBefore = bytesSent.getAsLong();
+		long receivedBefore = bytesReceived.getAsLong();
+
+		List<CompletableFuture<long[]>> tasks = new ArrayList<>();
+		long start = System.nanoTime();
+		for (int i = 0; i < n; i++)
+		{
+			tasks.add(CompletableFuture.supplyAsync(() -> {
+				UUID key = UUID.randomUUID();
+				long t0 = System.nanoTime();
+				persistence.store(key, payload, 1000);
+				long t1 = System.nanoTime();
+				persistence.retrieve(key);
+				long t2 = System.nanoTime();
+				return new long[] {t1 - t0, t2 - t1};
+			}, executor));
+		}
+
+		long storeNanos = 0, retrieveNanos = 0;
+		for (CompletableFuture<long[]> t : tasks)
+		{
+			long[] r = t.join();
+			storeNanos += r[0];
+			retrieveNanos += r[1];
+		}
+		long elapsed = System.nanoTime() - start;
+		executor.shutdown();
+
+		long sent = bytesSent.getAsLong() - sentBefore;
+		long received = bytesReceived.getAsLong() - receivedBefore;
+		System.out.println(String.format("%s ops:%d store avg:%.1fus retrieve avg:%.1fus throughput:%.0f ops/s sent:%d B/op received:%d B/op",
+							name, n, storeNanos / 1000.0 / n, retrieveNanos / 1000.0 / n,
+							2.0 * n / (elapsed / 1e9), sent / n, received / n));
+	}
+}
@@ -0,0 +1,83 @@
+package asyneMemManager.clientDemo;
+
+import java.io.InvalidObjectException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import asyncMemManager.client.AvgWaitTimeCalculator;
+import asyncMemManager.client.di.*;
+import asyneMemManager.clientDemo.model.TestEntity;
+
+/**
+ * evict / restore churn of TestEntity with plain vs recycling serializer:
+ * bytes allocated and time per access, reuse rate. single thread, allocation read from ThreadMXBean.
+ * args: [objects=200] [resident objects=20] [rounds=50]
+ */
+public class RecyclingBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		int resident = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+
+		for (int i = 0; i < 2; i++) // first pass warms up JIT
+		{
+			boolean report = i == 1;
+			run("plain", TestEntity.TestEntityAsyncMemSerializer.Instance, n, resident, rounds, report);
+			run("recycling", TestEntity.RecyclingTestEntityAsyncMemSerializer.Instance, n, resident, rounds, report);
+		}
+	}
+
+	private static void run(String name, AsyncMemSerializer<TestEntity> serializer, int n, int resident, int rounds, boolean report) throws Exception
+	{
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		long capacity = (long)resident * (TestEntity.LARGE_PROPERTY_SIZE + 20);
+		asyncMemManager.common.Configuration config = new asyncMemManager.common.Configuration(capacity, 100, 3600, 1, new HashMap<>());
+		asyncMemManager.client.AsyncMemManager memManager = new asyncMemManager.client.AsyncMemManager(config, new AvgWaitTimeCalculator(100), new InMemoryPersistence());
+
+		List<AsyncMemManager.AsyncObject<TestEntity>> objects = new ArrayList<>(n);
+		for (int i = 0; i < n; i++)
+		{
+			AsyncMemManager.SetupObject<TestEntity> setup = memManager.manage("RecyclingFlow", TestEntity.initLargeObject(), serializer);
+			objects.add(setup.asyncObject());
+			setup.close();
+		}
+
+		long threadId = Thread.currentThread().getId();
+		long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+		long start = System.nanoTime();
+		long checksum = 0;
+		for (int r = 0; r < rounds; r++)
+		{
+			for (AsyncMemManager.AsyncObject<TestEntity> o : objects)
+			{
+				checksum += o.supply((e) -> getSomeText(e).length());
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+		long accesses = (long)n * rounds;
+
+		if (report) {
+			System.out.println(String.format("%-10s allocated=%8d B/access  time=%7.1f us/access  (checksum %d) %s",
+												name, allocated / accesses, elapsed / 1000.0 / accesses, checksum, memManager.debugInfo()));
+		}
+
+		for (AsyncMemManager.AsyncObject<TestEntity> o : objects)
+		{
+			o.close();
+		}
+		memManager.close();
+	}
+
+	private static String getSomeText(TestEntity o)
+	{
+		try {
+			return o.getSomeText();
+		} catch (InvalidObjectException e) {
+			return "";
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package asyneMemManager.clientDemo;
+
+import java.util.List;
+import java.util.ArrayList;
+
+import asyncMemManager.client.di.AsyncMemSerializer;
+import asyneMemManager.clientDemo.model.SampleOrder;
+import asyneMemManager.clientDemo.model.SampleOrderBinarySerializer;
+
+/**
+ * hand-written text serializer vs generated binary serializer of same type:
+ * serialize / deserialize time, serialized size, size estimate.
+ * args: [objects=10000] [lines per object=20] [rounds=5]
+ */
+public class SerializerBenchmark {
+
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int lines = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+		List<SampleOrder> orders = new ArrayList<>(n);
+		for (int i = 0; i < n; i++)
+		{
+			orders.add(SampleOrder.init(lines, lines * 10));
+		}
+
+		for (int round = 1; round <= rounds; round++)
+		{
+			boolean report = round == rounds; // earlier rounds warm up JIT
+			run("hand-written", SampleOrder.SampleOrderAsyncMemSerializer.Instance, orders, report);
+			run("generated-binary", SampleOrderBinarySerializer.Instance, orders, report);
+		}
+	}
+
+	private static void run(String name, AsyncMemSerializer<SampleOrder> serializer, List<SampleOrder> orders, boolean report)
+	{
+		int n = orders.size();
+		String[] data = new String[n];
+		long bytes = 0;
+		long estimated = 0;
+
+		long t0 = System.nanoTime();
+		for (int i = 0; i < n; i++)
+		{
+			data[i] = serializer.serialize(orders.get(i));
+		}
+		long t1 = System.nanoTime();
+		int mismatch = 0;
+		for (int i = 0; i < n; i++)
+		{
+			if (!serializer.deserialize(data[i]).sameAs(orders.get(i)))
+			{
+				mismatch++;
+			}
+		}
+		long t2 = System.nanoTime();
+		for (int i = 0; i < n; i++)
+		{
+			estimated += serializer.estimateObjectSize(orders.get(i));
+		}
+		long t3 = System.nanoTime();
+		for (String d : data)
+		{
+			bytes += d.length();
+		}
+
+		if (report) {
+			System.out.println(String.format("%-18s serialize=%8.1f ns/op  deserialize=%8.1f ns/op  estimate=%6.1f ns/op  size=%6d chars/op  estimated=%6d B/op  mismatch=%d",
+												name, (t1 - t0) / (double)n, (t2 - t1) / (double)n, (t3 - t2) / (double)n,
+												bytes / n, estimated / n, mismatch));
+		}
+	}
+}
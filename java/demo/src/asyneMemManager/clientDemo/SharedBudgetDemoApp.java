@@ -0,0 +1,106 @@
+package asyneMemManager.clientDemo;
+
+import java.io.InvalidObjectException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import asyncMemManager.client.AvgWaitTimeCalculator;
+import asyncMemManager.client.SharedMemoryBudget;
+import asyncMemManager.client.di.*;
+import asyneMemManager.clientDemo.model.TestEntity;
+
+/**
+ * two managers (one per domain) sharing one memory budget, orders weighted over reports.
+ * each manager alone may use the whole budget, together they stay within it
+ * and reports' entries are evicted first.
+ * args: [flows per manager=2000] [orders weight=4]
+ */
+public class SharedBudgetDemoApp {
+
+	public static void main(String[] args) throws Exception {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		double ordersWeight = args.length > 1 ? Double.parseDouble(args[1]) : 4;
+
+		long budgetCapacity = 30L * TestEntity.LARGE_PROPERTY_SIZE;
+		SharedMemoryBudget budget = new SharedMemoryBudget(budgetCapacity);
+		InMemoryPersistence ordersPersistence = new InMemoryPersistence();
+		InMemoryPersistence reportsPersistence = new InMemoryPersistence();
+		asyncMemManager.client.AsyncMemManager orders = newManager(budgetCapacity, ordersPersistence);
+		asyncMemManager.client.AsyncMemManager reports = newManager(budgetCapacity, reportsPersistence);
+		budget.register(orders, ordersWeight);
+		budget.register(reports);
+
+		ExecutorService executor = Executors.newFixedThreadPool(64);
+		AtomicInteger ok = new AtomicInteger();
+		AtomicInteger failed = new AtomicInteger();
+		List<Future<?>> flows = new ArrayList<>();
+		long start = System.nanoTime();
+		long peakUsed = 0;
+		for (int i = 0; i < n; i++)
+		{
+			flows.add(executor.submit(() -> runFlow(orders, "OrderFlow", ok, failed)));
+			flows.add(executor.submit(() -> runFlow(reports, "ReportFlow", ok, failed)));
+			peakUsed = Math.max(peakUsed, budget.getUsedSize());
+		}
+
+		for (Future<?> flow : flows)
+		{
+			flow.get();
+			peakUsed = Math.max(peakUsed, budget.getUsedSize());
+		}
+		long elapsed = System.nanoTime() - start;
+		executor.shutdown();
+
+		System.out.println(String.format("flows:%d ok:%d failed:%d elapsed:%dms budget:%d peakUsed:%d evictedByBudget:%d",
+											2 * n, ok.get(), failed.get(), elapsed / 1000000, budgetCapacity, peakUsed, budget.getEvictedCount()));
+		System.out.println(String.format("orders weight:%.1f bytesStored:%d %s", ordersWeight, ordersPersistence.getBytesStored(), orders.debugInfo()));
+		System.out.println(String.format("reports weight:1.0 bytesStored:%d %s", reportsPersistence.getBytesStored(), reports.debugInfo()));
+		orders.close();
+		reports.close();
+	}
+
+	private static asyncMemManager.client.AsyncMemManager newManager(long capacity, Persistence persistence)
+	{
+		asyncMemManager.common.Configuration config = new asyncMemManager.common.Configuration(capacity, 100, 3600, 4, new HashMap<>());
+		return new asyncMemManager.client.AsyncMemManager(config, new AvgWaitTimeCalculator(20), persistence);
+	}
+
+	private static void runFlow(asyncMemManager.client.AsyncMemManager memManager, String flowKey, AtomicInteger ok, AtomicInteger failed)
+	{
+		try {
+			TestEntity entity = TestEntity.initLargeObject();
+			String expected = entity.getSomeText();
+			AsyncMemManager.SetupObject<TestEntity> setupEntity = memManager.manage(flowKey, entity, TestEntity.TestEntityAsyncMemSerializer.Instance);
+			AsyncMemManager.AsyncObject<TestEntity> e1 = setupEntity.asyncObject();
+			setupEntity.close();
+
+			Thread.sleep(20 + new Random().nextInt(40));
+			String s1 = e1.supply((o) -> getSomeText(o));
+			e1.close();
+
+			if (expected.equals(s1)) {
+				ok.incrementAndGet();
+			} else {
+				failed.incrementAndGet();
+			}
+		} catch (Exception e) {
+			failed.incrementAndGet();
+			e.printStackTrace();
+		}
+	}
+
+	private static String getSomeText(TestEntity o)
+	{
+		try {
+			return o.getSomeText();
+		} catch (InvalidObjectException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,342 @@
+package asyneMemManager.clientDemo;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import asyncMemManager.client.AccessTraceReader;
+import asyncMemManager.client.AccessTraceRecorder;
+import asyncMemManager.client.AvgWaitTimeCalculator;
+import asyncMemManager.client.di.*;
+
+/**
+ * replay access trace recorded by {@link AccessTraceRecorder} (e.g. DemoApp -DtraceFile=...) against AsyncMemManager
+ * for each given configuration, with virtual clock and in process persistence, so hours of trace replay in seconds.
+ * objects replaced by placeholders of recorded estimated size, bytes moved counted in estimated size.
+ * args: traceFile [capacity[:candlePoolSize[:defaultWaitMillis]] ...],
+ * default configurations at 25/50/100% of trace peak live size.
+ */
+public class TraceReplaySimulator {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1)
+		{
+			System.out.println("usage: TraceReplaySimulator traceFile [capacity[:candlePoolSize[:defaultWaitMillis]] ...]");
+			return;
+		}
+
+		String traceFile = args[0];
+		TraceSummary summary = summarize(traceFile);
+		System.out.println(String.format("trace:%s events:%d objects:%d duration:%.2fh peakLive:%d recordedEvictions:%d recordedRestores:%d",
+											traceFile, summary.events, summary.objects, summary.micros / 3600e6, summary.peakLive,
+											summary.evictions, summary.restores));
+
+		List<String> configs = new ArrayList<>();
+		for (int i = 1; i < args.length; i++)
+		{
+			configs.add(args[i]);
+		}
+		if (configs.isEmpty())
+		{
+			configs.add(String.valueOf(summary.peakLive / 4));
+			configs.add(String.valueOf(summary.peakLive / 2));
+			configs.add(String.valueOf(summary.peakLive));
+		}
+
+		for (String config : configs)
+		{
+			String[] parts = config.split(":");
+			long capacity = Long.parseLong(parts[0]);
+			int candlePoolSize = parts.length > 1 ? Integer.parseInt(parts[1]) : 4;
+			long defaultWait = parts.length > 2 ? Long.parseLong(parts[2]) : 500;
+			replay(traceFile, capacity, candlePoolSize, defaultWait);
+		}
+	}
+
+	private static TraceSummary summarize(String traceFile) throws IOException
+	{
+		TraceSummary summary = new TraceSummary();
+		// size, open async flows, setup closed flag per live object
+		Map<Long, long[]> liveObjects = new HashMap<>();
+		long live = 0;
+		try (AccessTraceReader reader = new AccessTraceReader(traceFile)) {
+			AccessTraceReader.Event event;
+			while ((event = reader.next()) != null)
+			{
+				summary.events++;
+				summary.micros = event.micros;
+				long[] liveObject = liveObjects.get(event.id);
+				switch (event.type)
+				{
+				case AccessTraceRecorder.MANAGE:
+					summary.objects++;
+					liveObject = new long[] {event.size, 0, 0};
+					liveObjects.put(event.id, liveObject);
+					live += event.size;
+					summary.peakLive = Math.max(summary.peakLive, live);
+					break;
+				case AccessTraceRecorder.ASYNC:
+					if (liveObject != null) liveObject[1]++;
+					break;
+				case AccessTraceRecorder.CLOSE:
+					if (liveObject != null) liveObject[1]--;
+					break;
+				case AccessTraceRecorder.SETUP_CLOSE:
+					if (liveObject != null) liveObject[2] = 1;
+					break;
+				case AccessTraceRecorder.EVICT:
+					summary.evictions++;
+					break;
+				case AccessTraceRecorder.RESTORE:
+					summary.restores++;
+					break;
+				default:
+					break;
+				}
+
+				if (liveObject != null && liveObject[2] == 1 && liveObject[1] <= 0)
+				{
+					liveObjects.remove(event.id);
+					live -= liveObject[0];
+				}
+			}
+		}
+		return summary;
+	}
+
+	private static void replay(String traceFile, long capacity, int candlePoolSize, long defaultWait) throws Exception
+	{
+		long wallStart = System.nanoTime();
+		SizePersistence persistence = new SizePersistence();
+		PlaceholderSerializer.Instance.resident = 0;
+		Map<String, asyncMemManager.common.FlowKeyConfiguration> flowKeyConfig = new HashMap<>();
+		asyncMemManager.common.Configuration config = new asyncMemManager.common.Configuration(capacity, 100, 3600, candlePoolSize, flowKeyConfig);
+
+		Map<Long, ReplayedObject> objects = new HashMap<>();
+		long events = 0;
+		long peakResident = 0;
+		long peakLive = 0;
+		long live = 0;
+
+		try (AccessTraceReader reader = new AccessTraceReader(traceFile)) {
+			VirtualClock clock = new VirtualClock(Instant.ofEpochMilli(reader.getStartEpochMillis()));
+			asyncMemManager.client.AsyncMemManager memManager = new asyncMemManager.client.AsyncMemManager(config, new AvgWaitTimeCalculator(defaultWait), persistence, clock);
+			Instant start = clock.instant();
+
+			AccessTraceReader.Event event;
+			while ((event = reader.next()) != null)
+			{
+				events++;
+				clock.set(start.plusNanos(event.micros * 1000));
+				ReplayedObject replayed = objects.get(event.id);
+				switch (event.type)
+				{
+				case AccessTraceRecorder.MANAGE:
+					replayed = new ReplayedObject(event.size);
+					replayed.setup = memManager.manage(event.flowKey, new Placeholder(event.size), PlaceholderSerializer.Instance);
+					PlaceholderSerializer.Instance.resident += event.size;
+					live += event.size;
+					objects.put(event.id, replayed);
+					break;
+				case AccessTraceRecorder.ASYNC:
+					if (replayed != null)
+					{
+						replayed.asyncs.add(replayed.setup.asyncObject());
+					}
+					break;
+				case AccessTraceRecorder.SETUP_CLOSE:
+					if (replayed != null && !replayed.setupClosed)
+					{
+						replayed.setupClosed = true;
+						replayed.setup.close();
+					}
+					break;
+				case AccessTraceRecorder.ACCESS:
+					if (replayed != null && !replayed.asyncs.isEmpty())
+					{
+						replayed.asyncs.peek().apply((o) -> {});
+					}
+					break;
+				case AccessTraceRecorder.CLOSE:
+					if (replayed != null && !replayed.asyncs.isEmpty())
+					{
+						replayed.asyncs.poll().close();
+					}
+					break;
+				default: // recorded evictions/restores are outcome of recorded run, replay makes its own
+					break;
+				}
+
+				if (replayed != null && replayed.setupClosed && replayed.asyncs.isEmpty())
+				{
+					// obsoleted, manager drops it
+					objects.remove(event.id);
+					live -= replayed.size;
+					if (replayed.setup.o() != null)
+					{
+						PlaceholderSerializer.Instance.resident -= replayed.size;
+					}
+				}
+
+				peakResident = Math.max(peakResident, PlaceholderSerializer.Instance.resident);
+				peakLive = Math.max(peakLive, live);
+			}
+
+			memManager.close();
+		}
+
+		long wallMillis = (System.nanoTime() - wallStart) / 1000000;
+		System.out.println(String.format("capacity:%d candles:%d defaultWait:%dms events:%d evictions:%d restores:%d bytesMoved:%d peakResident:%d peakLive:%d wall:%dms",
+											capacity, candlePoolSize, defaultWait, events, persistence.stores, persistence.retrieves,
+											persistence.bytesStored + persistence.bytesRetrieved, peakResident, peakLive, wallMillis));
+	}
+
+	static class TraceSummary
+	{
+		long events;
+		long objects;
+		long micros;
+		long peakLive;
+		long evictions;
+		long restores;
+	}
+
+	static class ReplayedObject
+	{
+		final long size;
+		AsyncMemManager.SetupObject<Placeholder> setup;
+		final ArrayDeque<AsyncMemManager.AsyncObject<Placeholder>> asyncs = new ArrayDeque<>();
+		boolean setupClosed = false;
+
+		ReplayedObject(long size)
+		{
+			this.size = size;
+		}
+	}
+
+	/**
+	 * stands for recorded object, only its size matters.
+	 */
+	static class Placeholder
+	{
+		final long size;
+
+		Placeholder(long size)
+		{
+			this.size = size;
+		}
+	}
+
+	/**
+	 * persisted form is the size itself, tracks resident size as objects evicted/restored.
+	 */
+	static class PlaceholderSerializer implements AsyncMemSerializer<Placeholder>
+	{
+		static final PlaceholderSerializer Instance = new PlaceholderSerializer();
+
+		/**
+		 * replay is single threaded
+		 */
+		long resident = 0;
+
+		@Override
+		public String serialize(Placeholder object) {
+			this.resident -= object.size;
+			return String.valueOf(object.size);
+		}
+
+		@Override
+		public Placeholder deserialize(String data) {
+			long size = Long.parseLong(data);
+			this.resident += size;
+			return new Placeholder(size);
+		}
+
+		@Override
+		public long estimateObjectSize(Placeholder object) {
+			return object.size;
+		}
+	}
+
+	/**
+	 * counts moved bytes as placeholder sizes.
+	 */
+	static class SizePersistence implements Persistence
+	{
+		private final Map<UUID, String> store = new HashMap<>();
+		long stores;
+		long retrieves;
+		long bytesStored;
+		long bytesRetrieved;
+
+		@Override
+		public void store(UUID key, String data, long expectedDuration) {
+			this.store.put(key, data);
+			this.stores++;
+			this.bytesStored += Long.parseLong(data);
+		}
+
+		@Override
+		public String retrieve(UUID key) {
+			String data = this.store.remove(key);
+			if (data != null)
+			{
+				this.retrieves++;
+				this.bytesRetrieved += Long.parseLong(data);
+			}
+			return data;
+		}
+
+		@Override
+		public void remove(UUID key) {
+			this.store.remove(key);
+		}
+	}
+
+	/**
+	 * clock moved by replay to each event's recorded time.
+	 */
+	static class VirtualClock extends Clock
+	{
+		private volatile Instant instant;
+		private final ZoneId zone;
+
+		VirtualClock(Instant instant)
+		{
+			this(instant, ZoneId.systemDefault());
+		}
+
+		VirtualClock(Instant instant, ZoneId zone)
+		{
+			this.instant = instant;
+			this.zone = zone;
+		}
+
+		void set(Instant instant)
+		{
+			this.instant = instant;
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return this.zone;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return new VirtualClock(this.instant, zone);
+		}
+
+		@Override
+		public Instant instant() {
+			return this.instant;
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package asyneMemManager.clientDemo;
+
+import java.io.InvalidObjectException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import asyncMemManager.client.AvgWaitTimeCalculator;
+import asyncMemManager.client.BinaryProtocolPersistence;
+import asyncMemManager.client.di.*;
+import asyneMemManager.clientDemo.model.TestEntity;
+
+/**
+ * run many flows each on its own virtual thread, check client never pins carriers.
+ * on JDK 21+ run with -Djdk.tracePinnedThreads=full, no stack trace expected in output
+ * (checked on 21.0.1 in memory mode; binary mode, socket writes included, not checked yet).
+ * virtual thread executor looked up by reflection, falls back to a platform thread pool on older JDKs.
+ * args: [flows=100000] [memory|binary=memory], binary requires asyncMemManager.server on 8081.
+ */
+public class VirtualThreadDemoApp {
+
+	public static void main(String[] args) throws Exception {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		boolean binary = args.length > 1 && "binary".equals(args[1]);
+
+		Persistence persistence = binary ? new BinaryProtocolPersistence("localhost", 8081, 4) : new InMemoryPersistence();
+		int capacity = 1000 * TestEntity.LARGE_PROPERTY_SIZE;
+		Map<String, asyncMemManager.common.FlowKeyConfiguration> flowKeyConfig = new HashMap<>();
+		asyncMemManager.common.Configuration config = new asyncMemManager.common.Configuration(capacity, 100, 3600, 4, flowKeyConfig);
+		asyncMemManager.client.AsyncMemManager memManager = new asyncMemManager.client.AsyncMemManager(config, new AvgWaitTimeCalculator(20), persistence);
+
+		ExecutorService executor = newVirtualThreadExecutor();
+		AtomicInteger ok = new AtomicInteger();
+		AtomicInteger failed = new AtomicInteger();
+		List<Future<?>> flows = new ArrayList<>(n);
+		long start = System.nanoTime();
+		for (int i = 0; i < n; i++)
+		{
+			flows.add(executor.submit(() -> {
+				try {
+					TestEntity entity = TestEntity.initLargeObject();
+					String expected = entity.getSomeText();
+					AsyncMemManager.SetupObject<TestEntity> setupEntity = memManager.manage("VirtualFlow", entity, TestEntity.TestEntityAsyncMemSerializer.Instance);
+					AsyncMemManager.AsyncObject<TestEntity> e1 = setupEntity.asyncObject();
+					AsyncMemManager.AsyncObject<TestEntity> e2 = setupEntity.asyncObject();
+					setupEntity.close();
+
+					Thread.sleep(10 + new Random().nextInt(20)); // waiting on remote call, carrier released
+					String s1 = e1.supply((o) -> getSomeText(o));
+					e1.close();
+					Thread.sleep(new Random().nextInt(10));
+					String s2 = e2.supply((o) -> getSomeText(o));
+					e2.close();
+
+					if (expected.equals(s1) && expected.equals(s2)) {
+						ok.incrementAndGet();
+					} else {
+						failed.incrementAndGet();
+					}
+				} catch (Exception e) {
+					failed.incrementAndGet();
+					e.printStackTrace();
+				}
+			}));
+		}
+
+		for (Future<?> flow : flows)
+		{
+			flow.get();
+		}
+		long elapsed = System.nanoTime() - start;
+		executor.shutdown();
+
+		System.out.println(String.format("flows:%d ok:%d failed:%d elapsed:%dms %s", n, ok.get(), failed.get(), elapsed / 1000000, memManager.debugInfo()));
+		memManager.close();
+		if (persistence instanceof AutoCloseable)
+		{
+			((AutoCloseable)persistence).close();
+		}
+	}
+
+	private static String getSomeText(TestEntity o)
+	{
+		try {
+			return o.getSomeText();
+		} catch (InvalidObjectException e) {
+			return null;
+		}
+	}
+
+	private static ExecutorService newVirtualThreadExecutor()
+	{
+		try {
+			return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			System.out.println("virtual threads not available on this JDK, using platform thread pool");
+			return Executors.newFixedThreadPool(200);
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package asyneMemManager.clientDemo.model;
+
+import java.util.Random;
+
+import asyncMemManager.client.di.AsyncMemManager;
+import asyncMemManager.client.di.AsyncMemSerializer;
+
+/**
+ * same shape as {@link TestEntity}, large property declared as managed chunk:
+ * header stays resident, array evicted and restored on its own.
+ */
+public class ChunkedEntity {
+	private String stringProperty;
+	private AsyncMemManager.ManagedChunk<int[]> largeProperty;
+
+	/**
+	 * manage new entity with its large property as chunk.
+	 */
+	public static AsyncMemManager.SetupObject<ChunkedEntity> manageLargeObject(AsyncMemManager memManager, String flowKey) {
+		ChunkedEntity e = new ChunkedEntity();
+		e.stringProperty = String.format("this is test string %d", new Random().nextInt());
+		int[] large = new int[TestEntity.LARGE_PROPERTY_SIZE];
+		large[0] = new Random().nextInt();
+		AsyncMemManager.SetupObject<ChunkedEntity> setup = memManager.manage(flowKey, e, ChunkedEntityAsyncMemSerializer.Instance);
+		e.largeProperty = setup.chunk(large, IntArrayAsyncMemSerializer.Instance);
+		return setup;
+	}
+
+	public String getHeader() {
+		return this.stringProperty;
+	}
+
+	public int getFirstLarge() {
+		return this.largeProperty.supply((a) -> a[0]);
+	}
+
+	/**
+	 * header only, chunk handle kept as entity is never evicted while it has chunks.
+	 */
+	public static class ChunkedEntityAsyncMemSerializer implements AsyncMemSerializer<ChunkedEntity>
+	{
+		public static final ChunkedEntityAsyncMemSerializer Instance = new ChunkedEntityAsyncMemSerializer();
+		private ChunkedEntityAsyncMemSerializer()
+		{
+		}
+
+		@Override
+		public String serialize(ChunkedEntity object) {
+			return object.stringProperty;
+		}
+
+		@Override
+		public ChunkedEntity deserialize(String data) {
+			ChunkedEntity e = new ChunkedEntity();
+			e.stringProperty = data;
+			return e;
+		}
+
+		@Override
+		public long estimateObjectSize(ChunkedEntity object) {
+			return 20;
+		}
+	}
+
+	public static class IntArrayAsyncMemSerializer implements AsyncMemSerializer<int[]>
+	{
+		public static final IntArrayAsyncMemSerializer Instance = new IntArrayAsyncMemSerializer();
+		private IntArrayAsyncMemSerializer()
+		{
+		}
+
+		@Override
+		public String serialize(int[] object) {
+			StringBuilder res = new StringBuilder(object.length * 2);
+			for (int v : object)
+			{
+				res.append(v).append(',');
+			}
+			return res.toString();
+		}
+
+		@Override
+		public int[] deserialize(String data) {
+			String[] parts = data.split(",");
+			int[] res = new int[parts.length];
+			for (int i = 0; i < parts.length; i++)
+			{
+				res[i] = Integer.parseInt(parts[i]);
+			}
+			return res;
+		}
+
+		@Override
+		public long estimateObjectSize(int[] object) {
+			return object.length;
+		}
+	}
+}
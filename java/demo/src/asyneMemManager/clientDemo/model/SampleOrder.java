@@ -0,0 +1,126 @@
+package asyneMemManager.clientDemo.model;
+
+import java.util.Random;
+
+import asyncMemManager.client.di.AsyncMemSerializable;
+import asyncMemManager.client.di.AsyncMemSerializer;
+
+/**
+ * order with nested lines, binary serializer generated ({@code SampleOrderBinarySerializer}),
+ * hand-written string one kept for comparison.
+ */
+@AsyncMemSerializable
+public class SampleOrder {
+	private long id;
+	private String customer;
+	boolean paid;
+	SampleOrderLine[] lines;
+	int[] history;
+
+	public static SampleOrder init(int numberOfLines, int historySize) {
+		Random random = new Random();
+		SampleOrder o = new SampleOrder();
+		o.id = random.nextLong();
+		o.customer = "customer " + random.nextInt(100000);
+		o.paid = random.nextBoolean();
+		o.lines = new SampleOrderLine[numberOfLines];
+		for (int i = 0; i < numberOfLines; i++)
+		{
+			o.lines[i] = new SampleOrderLine("SKU-" + random.nextInt(1000000), 1 + random.nextInt(10), random.nextInt(100000) / 100.0);
+		}
+		o.history = new int[historySize];
+		for (int i = 0; i < historySize; i++)
+		{
+			o.history[i] = random.nextInt(1000);
+		}
+		return o;
+	}
+
+	public long getId() {
+		return this.id;
+	}
+
+	public void setId(long id) {
+		this.id = id;
+	}
+
+	public String getCustomer() {
+		return this.customer;
+	}
+
+	public void setCustomer(String customer) {
+		this.customer = customer;
+	}
+
+	public boolean sameAs(SampleOrder o) {
+		if (this.id != o.id || !this.customer.equals(o.customer) || this.paid != o.paid
+				|| this.lines.length != o.lines.length || !java.util.Arrays.equals(this.history, o.history))
+		{
+			return false;
+		}
+		for (int i = 0; i < this.lines.length; i++)
+		{
+			SampleOrderLine l1 = this.lines[i], l2 = o.lines[i];
+			if (!l1.sku.equals(l2.sku) || l1.quantity != l2.quantity || l1.price != l2.price)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * hand-written, text based
+	 */
+	public static class SampleOrderAsyncMemSerializer implements AsyncMemSerializer<SampleOrder>
+	{
+		public static final SampleOrderAsyncMemSerializer Instance = new SampleOrderAsyncMemSerializer();
+		private SampleOrderAsyncMemSerializer()
+		{
+		}
+
+		@Override
+		public String serialize(SampleOrder object) {
+			StringBuilder res = new StringBuilder();
+			res.append(object.id).append("##").append(object.customer).append("##").append(object.paid).append("##");
+			for (SampleOrderLine line : object.lines)
+			{
+				res.append(line.sku).append(';').append(line.quantity).append(';').append(line.price).append('|');
+			}
+			res.append("##");
+			for (int h : object.history)
+			{
+				res.append(h).append(',');
+			}
+			return res.toString();
+		}
+
+		@Override
+		public SampleOrder deserialize(String data) {
+			String[] parts = data.split("##", -1);
+			SampleOrder o = new SampleOrder();
+			o.id = Long.parseLong(parts[0]);
+			o.customer = parts[1];
+			o.paid = Boolean.parseBoolean(parts[2]);
+			String[] lines = parts[3].isEmpty() ? new String[0] : parts[3].split("\\|");
+			o.lines = new SampleOrderLine[lines.length];
+			for (int i = 0; i < lines.length; i++)
+			{
+				String[] l = lines[i].split(";");
+				o.lines[i] = new SampleOrderLine(l[0], Integer.parseInt(l[1]), Double.parseDouble(l[2]));
+			}
+			String[] history = parts[4].isEmpty() ? new String[0] : parts[4].split(",");
+			o.history = new int[history.length];
+			for (int i = 0; i < history.length; i++)
+			{
+				o.history[i] = Integer.parseInt(history[i]);
+			}
+			return o;
+		}
+
+		@Override
+		public long estimateObjectSize(SampleOrder object) {
+			return 100 + object.lines.length * 50 + object.history.length * 4;
+		}
+	}
+}
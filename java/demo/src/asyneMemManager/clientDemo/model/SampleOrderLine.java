@@ -0,0 +1,19 @@
+package asyneMemManager.clientDemo.model;
+
+import asyncMemManager.client.di.AsyncMemSerializable;
+
+@AsyncMemSerializable
+public class SampleOrderLine {
+	String sku;
+	int quantity;
+	double price;
+
+	public SampleOrderLine() {
+	}
+
+	public SampleOrderLine(String sku, int quantity, double price) {
+		this.sku = sku;
+		this.quantity = quantity;
+		this.price = price;
+	}
+}
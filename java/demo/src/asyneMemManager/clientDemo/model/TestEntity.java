@@ -1,9 +1,11 @@
 package asyneMemManager.clientDemo.model;
 
 import java.io.InvalidObjectException;
+import java.util.Arrays;
 import java.util.Random;
 
 import asyncMemManager.client.di.AsyncMemSerializer;
+import asyncMemManager.client.di.RecyclingAsyncMemSerializer;
 
 public class TestEntity {
 	private String stringProperty;
@@ -64,4 +66,51 @@ public class TestEntity {
 			return LARGE_PROPERTY_SIZE + 20;
 		}
 	}
+	
+	/**
+	 * same format, restores into evicted instance when given one, see {@link RecyclingAsyncMemSerializer}
+	 */
+	public static class RecyclingTestEntityAsyncMemSerializer implements RecyclingAsyncMemSerializer<TestEntity>
+	{
+		public static final RecyclingTestEntityAsyncMemSerializer Instance = new RecyclingTestEntityAsyncMemSerializer();
+		private RecyclingTestEntityAsyncMemSerializer()
+		{			
+		}
+		
+		@Override
+		public String serialize(TestEntity object) {
+			return TestEntityAsyncMemSerializer.Instance.serialize(object);
+		}
+
+		@Override
+		public TestEntity deserialize(String data) {
+			return this.deserialize(data, null);
+		}
+
+		@Override
+		public TestEntity deserialize(String data, TestEntity reuse) {
+			TestEntity e = reuse != null ? reuse : new TestEntity();
+			int indexOfSplitter = data.indexOf("##");
+			if (indexOfSplitter >= 0)
+			{
+				if (e.largeProperty == null || e.largeProperty.length != LARGE_PROPERTY_SIZE)
+				{
+					e.largeProperty = new int[LARGE_PROPERTY_SIZE];
+				}else {
+					Arrays.fill(e.largeProperty, 0);
+				}
+				e.largeProperty[0] = Integer.parseInt(data.substring(0, indexOfSplitter));
+				e.stringProperty = data.substring(indexOfSplitter+2);
+			}else {
+				e.largeProperty = null;
+				e.stringProperty = data;
+			}
+			return e;
+		}
+
+		@Override
+		public long estimateObjectSize(TestEntity object) {		
+			return LARGE_PROPERTY_SIZE + 20;
+		}
+	}
 }
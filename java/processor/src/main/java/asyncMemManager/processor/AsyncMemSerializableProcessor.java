@@ -0,0 +1,444 @@
+package asyncMemManager.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates {@code <Class>BinarySerializer} for classes annotated with asyncMemManager.client.di.AsyncMemSerializable:
+ * AsyncMemSerializer with static Instance, plus static write/read/size used directly by serializers of enclosing types,
+ * so nested types are serialized without lookup nor reflection.
+ */
+@SupportedAnnotationTypes(AsyncMemSerializableProcessor.ANNOTATION)
+public class AsyncMemSerializableProcessor extends AbstractProcessor {
+	static final String ANNOTATION = "asyncMemManager.client.di.AsyncMemSerializable";
+	static final String SUFFIX = "BinarySerializer";
+	private static final String RUNTIME = "asyncMemManager.client.BinarySerialization";
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for (TypeElement annotation : annotations)
+		{
+			for (Element element : roundEnv.getElementsAnnotatedWith(annotation))
+			{
+				if (element.getKind() != ElementKind.CLASS || ((TypeElement)element).getNestingKind() != NestingKind.TOP_LEVEL)
+				{
+					this.error(element, "@AsyncMemSerializable only supports top level classes");
+					continue;
+				}
+
+				TypeElement type = (TypeElement)element;
+				try {
+					List<Field> fields = this.fields(type);
+					if (fields != null && this.checkConstructor(type))
+					{
+						this.generate(type, fields);
+					}
+				} catch (IOException e) {
+					this.error(type, "cannot write serializer: " + e.getMessage());
+				}
+			}
+		}
+		return true;
+	}
+
+	private List<Field> fields(TypeElement type)
+	{
+		List<Field> res = new ArrayList<>();
+		boolean valid = true;
+		for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements()))
+		{
+			Set<Modifier> modifiers = field.getModifiers();
+			if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT))
+			{
+				continue;
+			}
+
+			Field f = new Field(field.getSimpleName().toString(), field.asType());
+			if (!this.resolveKind(f, field))
+			{
+				valid = false;
+				continue;
+			}
+
+			if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.FINAL))
+			{
+				String property = Character.toUpperCase(f.name.charAt(0)) + f.name.substring(1);
+				String getter = this.findMethod(type, f.type.getKind() == TypeKind.BOOLEAN ? "is" + property : "get" + property, 0);
+				if (getter == null)
+				{
+					getter = this.findMethod(type, "get" + property, 0);
+				}
+				String setter = this.findMethod(type, "set" + property, 1);
+				if (getter == null || setter == null)
+				{
+					this.error(field, "private or final field needs non-private getter and setter");
+					valid = false;
+					continue;
+				}
+				f.getter = getter + "()";
+				f.setter = setter;
+			}
+			res.add(f);
+		}
+		return valid ? res : null;
+	}
+
+	private boolean resolveKind(Field f, Element field)
+	{
+		TypeMirror t = f.type;
+		if (t.getKind().isPrimitive())
+		{
+			f.kind = Kind.PRIMITIVE;
+			return true;
+		}
+
+		if (this.isString(t))
+		{
+			f.kind = Kind.STRING;
+			return true;
+		}
+
+		if (this.nestedName(t) != null)
+		{
+			f.kind = Kind.NESTED;
+			return true;
+		}
+
+		if (t.getKind() == TypeKind.ARRAY)
+		{
+			TypeMirror component = ((ArrayType)t).getComponentType();
+			if (component.getKind().isPrimitive())
+			{
+				f.kind = Kind.PRIMITIVE_ARRAY;
+				return true;
+			}
+			if (this.isString(component))
+			{
+				f.kind = Kind.STRING_ARRAY;
+				return true;
+			}
+			if (this.nestedName(component) != null)
+			{
+				f.kind = Kind.NESTED_ARRAY;
+				return true;
+			}
+		}
+
+		this.error(field, "unsupported field type " + t + ", expected primitive, String, @AsyncMemSerializable class or array of those");
+		return false;
+	}
+
+	private boolean checkConstructor(TypeElement type)
+	{
+		for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements()))
+		{
+			if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE))
+			{
+				return true;
+			}
+		}
+		this.error(type, "needs non-private no-arg constructor");
+		return false;
+	}
+
+	private String findMethod(TypeElement type, String name, int parameters)
+	{
+		for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements()))
+		{
+			if (method.getSimpleName().contentEquals(name) && method.getParameters().size() == parameters
+					&& !method.getModifiers().contains(Modifier.PRIVATE) && !method.getModifiers().contains(Modifier.STATIC))
+			{
+				return name;
+			}
+		}
+		return null;
+	}
+
+	private boolean isString(TypeMirror t)
+	{
+		return t.getKind() == TypeKind.DECLARED && ((TypeElement)((DeclaredType)t).asElement()).getQualifiedName().contentEquals("java.lang.String");
+	}
+
+	/**
+	 * qualified name of generated serializer when type is annotated class, else null.
+	 */
+	private String nestedName(TypeMirror t)
+	{
+		if (t.getKind() != TypeKind.DECLARED)
+		{
+			return null;
+		}
+
+		TypeElement element = (TypeElement)((DeclaredType)t).asElement();
+		for (AnnotationMirror annotation : element.getAnnotationMirrors())
+		{
+			if (((TypeElement)annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(ANNOTATION))
+			{
+				return element.getQualifiedName() + SUFFIX;
+			}
+		}
+		return null;
+	}
+
+	private void generate(TypeElement type, List<Field> fields) throws IOException
+	{
+		PackageElement pkg = this.processingEnv.getElementUtils().getPackageOf(type);
+		String typeName = type.getQualifiedName().toString();
+		String simpleName = type.getSimpleName() + SUFFIX;
+		String name = pkg.isUnnamed() ? simpleName : pkg.getQualifiedName() + "." + simpleName;
+
+		StringBuilder src = new StringBuilder();
+		if (!pkg.isUnnamed())
+		{
+			src.append("package ").append(pkg.getQualifiedName()).append(";\n\n");
+		}
+		src.append("import ").append(RUNTIME).append(";\n\n");
+		src.append("/**\n * generated by ").append(AsyncMemSerializableProcessor.class.getName()).append(" from ").append(typeName).append(", do not edit.\n */\n");
+		src.append("public final class ").append(simpleName).append(" implements asyncMemManager.client.di.AsyncMemSerializer<").append(typeName).append("> {\n");
+		src.append("\tpublic static final ").append(simpleName).append(" Instance = new ").append(simpleName).append("();\n\n");
+		src.append("\tprivate ").append(simpleName).append("() {\n\t}\n\n");
+
+		src.append("\t@Override\n\tpublic String serialize(").append(typeName).append(" object) {\n");
+		src.append("\t\tBinarySerialization.Writer out = new BinarySerialization.Writer();\n");
+		src.append("\t\twrite(out, object);\n\t\treturn out.toString();\n\t}\n\n");
+
+		src.append("\t@Override\n\tpublic ").append(typeName).append(" deserialize(String data) {\n");
+		src.append("\t\treturn read(new BinarySerialization.Reader(data));\n\t}\n\n");
+
+		src.append("\t@Override\n\tpublic long estimateObjectSize(").append(typeName).append(" object) {\n");
+		src.append("\t\treturn size(object);\n\t}\n\n");
+
+		// write
+		src.append("\tpublic static void write(BinarySerialization.Writer out, ").append(typeName).append(" o) {\n");
+		for (Field f : fields)
+		{
+			this.appendWrite(src, f);
+		}
+		src.append("\t}\n\n");
+
+		// read
+		src.append("\tpublic static ").append(typeName).append(" read(BinarySerialization.Reader in) {\n");
+		src.append("\t\t").append(typeName).append(" o = new ").append(typeName).append("();\n");
+		for (Field f : fields)
+		{
+			this.appendRead(src, f);
+		}
+		src.append("\t\treturn o;\n\t}\n\n");
+
+		// size
+		long shallow = 0;
+		for (Field f : fields)
+		{
+			shallow += f.kind == Kind.PRIMITIVE ? this.primitiveSize(f.type.getKind()) : 4;
+		}
+		src.append("\t/**\n\t * estimated heap size of object and everything it holds.\n\t */\n");
+		src.append("\tpublic static long size(").append(typeName).append(" o) {\n");
+		src.append("\t\tlong size = BinarySerialization.shallow(").append(shallow).append(");\n");
+		for (Field f : fields)
+		{
+			this.appendSize(src, f);
+		}
+		src.append("\t\treturn size;\n\t}\n");
+		src.append("}\n");
+
+		try (Writer writer = this.processingEnv.getFiler().createSourceFile(name, type).openWriter()) {
+			writer.write(src.toString());
+		}
+	}
+
+	private void appendWrite(StringBuilder src, Field f)
+	{
+		String v = f.get("o");
+		switch (f.kind)
+		{
+		case PRIMITIVE:
+			src.append("\t\tout.write").append(this.primitiveMethod(f.type.getKind())).append("(").append(v).append(");\n");
+			break;
+		case STRING:
+			src.append("\t\tout.writeString(").append(v).append(");\n");
+			break;
+		case PRIMITIVE_ARRAY:
+			src.append("\t\tout.write").append(this.primitiveMethod(((ArrayType)f.type).getComponentType().getKind())).append("s(").append(v).append(");\n");
+			break;
+		case STRING_ARRAY:
+			src.append("\t\tout.writeStrings(").append(v).append(");\n");
+			break;
+		case NESTED:
+			src.append("\t\t{\n\t\t\t").append(f.type).append(" v = ").append(v).append(";\n");
+			src.append("\t\t\tout.writeBoolean(v != null);\n");
+			src.append("\t\t\tif (v != null) ").append(this.nestedName(f.type)).append(".write(out, v);\n\t\t}\n");
+			break;
+		case NESTED_ARRAY:
+			TypeMirror component = ((ArrayType)f.type).getComponentType();
+			src.append("\t\t{\n\t\t\t").append(f.type).append(" a = ").append(v).append(";\n");
+			src.append("\t\t\tif (out.writeLength(a, a == null ? 0 : a.length)) {\n");
+			src.append("\t\t\t\tfor (").append(component).append(" v : a) {\n");
+			src.append("\t\t\t\t\tout.writeBoolean(v != null);\n");
+			src.append("\t\t\t\t\tif (v != null) ").append(this.nestedName(component)).append(".write(out, v);\n");
+			src.append("\t\t\t\t}\n\t\t\t}\n\t\t}\n");
+			break;
+		}
+	}
+
+	private void appendRead(StringBuilder src, Field f)
+	{
+		switch (f.kind)
+		{
+		case PRIMITIVE:
+			src.append("\t\t").append(f.set("o", "in.read" + this.primitiveMethod(f.type.getKind()) + "()")).append(";\n");
+			break;
+		case STRING:
+			src.append("\t\t").append(f.set("o", "in.readString()")).append(";\n");
+			break;
+		case PRIMITIVE_ARRAY:
+			src.append("\t\t").append(f.set("o", "in.read" + this.primitiveMethod(((ArrayType)f.type).getComponentType().getKind()) + "s()")).append(";\n");
+			break;
+		case STRING_ARRAY:
+			src.append("\t\t").append(f.set("o", "in.readStrings()")).append(";\n");
+			break;
+		case NESTED:
+			src.append("\t\t").append(f.set("o", "in.readBoolean() ? " + this.nestedName(f.type) + ".read(in) : null")).append(";\n");
+			break;
+		case NESTED_ARRAY:
+			TypeMirror component = ((ArrayType)f.type).getComponentType();
+			src.append("\t\t{\n\t\t\tint length = in.readLength();\n");
+			src.append("\t\t\t").append(f.type).append(" a = null;\n");
+			src.append("\t\t\tif (length >= 0) {\n");
+			src.append("\t\t\t\ta = new ").append(component).append("[length];\n");
+			src.append("\t\t\t\tfor (int i = 0; i < length; i++) {\n");
+			src.append("\t\t\t\t\ta[i] = in.readBoolean() ? ").append(this.nestedName(component)).append(".read(in) : null;\n");
+			src.append("\t\t\t\t}\n\t\t\t}\n");
+			src.append("\t\t\t").append(f.set("o", "a")).append(";\n\t\t}\n");
+			break;
+		}
+	}
+
+	private void appendSize(StringBuilder src, Field f)
+	{
+		String v = f.get("o");
+		switch (f.kind)
+		{
+		case PRIMITIVE:
+			break;
+		case STRING:
+			src.append("\t\tsize += BinarySerialization.string(").append(v).append(");\n");
+			break;
+		case PRIMITIVE_ARRAY:
+			src.append("\t\t{\n\t\t\t").append(f.type).append(" a = ").append(v).append(";\n");
+			src.append("\t\t\tif (a != null) size += BinarySerialization.array(a.length, ")
+				.append(this.primitiveSize(((ArrayType)f.type).getComponentType().getKind())).append(");\n\t\t}\n");
+			break;
+		case STRING_ARRAY:
+			src.append("\t\tsize += BinarySerialization.strings(").append(v).append(");\n");
+			break;
+		case NESTED:
+			src.append("\t\t{\n\t\t\t").append(f.type).append(" v = ").append(v).append(";\n");
+			src.append("\t\t\tif (v != null) size += ").append(this.nestedName(f.type)).append(".size(v);\n\t\t}\n");
+			break;
+		case NESTED_ARRAY:
+			TypeMirror component = ((ArrayType)f.type).getComponentType();
+			src.append("\t\t{\n\t\t\t").append(f.type).append(" a = ").append(v).append(";\n");
+			src.append("\t\t\tif (a != null) {\n");
+			src.append("\t\t\t\tsize += BinarySerialization.array(a.length, BinarySerialization.REFERENCE);\n");
+			src.append("\t\t\t\tfor (").append(component).append(" v : a) {\n");
+			src.append("\t\t\t\t\tif (v != null) size += ").append(this.nestedName(component)).append(".size(v);\n");
+			src.append("\t\t\t\t}\n\t\t\t}\n\t\t}\n");
+			break;
+		}
+	}
+
+	private String primitiveMethod(TypeKind kind)
+	{
+		String name = kind.name().toLowerCase();
+		return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+	}
+
+	private int primitiveSize(TypeKind kind)
+	{
+		switch (kind)
+		{
+		case LONG:
+		case DOUBLE:
+			return 8;
+		case INT:
+		case FLOAT:
+			return 4;
+		case SHORT:
+		case CHAR:
+			return 2;
+		default:
+			return 1;
+		}
+	}
+
+	private void error(Element element, String message)
+	{
+		this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+	}
+
+	private enum Kind
+	{
+		PRIMITIVE,
+		STRING,
+		PRIMITIVE_ARRAY,
+		STRING_ARRAY,
+		NESTED,
+		NESTED_ARRAY
+	}
+
+	private static class Field
+	{
+		final String name;
+		final TypeMirror type;
+		Kind kind;
+		/**
+		 * accessors when field not reachable from generated class.
+		 */
+		String getter;
+		String setter;
+
+		Field(String name, TypeMirror type)
+		{
+			this.name = name;
+			this.type = type;
+		}
+
+		String get(String target)
+		{
+			return target + "." + (this.getter != null ? this.getter : this.name);
+		}
+
+		String set(String target, String value)
+		{
+			return this.setter != null ? target + "." + this.setter + "(" + value + ")" : target + "." + this.name + " = " + value;
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package asyncCaching.server;
+
+/**
+ * Limits for admitting new entries, so clients back off when storage falls behind
+ * instead of server growing until out of memory.
+ */
+public class AdmissionPolicy {
+	private final long maxInFlightBytes;
+	private final long maxBacklogBytes;
+	private final long maxManageQueueDepth;
+	private final long minRetryAfter;
+	private final long maxRetryAfter;
+
+	/**
+	 * @param maxInFlightBytes bytes of stores received but not yet resident/persisted
+	 * @param maxBacklogBytes resident bytes over capacity, waiting for eviction
+	 * @param maxManageQueueDepth manage operations not yet drained
+	 * @param minRetryAfter milliseconds
+	 * @param maxRetryAfter milliseconds
+	 */
+	public AdmissionPolicy(long maxInFlightBytes, long maxBacklogBytes, long maxManageQueueDepth, long minRetryAfter, long maxRetryAfter) {
+		this.maxInFlightBytes = maxInFlightBytes;
+		this.maxBacklogBytes = maxBacklogBytes;
+		this.maxManageQueueDepth = maxManageQueueDepth;
+		this.minRetryAfter = minRetryAfter;
+		this.maxRetryAfter = maxRetryAfter;
+	}
+
+	/**
+	 * in-flight up to half of capacity, backlog up to quarter of capacity.
+	 */
+	public static AdmissionPolicy forCapacity(long capacity)
+	{
+		return new AdmissionPolicy(capacity / 2, capacity / 4, 8192, 50, 5000);
+	}
+
+	/**
+	 * @param inFlightBytes bytes already in flight, without the request to admit
+	 */
+	public boolean admit(long inFlightBytes, long backlogBytes, long manageQueueDepth)
+	{
+		return inFlightBytes <= this.maxInFlightBytes
+				&& backlogBytes <= this.maxBacklogBytes
+				&& manageQueueDepth <= this.maxManageQueueDepth;
+	}
+
+	/**
+	 * time for eviction to drain backlog, bounded.
+	 * @param drainBytesPerMilli observed eviction throughput, 0 if unknown
+	 */
+	public long retryAfter(long backlogBytes, double drainBytesPerMilli)
+	{
+		long retryAfter = this.minRetryAfter;
+		if (backlogBytes > 0 && drainBytesPerMilli > 0)
+		{
+			retryAfter = Math.max(retryAfter, (long)(backlogBytes / drainBytesPerMilli));
+		}
+		return Math.min(retryAfter, this.maxRetryAfter);
+	}
+}
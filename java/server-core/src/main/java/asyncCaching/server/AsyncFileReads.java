@@ -0,0 +1,42 @@
+package asyncCaching.server;
+
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking reads for persistences, no thread waits on disk.
+ */
+final class AsyncFileReads {
+	private AsyncFileReads() {
+	}
+
+	/**
+	 * read exactly length bytes at position.
+	 */
+	static CompletableFuture<byte[]> read(AsynchronousFileChannel channel, long position, int length)
+	{
+		CompletableFuture<byte[]> res = new CompletableFuture<>();
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		channel.read(buffer, position, position, new CompletionHandler<Integer, Long>() {
+			@Override
+			public void completed(Integer n, Long readPosition) {
+				if (n < 0) {
+					res.completeExceptionally(new EOFException("unexpected end of file at " + readPosition));
+				} else if (buffer.hasRemaining()) {
+					channel.read(buffer, readPosition + n, readPosition + n, this);
+				} else {
+					res.complete(buffer.array());
+				}
+			}
+
+			@Override
+			public void failed(Throwable ex, Long readPosition) {
+				res.completeExceptionally(ex);
+			}
+		});
+		return res;
+	}
+}
@@ -0,0 +1,1133 @@
+package asyncCaching.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import asyncCaching.server.di.AbortableChannel;
+import asyncCaching.server.di.EntryMetadata;
+import asyncCaching.server.di.Persistence;
+import asyncMemManager.common.Configuration;
+import asyncMemManager.common.PrimitiveManagedObjectQueue;
+import asyncMemManager.common.di.IndexableQueuedObject;
+
+public class AsyncMemCache implements asyncCaching.server.di.AsyncMemCache {	
+	private Logger logger = LoggerFactory.getLogger(AsyncMemCache.class);
+	private Configuration config;
+	private Persistence persistence;
+	private List<PrimitiveManagedObjectQueue<CacheData>> candlesSrc;
+	private ConcurrentHashMap<UUID, CacheData> keyToObjectMap;
+	private AtomicLong usedSize = new AtomicLong(0);
+	private AtomicLong residentCount = new AtomicLong(0);
+
+	/**
+	 * one single-writer stripe per candle, all candle changes done by its stripe thread.
+	 */
+	private static final int OP_TRACK = 1;
+	private static final int OP_UNTRACK = 2;
+	private static final int OP_COLLECT = 3;
+	private static final int OP_EVICTED = 4;
+	private static final int OP_EVICT_FAILED = 5;
+	private static final int STRIPE_RING_SIZE = 4096;
+	private static final int STRIPE_MAX_BATCH_SIZE = 256;
+	private static final int MAX_CONCURRENT_COLD_READS = 16;
+	private static final int MAX_MERGED_COLD_READS = 64;
+	private List<ManageStripe<CacheData>> stripes;
+	private List<StripeHandler> stripeHandlers;
+	
+	//single thread running eviction batches, also, give priority to other flows
+	private ExecutorService evictionExecutor;
+	
+	/**
+	 * eviction frees space down to this ratio of capacity, so bursts don't trigger one eviction per entry
+	 */
+	private static final double EVICTION_LOW_WATERMARK = 0.9;
+	private AtomicLong evictingSize = new AtomicLong(0);
+	private AtomicLong evictionBatchCount = new AtomicLong(0);
+	private AtomicLong evictedCount = new AtomicLong(0);
+	private AtomicLong evictionNanos = new AtomicLong(0);
+	private volatile int lastEvictionBatchSize = 0;
+	private volatile long lastEvictionNanos = 0;
+	private AtomicLong evictedBytes = new AtomicLong(0);
+	
+	/**
+	 * entries storage failed to persist, kept resident; eviction paused a while after such failure
+	 */
+	private static final long EVICTION_FAILURE_PAUSE = 1000;
+	private AtomicLong evictionFailedCount = new AtomicLong(0);
+	private volatile long evictionPausedUntil = 0;
+	private ExecutorService readingExecutor;
+	
+	/**
+	 * reads of persisted entries, most urgent first
+	 */
+	private ColdReadScheduler coldReads;
+	
+	private static final long EXPIRY_TICK_DURATION = 1000;
+	private static final int EXPIRY_WHEEL_SIZE = 3600;
+	private ExpiryPolicy expiryPolicy;
+	private ExpiryWheel<CacheData> expiryWheel;
+	private ScheduledExecutorService expiryExecutor;
+	private AtomicLong expiredCount = new AtomicLong(0);
+	
+	/**
+	 * persisted entries read back into memory shortly before their hot time, when resident size allows
+	 */
+	private static final long PROMOTION_LEAD = 5000;
+	private static final double PROMOTION_WATERMARK = 0.8;
+	private static final int MAX_PROMOTIONS_IN_FLIGHT = 32;
+	private ExpiryWheel<CacheData> promotionWheel;
+	private AtomicInteger promotionsInFlight = new AtomicInteger(0);
+	private AtomicLong promotedCount = new AtomicLong(0);
+	private AtomicLong promotionHitCount = new AtomicLong(0);
+	private AtomicLong promotionLateHitCount = new AtomicLong(0);
+	private AtomicLong promotionWasteCount = new AtomicLong(0);
+	private AtomicLong promotionSkippedCount = new AtomicLong(0);
+	
+	/**
+	 * entries persisted before restart registered in background, already registered ones are served meanwhile
+	 */
+	private volatile boolean recovering = true;
+	private AtomicLong recoveredCount = new AtomicLong(0);
+	private volatile long recoveryMillis = -1;
+	
+	/**
+	 * resident payloads kept off-heap
+	 */
+	private SlabAllocator slabAllocator;
+	
+	/**
+	 * bytes received but not resident/persisted yet: queued straight-to-storage stores and open streams
+	 */
+	private AdmissionPolicy admissionPolicy;
+	private AtomicLong inFlightBytes = new AtomicLong(0);
+	private AtomicLong rejectedCount = new AtomicLong(0);
+	
+	/**
+	 * entries going straight to storage that storage failed to write, dropped
+	 */
+	private AtomicLong storeFailedCount = new AtomicLong(0);
+	
+	public AsyncMemCache(Configuration config, Persistence persistence) 
+	{
+		this(config, persistence, ExpiryPolicy.multipleOfExpectedDuration(10, 3600 * 1000));
+	}
+	
+	public AsyncMemCache(Configuration config, Persistence persistence, ExpiryPolicy expiryPolicy) 
+	{
+		this(config, persistence, expiryPolicy, 
+				new SlabAllocator(64, 1024 * 1024, 4 * 1024 * 1024, Math.max(2 * config.getCapacity(), 64L * 1024 * 1024)));
+	}
+	
+	public AsyncMemCache(Configuration config, Persistence persistence, ExpiryPolicy expiryPolicy, SlabAllocator slabAllocator) 
+	{
+		this(config, persistence, expiryPolicy, slabAllocator, AdmissionPolicy.forCapacity(config.getCapacity()));
+	}
+	
+	public AsyncMemCache(Configuration config, Persistence persistence, ExpiryPolicy expiryPolicy, SlabAllocator slabAllocator, AdmissionPolicy admissionPolicy) 
+	{
+		this.config = config;
+		this.persistence = persistence;
+		this.expiryPolicy = expiryPolicy;
+		this.slabAllocator = slabAllocator;
+		this.admissionPolicy = admissionPolicy;
+		
+
+		this.keyToObjectMap = new ConcurrentHashMap<>(this.config.getInitialSize());
+		int numberOfStripes = this.config.getCandlePoolSize() > 0 ? this.config.getCandlePoolSize() : 1;
+		this.candlesSrc = new ArrayList<>(numberOfStripes);
+		this.stripes = new ArrayList<>(numberOfStripes);
+		this.stripeHandlers = new ArrayList<>(numberOfStripes);
+		
+		int initcandleSize = this.config.getInitialSize() / numberOfStripes;
+		initcandleSize = initcandleSize > 0 ? initcandleSize : this.config.getInitialSize();
+		
+		this.evictionExecutor = Executors.newSingleThreadExecutor();
+		this.readingExecutor = Executors.newFixedThreadPool(numberOfStripes);
+		this.coldReads = new ColdReadScheduler(persistence, MAX_CONCURRENT_COLD_READS, MAX_MERGED_COLD_READS);
+		
+		// init candle per stripe
+		for(int i = 0; i < numberOfStripes; i++)
+		{
+			PrimitiveManagedObjectQueue<CacheData> candle = new PrimitiveManagedObjectQueue<>(initcandleSize); // thread-safe ensured by its stripe
+			this.candlesSrc.add(candle);
+			StripeHandler handler = new StripeHandler(candle);
+			this.stripeHandlers.add(handler);
+			this.stripes.add(new ManageStripe<>("manage-stripe-" + i, STRIPE_RING_SIZE, STRIPE_MAX_BATCH_SIZE, handler));
+		}
+		
+		this.expiryWheel = new ExpiryWheel<>(EXPIRY_TICK_DURATION, EXPIRY_WHEEL_SIZE, System.currentTimeMillis(), this::expire);
+		this.expiryExecutor = Executors.newSingleThreadScheduledExecutor();
+		this.promotionWheel = new ExpiryWheel<>(EXPIRY_TICK_DURATION, EXPIRY_WHEEL_SIZE, System.currentTimeMillis(), this::promote);
+		this.expiryExecutor.scheduleAtFixedRate(() -> {
+			long now = System.currentTimeMillis();
+			this.expiryWheel.advance(now);
+			this.promotionWheel.advance(now);
+		}, EXPIRY_TICK_DURATION, EXPIRY_TICK_DURATION, TimeUnit.MILLISECONDS);
+		
+		Thread recoveryThread = new Thread(this::recover, "cache-recovery");
+		recoveryThread.setDaemon(true);
+		recoveryThread.start();
+	}
+	
+	private void recover()
+	{
+		long start = System.currentTimeMillis();
+		try {
+			this.persistence.recover(this::recovered);
+		} finally {
+			this.recoveryMillis = System.currentTimeMillis() - start;
+			this.recovering = false;
+			this.logger.info("Recovered {} entries in {} ms", this.recoveredCount.get(), this.recoveryMillis);
+		}
+	}
+	
+	/**
+	 * register entry persisted before restart, cold until retrieved.
+	 */
+	private void recovered(EntryMetadata metadata, long length)
+	{
+		if (metadata.getExpireAt() <= System.currentTimeMillis())
+		{
+			this.persistence.remove(metadata.getKey());
+			return;
+		}
+		
+		CacheData cachedObj = new CacheData(metadata.getKey(), null, metadata.getHotTime(), metadata.getExpireAt());
+		if (this.keyToObjectMap.putIfAbsent(cachedObj.key, cachedObj) == null)
+		{
+			this.scheduleExpiry(cachedObj);
+			this.schedulePromotion(cachedObj);
+			this.recoveredCount.incrementAndGet();
+		}
+	}
+	
+	public boolean isRecovering() {
+		return this.recovering;
+	}
+	
+	public long getRecoveredCount() {
+		return this.recoveredCount.get();
+	}
+	
+	/**
+	 * time to recover all entries, -1 while recovering
+	 */
+	public long getRecoveryMillis() {
+		return this.recoveryMillis;
+	}
+	
+	public void cache(UUID key, byte[] data, long expectedDuration) 
+	{
+		if (this.keyToObjectMap.containsKey(key)) 
+		{
+			return;
+		}
+		
+		long now = System.currentTimeMillis();
+		SlabAllocator.Payload payload = this.slabAllocator.copyOf(data);
+		if (payload == null) // off-heap exhausted, straight to storage
+		{
+			this.inFlightBytes.addAndGet(data.length);
+			this.readingExecutor.execute(() -> {
+				CacheData cachedObj = new CacheData(key, null, now + expectedDuration, now + this.expiryPolicy.lifetime(expectedDuration));
+				boolean stored = this.persistence.store(cachedObj.metadata(), ByteBuffer.wrap(data));
+				this.inFlightBytes.addAndGet(-data.length);
+				if (!stored) { // nothing behind it, not registered: retrieve misses instead of failing
+					this.storeFailedCount.incrementAndGet();
+					this.logger.warn("Store {} to storage failed, entry dropped", key);
+				} else if (this.keyToObjectMap.putIfAbsent(key, cachedObj) == null) {
+					this.scheduleExpiry(cachedObj);
+					this.schedulePromotion(cachedObj);
+				} else {
+					this.persistence.remove(key);
+				}
+			});
+			return;
+		}
+		
+		CacheData cachedObj = new CacheData(key, payload, now + expectedDuration, now + this.expiryPolicy.lifetime(expectedDuration));
+		
+		CacheData newData = this.keyToObjectMap.putIfAbsent(cachedObj.key, cachedObj);
+		if (newData != null) // already added by other thread
+		{
+			payload.release();
+			return;
+		}
+		
+		this.scheduleExpiry(cachedObj);
+		this.usedSize.addAndGet(payload.length());
+		this.residentCount.incrementAndGet();
+		this.stripeOf(cachedObj).publish(OP_TRACK, cachedObj);
+	}
+	
+	/**
+	 * large payload streamed directly to persistence, never resident.
+	 * entry visible for retrieving only after returned channel closed, never if aborted.
+	 */
+	public AbortableChannel cacheStream(UUID key, long length, long expectedDuration) throws IOException
+	{
+		if (this.keyToObjectMap.containsKey(key))
+		{
+			return null;
+		}
+		
+		long now = System.currentTimeMillis();
+		final CacheData cachedObj = new CacheData(key, null, now + expectedDuration, now + this.expiryPolicy.lifetime(expectedDuration));
+		final AbortableChannel persistChannel = this.persistence.openStore(cachedObj.metadata(), length);
+		final long declaredLength = Math.max(length, 0);
+		final AtomicBoolean open = new AtomicBoolean(true); // closed or aborted once, whichever comes first
+		this.inFlightBytes.addAndGet(declaredLength);
+		return new AbortableChannel() {
+			@Override
+			public boolean isOpen() {
+				return open.get();
+			}
+
+			@Override
+			public int write(ByteBuffer src) throws IOException {
+				return persistChannel.write(src);
+			}
+			
+			@Override
+			public void close() throws IOException {
+				if (open.compareAndSet(true, false)) 
+				{
+					try {
+						persistChannel.close();
+					} finally {
+						AsyncMemCache.this.inFlightBytes.addAndGet(-declaredLength);
+					}
+					if (AsyncMemCache.this.keyToObjectMap.putIfAbsent(key, cachedObj) == null)
+					{
+						AsyncMemCache.this.scheduleExpiry(cachedObj);
+						AsyncMemCache.this.schedulePromotion(cachedObj);
+					}
+				}
+			}
+
+			@Override
+			public void abort() throws IOException {
+				if (open.compareAndSet(true, false))
+				{
+					try {
+						persistChannel.abort();
+					} finally {
+						AsyncMemCache.this.inFlightBytes.addAndGet(-declaredLength);
+					}
+				}
+			}
+		};
+	}
+	
+	/**
+	 * admission control, checked before accepting a store.
+	 * limits apply to bytes already in flight, not the request's own, so payload of any size gets in once others drained.
+	 * @param length payload bytes, -1 if unknown
+	 * @return 0 if admitted, otherwise milliseconds client should wait before retrying
+	 */
+	public long admit(long length)
+	{
+		long inFlight = this.inFlightBytes.get();
+		long backlog = this.usedSize.get() - this.config.getCapacity();
+		if (inFlight == 0 || this.admissionPolicy.admit(inFlight, backlog, this.getManageQueueDepth()))
+		{
+			return 0;
+		}
+		
+		this.rejectedCount.incrementAndGet();
+		long nanos = this.evictionNanos.get();
+		return this.admissionPolicy.retryAfter(backlog, nanos > 0 ? this.evictedBytes.get() * 1e6 / nanos : 0);
+	}
+	
+	public ColdReadScheduler getColdReadScheduler() {
+		return this.coldReads;
+	}
+	
+	public long getInFlightBytes() {
+		return this.inFlightBytes.get();
+	}
+	
+	/**
+	 * stores refused by admission control
+	 */
+	public long getRejectedCount() {
+		return this.rejectedCount.get();
+	}
+	
+	/**
+	 * entries dropped as storage failed to write them, see {@link #cache}
+	 */
+	public long getStoreFailedCount() {
+		return this.storeFailedCount.get();
+	}
+	
+	private ManageStripe<CacheData> stripeOf(CacheData cachedObj)
+	{
+		return this.stripes.get(Math.floorMod(cachedObj.key.hashCode(), this.stripes.size()));
+	}
+	
+	public CompletableFuture<byte[]> retrieve(UUID key) 
+	{
+		return this.retrieve(key, 0);
+	}
+	
+	/**
+	 * @param deadline epoch millis data is needed by, 0 to use hot time of entry; orders reads from disk
+	 */
+	public CompletableFuture<byte[]> retrieve(UUID key, long deadline) 
+	{
+		CacheData cachedObj = this.keyToObjectMap.remove(key);
+		CompletableFuture<byte[]> res = new CompletableFuture<byte[]>();
+		if (cachedObj != null)
+		{
+			this.unschedule(cachedObj);
+			final SlabAllocator.Payload data = cachedObj.data;
+			if (cachedObj.promotion != null) // being promoted, take over its read
+			{
+				this.promotionLateHitCount.incrementAndGet();
+				return cachedObj.promotion;
+			}else if (data == null || !data.retain()) // retain fail: evicted meanwhile, already stored
+			{
+				return this.coldReads.read(cachedObj.key, deadline > 0 ? deadline : cachedObj.hotTime); // non-blocking disk read
+			}else {
+				byte[] bytes = data.toByteArray();
+				data.release();
+				if (cachedObj.promoted) {
+					this.promotionHitCount.incrementAndGet();
+				}
+				this.stripeOf(cachedObj).publish(OP_UNTRACK, cachedObj);
+				res.complete(bytes);
+			}
+		}else {
+			res.complete(null);
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * retrieve as channel, persisted data streamed from storage without materializing it. 
+	 * @return null if not found
+	 */
+	public CompletableFuture<ReadableByteChannel> retrieveStream(UUID key)
+	{
+		CacheData cachedObj = this.keyToObjectMap.remove(key);
+		if (cachedObj == null)
+		{
+			return CompletableFuture.completedFuture(null);
+		}
+		
+		this.unschedule(cachedObj);
+		final SlabAllocator.Payload data = cachedObj.data;
+		if (cachedObj.promotion != null)
+		{
+			// data already on its way from storage, continue with that read instead of streaming it again
+			this.promotionLateHitCount.incrementAndGet();
+			return cachedObj.promotion.thenApply(bytes -> bytes == null ? null : Channels.newChannel(new ByteArrayInputStream(bytes)));
+		}else if (data == null || !data.retain())
+		{
+			// opening may read from disk, done by reading executor, not by caller (event loop)
+			return CompletableFuture.supplyAsync(() -> {
+				try {
+					return this.persistence.openRetrieve(cachedObj.key);
+				} catch (IOException e) {
+					throw new CompletionException(e);
+				}
+			}, this.readingExecutor);
+		}
+		
+		if (cachedObj.promoted) {
+			this.promotionHitCount.incrementAndGet();
+		}
+		this.stripeOf(cachedObj).publish(OP_UNTRACK, cachedObj);
+		return CompletableFuture.completedFuture(data.channel()); // read straight from off-heap chunks, reference released when channel closed
+	}
+	
+	/**
+	 * exact bytes of resident payloads
+	 */
+	public long getUsedSize() {
+		return this.usedSize.get();
+	}
+	
+	/**
+	 * entries held in memory, the others of {@link #size()} are persisted
+	 */
+	public long getResidentCount() {
+		return this.residentCount.get();
+	}
+	
+	/**
+	 * executors by name, for monitoring saturation
+	 */
+	public Map<String, ExecutorService> getExecutors() {
+		Map<String, ExecutorService> executors = new LinkedHashMap<>();
+		executors.put("reading", this.readingExecutor);
+		executors.put("eviction", this.evictionExecutor);
+		executors.put("expiry", this.expiryExecutor);
+		return executors;
+	}
+	
+	public SlabAllocator getSlabAllocator() {
+		return this.slabAllocator;
+	}
+	
+	public CompletableFuture<Void> remove(UUID key) 
+	{
+		CacheData cachedObj = this.keyToObjectMap.remove(key);
+		CompletableFuture<Void> res = new CompletableFuture<Void>();
+		if (cachedObj != null)
+		{			
+			this.unschedule(cachedObj);
+			this.discard(cachedObj, res);
+		}else {
+			res.complete(null);
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * reclaim memory/storage of entry already taken out of keyToObjectMap
+	 */
+	private void discard(CacheData cachedObj, CompletableFuture<Void> res)
+	{
+		if (cachedObj.promoted && cachedObj.data != null)
+		{
+			this.promotionWasteCount.incrementAndGet();
+		}
+		
+		if (cachedObj.data == null)
+		{
+			this.readingExecutor.execute(()->{
+				this.persistence.remove(cachedObj.key);
+				res.complete(null);
+			});
+		}else {
+			this.stripeOf(cachedObj).publish(OP_UNTRACK, cachedObj);
+			res.complete(null);
+		}
+	}
+	
+	/**
+	 * called by expiry wheel, entry already retrieved/removed is ignored.
+	 */
+	private void expire(CacheData cachedObj)
+	{
+		if (this.keyToObjectMap.remove(cachedObj.key, cachedObj))
+		{
+			this.promotionWheel.cancel(cachedObj.promotionSchedule);
+			this.expiredCount.incrementAndGet();
+			this.discard(cachedObj, new CompletableFuture<Void>());
+		}
+	}
+	
+	public long size() {
+		return this.keyToObjectMap.size();
+	}
+	
+	public long getExpiredCount() {
+		return this.expiredCount.get();
+	}
+	
+	private void schedulePromotion(CacheData cachedObj)
+	{
+		cachedObj.promotionSchedule = this.promotionWheel.schedule(cachedObj, cachedObj.hotTime - PROMOTION_LEAD);
+		if (this.keyToObjectMap.get(cachedObj.key) != cachedObj) // taken meanwhile, unschedule may have missed it
+		{
+			this.promotionWheel.cancel(cachedObj.promotionSchedule);
+		}
+	}
+	
+	private void scheduleExpiry(CacheData cachedObj)
+	{
+		cachedObj.expirySchedule = this.expiryWheel.schedule(cachedObj, cachedObj.expireAt);
+		if (this.keyToObjectMap.get(cachedObj.key) != cachedObj) // taken meanwhile, unschedule may have missed it
+		{
+			this.expiryWheel.cancel(cachedObj.expirySchedule);
+		}
+	}
+	
+	/**
+	 * entry taken out of keyToObjectMap: unlinked from wheels, so they don't hold it until due.
+	 */
+	private void unschedule(CacheData cachedObj)
+	{
+		this.expiryWheel.cancel(cachedObj.expirySchedule);
+		this.promotionWheel.cancel(cachedObj.promotionSchedule);
+	}
+	
+	/**
+	 * called by promotion wheel shortly before hot time of persisted entry:
+	 * entry swapped for a placeholder holding the read, so a retrieve meanwhile takes over the read,
+	 * then swapped for resident copy tracked as any other.
+	 */
+	private void promote(CacheData cachedObj)
+	{
+		if (cachedObj.data != null || cachedObj.hotTime < System.currentTimeMillis() // overdue, client not coming on schedule
+				|| this.keyToObjectMap.get(cachedObj.key) != cachedObj)
+		{
+			return;
+		}
+		
+		if (this.usedSize.get() > this.config.getCapacity() * PROMOTION_WATERMARK)
+		{
+			this.promotionSkippedCount.incrementAndGet();
+			return;
+		}
+		if (this.promotionsInFlight.incrementAndGet() > MAX_PROMOTIONS_IN_FLIGHT)
+		{
+			this.promotionsInFlight.decrementAndGet();
+			this.promotionSkippedCount.incrementAndGet();
+			return;
+		}
+		
+		CacheData promoting = new CacheData(cachedObj.key, null, cachedObj.hotTime, cachedObj.expireAt);
+		promoting.promotion = new CompletableFuture<>();
+		if (!this.keyToObjectMap.replace(cachedObj.key, cachedObj, promoting))
+		{
+			this.promotionsInFlight.decrementAndGet();
+			return;
+		}
+		this.expiryWheel.cancel(cachedObj.expirySchedule); // replaced, rescheduled once read back
+		
+		this.coldReads.read(cachedObj.key, cachedObj.hotTime).whenComplete((bytes, ex) -> {
+			try {
+				this.promoted(promoting, ex == null ? bytes : null);
+			} finally {
+				this.promotionsInFlight.decrementAndGet();
+			}
+		});
+	}
+	
+	private void promoted(CacheData promoting, byte[] bytes)
+	{
+		if (bytes == null) // read failed, data gone
+		{
+			this.keyToObjectMap.remove(promoting.key, promoting);
+			promoting.promotion.complete(null);
+			return;
+		}
+		
+		SlabAllocator.Payload payload = this.usedSize.get() + bytes.length <= this.config.getCapacity() * EVICTION_LOW_WATERMARK
+											? this.slabAllocator.copyOf(bytes) : null;
+		if (payload == null) // filled up meanwhile, back to storage
+		{
+			this.promotionSkippedCount.incrementAndGet();
+			this.readingExecutor.execute(() -> {
+				CacheData cachedObj = new CacheData(promoting.key, null, promoting.hotTime, promoting.expireAt);
+				if (!this.persistence.store(cachedObj.metadata(), ByteBuffer.wrap(bytes))) {
+					// nothing behind it, dropped; retriever already waiting still gets bytes from promotion read
+					this.storeFailedCount.incrementAndGet();
+					this.logger.warn("Store {} back to storage failed, entry dropped", promoting.key);
+					this.keyToObjectMap.remove(promoting.key, promoting);
+				} else if (this.keyToObjectMap.replace(promoting.key, promoting, cachedObj)) {
+					this.scheduleExpiry(cachedObj);
+				} else { // retrieved/removed meanwhile
+					this.persistence.remove(promoting.key);
+				}
+				promoting.promotion.complete(bytes);
+			});
+			return;
+		}
+		
+		CacheData cachedObj = new CacheData(promoting.key, payload, promoting.hotTime, promoting.expireAt);
+		cachedObj.promoted = true;
+		if (this.keyToObjectMap.replace(promoting.key, promoting, cachedObj))
+		{
+			this.promotedCount.incrementAndGet();
+			this.scheduleExpiry(cachedObj);
+			this.usedSize.addAndGet(payload.length());
+			this.residentCount.incrementAndGet();
+			this.stripeOf(cachedObj).publish(OP_TRACK, cachedObj);
+		}else { // retrieved/removed meanwhile, retriever gets data from promotion read
+			payload.release();
+		}
+		promoting.promotion.complete(bytes);
+	}
+	
+	/**
+	 * persisted entries read back into memory ahead of hot time
+	 */
+	public long getPromotedCount() {
+		return this.promotedCount.get();
+	}
+	
+	/**
+	 * retrieves served from memory thanks to promotion
+	 */
+	public long getPromotionHitCount() {
+		return this.promotionHitCount.get();
+	}
+	
+	/**
+	 * retrieves arrived while promotion read still in flight
+	 */
+	public long getPromotionLateHitCount() {
+		return this.promotionLateHitCount.get();
+	}
+	
+	/**
+	 * promoted entries evicted, expired or removed before retrieved
+	 */
+	public long getPromotionWasteCount() {
+		return this.promotionWasteCount.get();
+	}
+	
+	/**
+	 * promotions skipped for lack of resident space
+	 */
+	public long getPromotionSkippedCount() {
+		return this.promotionSkippedCount.get();
+	}
+	
+	private boolean isOverCapability()
+	{
+		return this.usedSize.get() - this.evictingSize.get() > this.config.getCapacity();
+	}
+	
+	/**
+	 * manage operations of one stripe, only run by the stripe thread.
+	 */
+	private class StripeHandler implements ManageStripe.Handler<CacheData>
+	{
+		final PrimitiveManagedObjectQueue<CacheData> candle;
+		final ConcurrentLinkedQueue<EvictionBatch> collectRequests = new ConcurrentLinkedQueue<>();
+		
+		StripeHandler(PrimitiveManagedObjectQueue<CacheData> candle)
+		{
+			this.candle = candle;
+		}
+		
+		@Override
+		public void handle(int operation, CacheData cachedObj) {
+			switch (operation) 
+			{
+			case OP_TRACK:
+				if (cachedObj.dropped) // untracked before tracking got through
+				{
+					AsyncMemCache.this.releaseResident(cachedObj);
+				}else {
+					this.candle.add(cachedObj, -cachedObj.hotTime); // latest hot time first, coldest evicted first
+					cachedObj.containerCandle = this.candle;
+				}
+				cachedObj.tracked = true;
+				break;
+			case OP_UNTRACK:
+				if (cachedObj.containerCandle != null)
+				{
+					this.candle.getAndRemoveAt(cachedObj.candleIndex);
+					cachedObj.containerCandle = null;
+					AsyncMemCache.this.releaseResident(cachedObj);
+				}else if (!cachedObj.tracked || cachedObj.evicting)
+				{
+					cachedObj.dropped = true; // reclaimed when track/eviction done
+				}else
+				{
+					AsyncMemCache.this.persistence.remove(cachedObj.key); // evicted earlier
+				}
+				break;
+			case OP_COLLECT:
+				this.collect(this.collectRequests.poll());
+				break;
+			case OP_EVICTED:
+				cachedObj.evicting = false;
+				AsyncMemCache.this.evictingSize.addAndGet(-cachedObj.data.length());
+				AsyncMemCache.this.releaseResident(cachedObj);
+				if (cachedObj.promoted)
+				{
+					cachedObj.promoted = false;
+					AsyncMemCache.this.promotionWasteCount.incrementAndGet();
+				}
+				if (cachedObj.dropped)
+				{
+					AsyncMemCache.this.persistence.remove(cachedObj.key);
+				}else
+				{
+					AsyncMemCache.this.schedulePromotion(cachedObj);
+				}
+				break;
+			case OP_EVICT_FAILED:
+				cachedObj.evicting = false;
+				AsyncMemCache.this.evictingSize.addAndGet(-cachedObj.data.length());
+				if (cachedObj.dropped) // retrieved/removed meanwhile
+				{
+					AsyncMemCache.this.releaseResident(cachedObj);
+				}else // back to candle, evicted again later
+				{
+					this.candle.add(cachedObj, -cachedObj.hotTime);
+					cachedObj.containerCandle = this.candle;
+				}
+				break;
+			}
+		}
+		
+		/**
+		 * take coldest entries of candle, up to the stripe share of batch.
+		 * entries stay resident (and retrievable) until batch persisted.
+		 */
+		private void collect(EvictionBatch batch)
+		{
+			long collected = 0;
+			List<CacheData> entries = new ArrayList<>();
+			while (collected < batch.sizePerStripe && this.candle.getSize() > 0)
+			{
+				CacheData cachedObj = this.candle.getAndRemoveAt(0);
+				cachedObj.containerCandle = null;
+				cachedObj.evicting = true;
+				collected += cachedObj.data.length();
+				entries.add(cachedObj);
+			}
+			AsyncMemCache.this.evictingSize.addAndGet(collected);
+			if (!batch.collected(entries)) // batch abandoned, put back
+			{
+				for (CacheData cachedObj : entries)
+				{
+					cachedObj.evicting = false;
+					this.candle.add(cachedObj, -cachedObj.hotTime);
+					cachedObj.containerCandle = this.candle;
+				}
+				AsyncMemCache.this.evictingSize.addAndGet(-collected);
+			}
+		}
+
+		@Override
+		public void endOfBatch(int batchSize) {
+			// queue cleanup once per batch
+			AsyncMemCache.this.triggerCleanup();
+		}
+	}
+	
+	private void releaseResident(CacheData cachedObj)
+	{
+		SlabAllocator.Payload data = cachedObj.data;
+		this.usedSize.addAndGet(-data.length());
+		this.residentCount.decrementAndGet();
+		cachedObj.data = null;
+		data.release();
+	}
+	
+	/**
+	 * operations drained by stripes yet
+	 */
+	public long getManageQueueDepth()
+	{
+		long depth = 0;
+		for (ManageStripe<CacheData> stripe : this.stripes)
+		{
+			depth += stripe.getQueueDepth();
+		}
+		return depth;
+	}
+	
+	/**
+	 * manage operations failed on stripes, entries they concerned may be left untracked
+	 */
+	public long getManageFailedCount()
+	{
+		long failed = 0;
+		for (ManageStripe<CacheData> stripe : this.stripes)
+		{
+			failed += stripe.getFailedCount();
+		}
+		return failed;
+	}
+	
+	/**
+	 * number of eviction batches done
+	 */
+	public long getEvictionBatchCount() {
+		return this.evictionBatchCount.get();
+	}
+	
+	/**
+	 * number of entries persisted to save space
+	 */
+	public long getEvictedCount() {
+		return this.evictedCount.get();
+	}
+	
+	/**
+	 * total time spent on eviction batches, nanoseconds
+	 */
+	public long getEvictionNanos() {
+		return this.evictionNanos.get();
+	}
+	
+	/**
+	 * total bytes of payloads persisted to save space
+	 */
+	public long getEvictedBytes() {
+		return this.evictedBytes.get();
+	}
+	
+	public int getLastEvictionBatchSize() {
+		return this.lastEvictionBatchSize;
+	}
+	
+	public long getLastEvictionNanos() {
+		return this.lastEvictionNanos;
+	}
+	
+	/**
+	 * entries eviction failed to persist, kept resident
+	 */
+	public long getEvictionFailedCount() {
+		return this.evictionFailedCount.get();
+	}
+	
+	// to ensure only 1 cleanup queued.
+	private volatile AtomicBoolean cleanupRunning = new AtomicBoolean(); 	
+	
+	private void triggerCleanup()
+	{
+		if (this.isOverCapability() && System.currentTimeMillis() >= this.evictionPausedUntil && !this.cleanupRunning.getAndSet(true)) {
+			this.evictionExecutor.execute(this::persistToSaveSpace);
+		}
+	}
+	
+	/**
+	 * evict coldest entries down to low watermark in one batch:
+	 * each stripe hands over its coldest share, all are persisted with one grouped write,
+	 * then stripes release their off-heap payloads.
+	 */
+	private void persistToSaveSpace()
+	{		
+		try {
+			long toFree = this.usedSize.get() - this.evictingSize.get() - (long)(this.config.getCapacity() * EVICTION_LOW_WATERMARK);
+			if (toFree <= 0)
+			{
+				return;
+			}
+			
+			long start = System.nanoTime();
+			EvictionBatch batch = new EvictionBatch(this.stripes.size(), toFree / this.stripes.size() + 1);
+			for (int i = 0; i < this.stripes.size(); i++)
+			{
+				this.stripeHandlers.get(i).collectRequests.offer(batch);
+				this.stripes.get(i).publish(OP_COLLECT, null);
+			}
+			
+			try {
+				batch.done.await();
+			} catch (InterruptedException e) {
+				// shutting down: half collected batch not persisted, entries given back to their candles
+				Thread.currentThread().interrupt();
+				List<CacheData> collected = batch.abandon();
+				for (CacheData cachedObj : collected)
+				{
+					this.stripeOf(cachedObj).publish(OP_EVICT_FAILED, cachedObj);
+				}
+				this.logger.warn("Eviction batch interrupted, {} collected entries kept resident", collected.size());
+				return;
+			}
+			
+			List<CacheData> entries = batch.entries;
+			if (entries.isEmpty()) 
+			{
+				return;
+			}
+			
+			List<EntryMetadata> metadata = new ArrayList<>(entries.size());
+			List<ByteBuffer[]> data = new ArrayList<>(entries.size());
+			for (CacheData cachedObj : entries)
+			{
+				metadata.add(cachedObj.metadata());
+				data.add(cachedObj.data.buffers());
+			}
+			boolean[] stored = this.persistence.storeAll(metadata, data);
+			
+			long bytes = 0;
+			int failed = 0;
+			for (int i = 0; i < entries.size(); i++)
+			{
+				CacheData cachedObj = entries.get(i);
+				if (stored[i])
+				{
+					bytes += cachedObj.data.length();
+					this.stripeOf(cachedObj).publish(OP_EVICTED, cachedObj);
+				}else // still only copy, stays resident
+				{
+					failed++;
+					this.stripeOf(cachedObj).publish(OP_EVICT_FAILED, cachedObj);
+				}
+			}
+			if (failed > 0)
+			{
+				this.evictionFailedCount.addAndGet(failed);
+				this.evictionPausedUntil = System.currentTimeMillis() + EVICTION_FAILURE_PAUSE;
+				this.logger.warn("{} of {} evicted entries not persisted, kept resident", failed, entries.size());
+			}
+			
+			long duration = System.nanoTime() - start;
+			this.lastEvictionBatchSize = entries.size() - failed;
+			this.lastEvictionNanos = duration;
+			this.evictionBatchCount.incrementAndGet();
+			this.evictedCount.addAndGet(entries.size() - failed);
+			this.evictedBytes.addAndGet(bytes);
+			this.evictionNanos.addAndGet(duration);
+			this.logger.debug("Evicted batch of {} entries in {} us", entries.size(), duration / 1000);
+		} finally {
+			this.cleanupRunning.set(false);
+			// arrivals during this batch may have missed the trigger
+			if (!Thread.currentThread().isInterrupted())
+			{
+				this.triggerCleanup();
+			}
+		}
+	}
+	
+	/**
+	 * entries collected from all stripes for one eviction.
+	 */
+	private class EvictionBatch
+	{
+		final long sizePerStripe;
+		final CountDownLatch done;
+		final List<CacheData> entries = new ArrayList<>();
+		
+		EvictionBatch(int numberOfStripes, long sizePerStripe)
+		{
+			this.sizePerStripe = sizePerStripe;
+			this.done = new CountDownLatch(numberOfStripes);
+		}
+		
+		private boolean abandoned = false;
+		
+		/**
+		 * @return false if batch abandoned meanwhile, stripe keeps its entries then
+		 */
+		boolean collected(List<CacheData> stripeEntries)
+		{
+			try {
+				synchronized (this) {
+					if (this.abandoned)
+					{
+						return false;
+					}
+					this.entries.addAll(stripeEntries);
+					return true;
+				}
+			} finally {
+				this.done.countDown();
+			}
+		}
+		
+		/**
+		 * stop collecting, stripes not collected yet keep their entries.
+		 * @return entries collected so far, to give back
+		 */
+		synchronized List<CacheData> abandon()
+		{
+			this.abandoned = true;
+			return new ArrayList<>(this.entries);
+		}
+	}
+	
+	class CacheData implements IndexableQueuedObject
+	{
+		/***
+		 * key value from client
+		 */
+		final UUID key;
+		
+		/**
+		 * payload bytes held off-heap, null when persisted
+		 */
+		volatile SlabAllocator.Payload data;
+		
+		/**
+		 * time object expected to be retrieved for async, epoch milliseconds
+		 */
+		final long hotTime;
+		
+		/**
+		 * time object dropped if not retrieved, epoch milliseconds
+		 */
+		final long expireAt;
+		
+		/**
+		 * the candle contain this object, used for fast cleanup, removal
+		 */
+		volatile PrimitiveManagedObjectQueue<CacheData> containerCandle;
+		
+		/**
+		 * the index of object in candle, used for fast removal
+		 */
+		volatile int candleIndex;
+		
+		@Override
+		public void setIndexInQueue(int idx)
+		{
+			this.candleIndex = idx;
+		}
+
+		@Override
+		public boolean isPeekable() {
+			return true;
+		}
+		
+		/**
+		 * stripe thread only: added to candle once, untrack came before track/eviction done.
+		 */
+		boolean tracked = false;
+		boolean dropped = false;
+		
+		/**
+		 * stripe thread only: taken out of candle by eviction batch, not persisted yet.
+		 */
+		boolean evicting = false;
+		
+		/**
+		 * read back from storage ahead of hot time, not retrieved yet
+		 */
+		volatile boolean promoted = false;
+		
+		/**
+		 * set on placeholder of entry being promoted, completed with data read from storage
+		 */
+		CompletableFuture<byte[]> promotion;
+		
+		/**
+		 * pending schedules on expiry/promotion wheels, cancelled once entry gone
+		 */
+		volatile ExpiryWheel.Scheduled<CacheData> expirySchedule;
+		volatile ExpiryWheel.Scheduled<CacheData> promotionSchedule;
+		
+		public CacheData(UUID key, SlabAllocator.Payload data, long hottime, long expireAt)
+		{
+			this.key = key;
+			this.data = data;
+			this.hotTime = hottime;
+			this.expireAt = expireAt;
+		}
+		
+		EntryMetadata metadata()
+		{
+			return new EntryMetadata(this.key, this.hotTime, this.expireAt);
+		}
+	}
+}
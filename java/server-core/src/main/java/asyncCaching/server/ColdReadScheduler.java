@@ -0,0 +1,233 @@
+package asyncCaching.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import asyncCaching.server.di.Persistence;
+
+/**
+ * Schedules reads of persisted entries: most urgent deadline first, at most maxConcurrentReads disk operations at a time,
+ * pending reads of same storage region ({@link Persistence#regionOf(UUID)}) dispatched together as one merged read.
+ */
+public class ColdReadScheduler {
+	private final Persistence persistence;
+	private final int maxConcurrentReads;
+	private final int maxMergedReads;
+
+	private final PriorityQueue<PendingRead> queue = new PriorityQueue<>();
+	private final Map<Long, List<PendingRead>> regionToReads = new HashMap<>();
+	private long nextSeq = 0;
+	private int inFlight = 0;
+
+	/**
+	 * dispatch requests, one thread drains while others just count, avoids recursion when reads complete synchronously
+	 */
+	private final AtomicInteger dispatchRequests = new AtomicInteger(0);
+
+	private final AtomicLong batchCount = new AtomicLong(0);
+	private final AtomicLong mergedCount = new AtomicLong(0);
+	private final AtomicLong lateCount = new AtomicLong(0);
+
+	/**
+	 * @param maxConcurrentReads disk operations in flight, a merged read counts once
+	 * @param maxMergedReads reads dispatched together at most
+	 */
+	public ColdReadScheduler(Persistence persistence, int maxConcurrentReads, int maxMergedReads) {
+		this.persistence = persistence;
+		this.maxConcurrentReads = Math.max(1, maxConcurrentReads);
+		this.maxMergedReads = Math.max(1, maxMergedReads);
+	}
+
+	/**
+	 * queue read and remove of persisted entry.
+	 * @param deadline epoch millis data is needed by, earlier ones read first
+	 */
+	public CompletableFuture<byte[]> read(UUID key, long deadline)
+	{
+		PendingRead read = new PendingRead(key, deadline, this.persistence.regionOf(key));
+		synchronized (this) {
+			read.seq = this.nextSeq++;
+			this.queue.add(read);
+			if (read.region >= 0)
+			{
+				this.regionToReads.computeIfAbsent(read.region, r -> new ArrayList<>()).add(read);
+			}
+		}
+		this.dispatch();
+		return read.result;
+	}
+
+	private void dispatch()
+	{
+		if (this.dispatchRequests.getAndIncrement() != 0)
+		{
+			return;
+		}
+
+		int requests = 1;
+		do {
+			this.drain();
+			requests = this.dispatchRequests.addAndGet(-requests);
+		} while (requests != 0);
+	}
+
+	private void drain()
+	{
+		while (true)
+		{
+			List<PendingRead> batch = this.nextBatch();
+			if (batch == null)
+			{
+				return;
+			}
+
+			long now = System.currentTimeMillis();
+			List<UUID> keys = new ArrayList<>(batch.size());
+			for (PendingRead read : batch)
+			{
+				keys.add(read.key);
+				if (read.deadline < now) {
+					this.lateCount.incrementAndGet();
+				}
+			}
+			this.batchCount.incrementAndGet();
+			this.mergedCount.addAndGet(batch.size() - 1);
+
+			List<CompletableFuture<byte[]>> results;
+			try {
+				results = batch.size() == 1 ? Collections.singletonList(this.persistence.retrieveAsync(keys.get(0))) : this.persistence.retrieveAllAsync(keys);
+			} catch (RuntimeException e) {
+				for (PendingRead read : batch)
+				{
+					read.result.completeExceptionally(e);
+				}
+				this.completed();
+				continue;
+			}
+
+			for (int i = 0; i < batch.size(); i++)
+			{
+				PendingRead read = batch.get(i);
+				results.get(i).whenComplete((data, ex) -> {
+					if (ex != null) {
+						read.result.completeExceptionally(ex);
+					} else {
+						read.result.complete(data);
+					}
+				});
+			}
+			CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).whenComplete((v, ex) -> this.completed());
+		}
+	}
+
+	/**
+	 * take most urgent read with other pending reads of its region, when a slot is free.
+	 */
+	private synchronized List<PendingRead> nextBatch()
+	{
+		if (this.inFlight >= this.maxConcurrentReads)
+		{
+			return null;
+		}
+
+		PendingRead first;
+		do {
+			first = this.queue.poll();
+			if (first == null)
+			{
+				return null;
+			}
+		} while (first.dispatched);
+
+		List<PendingRead> batch = new ArrayList<>();
+		first.dispatched = true;
+		batch.add(first);
+		if (first.region >= 0)
+		{
+			List<PendingRead> sameRegion = this.regionToReads.get(first.region);
+			for (PendingRead read : sameRegion)
+			{
+				if (!read.dispatched && batch.size() < this.maxMergedReads)
+				{
+					read.dispatched = true; // left in queue, skipped when polled
+					batch.add(read);
+				}
+			}
+			sameRegion.removeIf(read -> read.dispatched);
+			if (sameRegion.isEmpty())
+			{
+				this.regionToReads.remove(first.region);
+			}
+		}
+		this.inFlight++;
+		return batch;
+	}
+
+	private void completed()
+	{
+		synchronized (this) {
+			this.inFlight--;
+		}
+		this.dispatch();
+	}
+
+	public synchronized int getPendingReads() {
+		return (int)this.queue.stream().filter(read -> !read.dispatched).count();
+	}
+
+	public synchronized int getInFlightReads() {
+		return this.inFlight;
+	}
+
+	/**
+	 * disk operations dispatched, merged reads count once
+	 */
+	public long getBatchCount() {
+		return this.batchCount.get();
+	}
+
+	/**
+	 * reads served by other read of same region
+	 */
+	public long getMergedCount() {
+		return this.mergedCount.get();
+	}
+
+	/**
+	 * reads dispatched after their deadline passed
+	 */
+	public long getLateCount() {
+		return this.lateCount.get();
+	}
+
+	static class PendingRead implements Comparable<PendingRead>
+	{
+		final UUID key;
+		final long deadline;
+		final long region;
+		final CompletableFuture<byte[]> result = new CompletableFuture<>();
+		long seq;
+		boolean dispatched = false;
+
+		PendingRead(UUID key, long deadline, long region)
+		{
+			this.key = key;
+			this.deadline = deadline;
+			this.region = region;
+		}
+
+		@Override
+		public int compareTo(PendingRead other) {
+			int c = Long.compare(this.deadline, other.deadline);
+			return c != 0 ? c : Long.compare(this.seq, other.seq);
+		}
+	}
+}
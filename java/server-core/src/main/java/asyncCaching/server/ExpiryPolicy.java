@@ -0,0 +1,37 @@
+package asyncCaching.server;
+
+/**
+ * max lifetime of cached entries, to reclaim entries never retrieved (ex: client crashed).
+ * lifetime = max(expectedDuration * expectedDurationMultiple, minLifetime)
+ */
+public class ExpiryPolicy {
+	private final double expectedDurationMultiple;
+	private final long minLifetime;
+
+	/**
+	 * @param expectedDurationMultiple lifetime relative to expectedDuration from client, 0 to disable
+	 * @param minLifetime absolute lifetime in milliseconds, also lower bound for relative lifetime
+	 */
+	public ExpiryPolicy(double expectedDurationMultiple, long minLifetime) {
+		this.expectedDurationMultiple = expectedDurationMultiple;
+		this.minLifetime = minLifetime;
+	}
+
+	public static ExpiryPolicy multipleOfExpectedDuration(double multiple, long minLifetime)
+	{
+		return new ExpiryPolicy(multiple, minLifetime);
+	}
+
+	public static ExpiryPolicy absolute(long lifetime)
+	{
+		return new ExpiryPolicy(0, lifetime);
+	}
+
+	/**
+	 * @return lifetime in milliseconds
+	 */
+	public long lifetime(long expectedDuration)
+	{
+		return Math.max((long)(expectedDuration * this.expectedDurationMultiple), this.minLifetime);
+	}
+}
@@ -0,0 +1,141 @@
+package asyncCaching.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * hashed timing wheel, schedule is O(1), each tick only visits entries of its bucket.
+ * entries further than one rotation stay in their bucket until their round comes.
+ * cancel unlinks entry from its bucket, so cancelled items are not referenced any more.
+ * an item cancelled while its tick runs may still be expired, expire action should ignore entries already gone.
+ */
+public class ExpiryWheel<T> {
+	private final long tickDuration;
+	private final List<List<Scheduled<T>>> buckets;
+	private final Consumer<T> expireAction;
+	private volatile long lastTick;
+
+	/**
+	 * @param tickDuration milliseconds per bucket
+	 * @param wheelSize number of buckets
+	 * @param expireAction called on advancing thread for each expired item
+	 */
+	public ExpiryWheel(long tickDuration, int wheelSize, long now, Consumer<T> expireAction) {
+		this.tickDuration = tickDuration;
+		this.expireAction = expireAction;
+		this.buckets = new ArrayList<>(wheelSize);
+		for (int i = 0; i < wheelSize; i++)
+		{
+			this.buckets.add(new ArrayList<>());
+		}
+		this.lastTick = now / tickDuration - 1;
+	}
+
+	/**
+	 * @return handle to cancel the schedule
+	 */
+	public Scheduled<T> schedule(T item, long expireAt)
+	{
+		// past ticks won't be visited again, put to next one.
+		long tick = Math.max(expireAt / this.tickDuration, this.lastTick + 1);
+		List<Scheduled<T>> bucket = this.buckets.get((int)(tick % this.buckets.size()));
+		Scheduled<T> scheduled = new Scheduled<>(item, expireAt, bucket);
+		synchronized (bucket) {
+			scheduled.index = bucket.size();
+			bucket.add(scheduled);
+		}
+		return scheduled;
+	}
+	
+	/**
+	 * unlink from bucket in O(1), no-op if null, already expired or cancelled.
+	 */
+	public void cancel(Scheduled<T> scheduled)
+	{
+		if (scheduled == null)
+		{
+			return;
+		}
+		
+		List<Scheduled<T>> bucket = scheduled.bucket;
+		synchronized (bucket) {
+			if (scheduled.index >= 0)
+			{
+				unlink(bucket, scheduled.index);
+			}
+		}
+	}
+	
+	/**
+	 * swap with last and drop, bucket lock held
+	 */
+	private static <T> Scheduled<T> unlink(List<Scheduled<T>> bucket, int index)
+	{
+		Scheduled<T> removed = bucket.get(index);
+		Scheduled<T> last = bucket.remove(bucket.size() - 1);
+		if (last != removed)
+		{
+			bucket.set(index, last);
+			last.index = index;
+		}
+		removed.index = -1;
+		return removed;
+	}
+
+	/**
+	 * expire items of all ticks fully elapsed until now, expected to be called from single thread.
+	 * @return number of expired items
+	 */
+	public int advance(long now)
+	{
+		int expired = 0;
+		long lastElapsedTick = now / this.tickDuration - 1;
+		for (long tick = this.lastTick + 1; tick <= lastElapsedTick; tick++)
+		{
+			this.lastTick = tick; // new schedules for this tick go to next one from now
+			long tickEnd = (tick + 1) * this.tickDuration;
+			List<Scheduled<T>> bucket = this.buckets.get((int)(tick % this.buckets.size()));
+			List<Scheduled<T>> due = new ArrayList<>();
+			synchronized (bucket) {
+				for (int i = bucket.size() - 1; i >= 0; i--)
+				{
+					// entries of later rounds stay
+					if (bucket.get(i).expireAt < tickEnd)
+					{
+						due.add(unlink(bucket, i));
+					}
+				}
+			}
+
+			for (Scheduled<T> e : due)
+			{
+				this.expireAction.accept(e.item);
+			}
+			expired += due.size();
+		}
+		return expired;
+	}
+
+	/**
+	 * an item scheduled in a bucket
+	 */
+	public static final class Scheduled<T>
+	{
+		final T item;
+		final long expireAt;
+		final List<Scheduled<T>> bucket;
+		
+		/**
+		 * position in bucket, -1 once expired or cancelled; guarded by bucket lock
+		 */
+		int index;
+
+		Scheduled(T item, long expireAt, List<Scheduled<T>> bucket)
+		{
+			this.item = item;
+			this.expireAt = expireAt;
+			this.bucket = bucket;
+		}
+	}
+}
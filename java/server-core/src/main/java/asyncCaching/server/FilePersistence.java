@@ -0,0 +1,306 @@
+package asyncCaching.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import asyncCaching.server.di.AbortableChannel;
+import asyncCaching.server.di.EntryMetadata;
+import asyncCaching.server.di.FileRegion;
+import asyncCaching.server.di.Persistence;
+import asyncCaching.server.di.RecoveryListener;
+
+/**
+ * One file per entry, named by key: [long hotTime][long expireAt][byte codec][payload].
+ * written to temp file then renamed, so a crash never leaves a partial entry behind.
+ */
+public class FilePersistence implements Persistence {
+	private Logger logger = LoggerFactory.getLogger(FilePersistence.class);
+	private static final int METADATA_SIZE = 17;
+	private static final String TEMP_SUFFIX = ".tmp";
+	private static final String BAD_SUFFIX = ".bad";
+	
+	private String baseFolder;
+	private PayloadCompression compression;
+	public FilePersistence(String basefolder) {
+		this(basefolder, PayloadCompression.disabled());
+	}
+
+	/**
+	 * @param compression compression of stored payloads, streamed ones are always kept raw
+	 */
+	public FilePersistence(String basefolder, PayloadCompression compression) {
+		this.baseFolder = basefolder;
+		this.compression = compression;
+	}
+	
+	@Override
+	public boolean store(EntryMetadata metadata, ByteBuffer... data) {
+		return this.write(metadata, data);
+	}
+
+	/**
+	 * one file per entry, each written on its own.
+	 */
+	@Override
+	public boolean[] storeAll(List<EntryMetadata> entries, List<ByteBuffer[]> data) {
+		boolean[] stored = new boolean[entries.size()];
+		for (int i = 0; i < entries.size(); i++)
+		{
+			stored[i] = this.write(entries.get(i), data.get(i));
+		}
+		return stored;
+	}
+
+	private boolean write(EntryMetadata metadata, ByteBuffer... data) {
+		ByteBuffer compressed = this.compression.compress(data);
+		if (compressed != null) {
+			data = new ByteBuffer[] { compressed };
+		}
+		AbortableChannel channel;
+		try {
+			channel = this.openStore(metadata, compressed == null ? PayloadCompression.CODEC_NONE : PayloadCompression.CODEC_DEFLATE);
+		} catch (IOException e) {
+			this.logger.error("Store {} in {} failed", metadata.getKey(), this.baseFolder, e);
+			return false;
+		}
+		try {
+			for (ByteBuffer buffer : data) {
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			}
+			channel.close();
+			return true;
+		} catch (IOException e) {
+			this.logger.error("Store {} in {} failed", metadata.getKey(), this.baseFolder, e);
+			try {
+				channel.abort(); // partial temp file never renamed into place
+			} catch (IOException e1) {
+				e.addSuppressed(e1);
+			}
+			return false;
+		}
+	}
+
+	@Override
+	public byte[] retrieve(UUID key) {	    
+		Path path = Paths.get(this.baseFolder + key);
+		byte[] res = null;
+		try {
+			byte[] content = Files.readAllBytes(path);
+			res = this.decode(content);
+			Files.delete(path);
+		} catch (NoSuchFileException e) {
+			this.logger.debug("Retrieve {}, not found", key);
+		} catch (IOException e) {
+			this.logger.error("Retrieve {} from {} failed", key, path, e);
+		}		
+		return res;
+	}
+
+	@Override
+	public CompletableFuture<byte[]> retrieveAsync(UUID key) {
+		Path path = Paths.get(this.baseFolder + key);
+		try {
+			AsynchronousFileChannel channel = AsynchronousFileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE);
+			return AsyncFileReads.read(channel, 0, (int)channel.size()).handle((content, ex) -> {
+				try {
+					channel.close();
+				} catch (IOException e) {
+					this.logger.warn("Close {} failed, file may be left behind", path, e);
+				}
+				if (ex != null) {
+					this.logger.error("Read {} from {} failed", key, path, ex);
+					return null;
+				}
+				try {
+					return this.decode(content);
+				} catch (IOException e) {
+					// file already deleted on close, corrupt entry reported as not found
+					this.logger.error("Decode {} from {} failed, corrupt compressed payload", key, path, e);
+					return null;
+				}
+			});
+		} catch (NoSuchFileException e) {
+			this.logger.debug("Retrieve {}, not found", key);
+			return CompletableFuture.completedFuture(null);
+		} catch (IOException e) {
+			this.logger.error("Open {} for {} failed", path, key, e);
+			return CompletableFuture.completedFuture(null);
+		}
+	}
+
+	@Override
+	public void remove(UUID key) {
+		Path path = Paths.get(this.baseFolder + key);
+		try {
+			Files.deleteIfExists(path);
+		} catch (IOException e) {
+			this.logger.warn("Remove {} at {} failed", key, path, e);
+		}
+	}
+	
+	/**
+	 * strip metadata from file content, decompress payload if needed.
+	 */
+	private byte[] decode(byte[] content) throws IOException
+	{
+		byte[] payload = Arrays.copyOfRange(content, METADATA_SIZE, content.length);
+		return content[METADATA_SIZE - 1] == PayloadCompression.CODEC_DEFLATE ? this.compression.decompress(payload) : payload;
+	}
+	
+	@Override
+	public AbortableChannel openStore(EntryMetadata metadata, long length) throws IOException {
+		return this.openStore(metadata, PayloadCompression.CODEC_NONE);
+	}
+
+	private AbortableChannel openStore(EntryMetadata metadata, byte codec) throws IOException {
+		Path path = Paths.get(this.baseFolder + metadata.getKey());
+		Path tempPath = Paths.get(this.baseFolder + metadata.getKey() + TEMP_SUFFIX);
+		FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		ByteBuffer header = ByteBuffer.allocate(METADATA_SIZE);
+		header.putLong(metadata.getHotTime());
+		header.putLong(metadata.getExpireAt());
+		header.put(codec);
+		header.flip();
+		while (header.hasRemaining()) {
+			channel.write(header);
+		}
+		
+		return new AbortableChannel() {
+			@Override
+			public boolean isOpen() {
+				return channel.isOpen();
+			}
+
+			@Override
+			public int write(ByteBuffer src) throws IOException {
+				return channel.write(src);
+			}
+
+			@Override
+			public void close() throws IOException {
+				if (channel.isOpen()) {
+					channel.close();
+					Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				}
+			}
+
+			@Override
+			public void abort() throws IOException {
+				if (channel.isOpen()) {
+					channel.close();
+					Files.deleteIfExists(tempPath);
+				}
+			}
+		};
+	}
+
+	/**
+	 * @return {@link FileRegion} of raw payload, decompressing channel over it for compressed one.
+	 */
+	@Override
+	public ReadableByteChannel openRetrieve(UUID key) throws IOException {
+		Path path = Paths.get(this.baseFolder + key);
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE);
+		ByteBuffer codec = ByteBuffer.allocate(1);
+		channel.read(codec, METADATA_SIZE - 1);
+		FileRegion region = new FileRegion(path, METADATA_SIZE, channel.size() - METADATA_SIZE) {
+			@Override
+			protected int readAt(ByteBuffer dst, long position) throws IOException {
+				return channel.read(dst, position);
+			}
+
+			@Override
+			protected void release() throws IOException {
+				channel.close();
+			}
+		};
+		return codec.get(0) == PayloadCompression.CODEC_DEFLATE ? this.compression.decompressing(region) : region;
+	}
+
+	/**
+	 * files are the index, only need to read metadata of each, in parallel.
+	 * entry files that cannot be read back are renamed with {@link #BAD_SUFFIX}, kept aside and never recovered again.
+	 */
+	@Override
+	public void recover(RecoveryListener listener) {
+		List<Path> files;
+		try (Stream<Path> list = Files.list(Paths.get(this.baseFolder))) {
+			files = list.collect(Collectors.toList());
+		} catch (IOException e) {
+			this.logger.error("Recover {} failed, nothing recovered", this.baseFolder, e);
+			return;
+		}
+		
+		files.parallelStream().forEach(path -> {
+			String name = path.getFileName().toString();
+			if (name.endsWith(BAD_SUFFIX)) {
+				return;
+			}
+			
+			UUID key;
+			try {
+				if (name.endsWith(TEMP_SUFFIX)) { // unfinished store
+					Files.delete(path);
+					return;
+				}
+				key = UUID.fromString(name);
+			} catch (IllegalArgumentException e) {
+				this.logger.debug("Recover skipped {}, not an entry file", path);
+				return;
+			} catch (IOException e) {
+				this.logger.warn("Delete unfinished store {} failed", path, e);
+				return;
+			}
+			
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				// compressed payload starts with its original length
+				ByteBuffer header = ByteBuffer.allocate(METADATA_SIZE + 4);
+				while (header.hasRemaining() && channel.read(header) >= 0);
+				if (header.position() < METADATA_SIZE) {
+					this.logger.warn("Recover {} skipped, {} truncated", key, path);
+				} else {
+					header.flip();
+					EntryMetadata metadata = new EntryMetadata(key, header.getLong(), header.getLong());
+					long length = header.get() == PayloadCompression.CODEC_DEFLATE && header.remaining() == 4
+									? header.getInt() : channel.size() - METADATA_SIZE;
+					listener.recovered(metadata, length);
+					return;
+				}
+			} catch (IOException e) {
+				this.logger.warn("Recover {} skipped, {} unreadable", key, path, e);
+			}
+			this.setAside(path);
+		});
+	}
+
+	/**
+	 * rename bad entry file so later recoveries skip it.
+	 */
+	private void setAside(Path path) {
+		try {
+			Files.move(path, Paths.get(path + BAD_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			this.logger.error("Set aside {} failed", path, e);
+		}
+	}
+}
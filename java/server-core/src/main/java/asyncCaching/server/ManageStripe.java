@@ -0,0 +1,167 @@
+package asyncCaching.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Single-writer manage stripe, disruptor style.
+ * producers claim a slot of a preallocated ring and publish (operation, target) into it,
+ * one consumer thread drains published slots in batches and hands them to handler,
+ * so all state owned by the stripe (ex: its candle) is only touched by that thread and no per-op task/future is allocated.
+ */
+public class ManageStripe<T> implements AutoCloseable {
+	private Logger logger = LoggerFactory.getLogger(ManageStripe.class);
+	private static final long IDLE_PARK_NANOS = 1_000_000;
+	private static final long FULL_PARK_NANOS = 10_000;
+
+	public interface Handler<T>
+	{
+		void handle(int operation, T target);
+
+		/**
+		 * called after each drained batch, on stripe thread.
+		 */
+		void endOfBatch(int batchSize);
+	}
+
+	private final int mask;
+	private final int[] operations;
+	private final Object[] targets;
+	private final AtomicLongArray published;
+	private final AtomicLong claimed = new AtomicLong();
+	private volatile long consumed = 0;
+	private volatile boolean sleeping = false;
+	private volatile boolean running = true;
+
+	/**
+	 * operations whose handler threw, stripe went on with next ones
+	 */
+	private final AtomicLong failedCount = new AtomicLong();
+
+	private final int maxBatchSize;
+	private final Handler<T> handler;
+	private final Thread thread;
+
+	/**
+	 * @param ringSize rounded up to power of 2
+	 * @param maxBatchSize max operations drained before endOfBatch
+	 */
+	public ManageStripe(String name, int ringSize, int maxBatchSize, Handler<T> handler) {
+		int capacity = Integer.highestOneBit(Math.max(ringSize, 2) - 1) << 1;
+		this.mask = capacity - 1;
+		this.operations = new int[capacity];
+		this.targets = new Object[capacity];
+		this.published = new AtomicLongArray(capacity);
+		for (int i = 0; i < capacity; i++)
+		{
+			this.published.set(i, -1);
+		}
+		this.maxBatchSize = maxBatchSize;
+		this.handler = handler;
+
+		this.thread = new Thread(this::drainLoop, name);
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * publish operation, park while ring full (backpressure on producers).
+	 */
+	public void publish(int operation, T target)
+	{
+		long seq = this.claimed.getAndIncrement();
+		while (seq - this.consumed > this.mask)
+		{
+			LockSupport.parkNanos(FULL_PARK_NANOS);
+		}
+
+		int slot = (int)(seq & this.mask);
+		this.operations[slot] = operation;
+		this.targets[slot] = target;
+		this.published.set(slot, seq); // release operation/target to consumer
+
+		if (this.sleeping)
+		{
+			LockSupport.unpark(this.thread);
+		}
+	}
+
+	/**
+	 * operations published but not drained yet.
+	 */
+	public long getQueueDepth()
+	{
+		return this.claimed.get() - this.consumed;
+	}
+
+	/**
+	 * operations failed in handler
+	 */
+	public long getFailedCount()
+	{
+		return this.failedCount.get();
+	}
+
+	public boolean isStripeThread()
+	{
+		return Thread.currentThread() == this.thread;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void drainLoop()
+	{
+		long next = 0;
+		while (this.running)
+		{
+			int n = 0;
+			while (n < this.maxBatchSize && this.published.get((int)((next + n) & this.mask)) == next + n)
+			{
+				n++;
+			}
+
+			if (n == 0)
+			{
+				this.sleeping = true;
+				if (this.published.get((int)(next & this.mask)) != next)
+				{
+					LockSupport.parkNanos(IDLE_PARK_NANOS);
+				}
+				this.sleeping = false;
+				continue;
+			}
+
+			for (int i = 0; i < n; i++)
+			{
+				int slot = (int)((next + i) & this.mask);
+				int operation = this.operations[slot];
+				T target = (T)this.targets[slot];
+				this.targets[slot] = null;
+				try {
+					this.handler.handle(operation, target);
+				} catch (RuntimeException ex) {
+					this.failedCount.incrementAndGet();
+					this.logger.error("Stripe {} operation {} failed", this.thread.getName(), operation, ex);
+				}
+			}
+
+			next += n;
+			this.consumed = next;
+			this.handler.endOfBatch(n);
+		}
+	}
+
+	@Override
+	public void close() {
+		this.running = false;
+		LockSupport.unpark(this.thread);
+		try {
+			this.thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,279 @@
+package asyncCaching.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import asyncCaching.server.di.FileRegion;
+
+/**
+ * Optional block compression of persisted payloads, pure java Deflater.
+ * persistences keep codec flag per entry, small or incompressible payloads stay raw.
+ * compressed block: [int originalLength][deflated bytes]
+ */
+public class PayloadCompression {
+	public static final byte CODEC_NONE = 0;
+	public static final byte CODEC_DEFLATE = 1;
+
+	private final boolean enabled;
+	private final int level;
+	private final int minSize;
+	private final double maxRatio;
+
+	private final ThreadLocal<Deflater> deflaters;
+	private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(Inflater::new);
+
+	private final AtomicLong compressedCount = new AtomicLong();
+	private final AtomicLong skippedCount = new AtomicLong();
+	private final AtomicLong rawBytes = new AtomicLong();
+	private final AtomicLong storedBytes = new AtomicLong();
+	private final AtomicLong compressNanos = new AtomicLong();
+	private final AtomicLong decompressNanos = new AtomicLong();
+
+	/**
+	 * @param level Deflater level, BEST_SPEED favours eviction throughput
+	 * @param minSize payloads smaller than this are stored raw
+	 * @param maxRatio keep compressed block only if compressed/original below this
+	 */
+	public PayloadCompression(int level, int minSize, double maxRatio) {
+		this(true, level, minSize, maxRatio);
+	}
+
+	private PayloadCompression(boolean enabled, int level, int minSize, double maxRatio) {
+		this.enabled = enabled;
+		this.level = level;
+		this.minSize = minSize;
+		this.maxRatio = maxRatio;
+		this.deflaters = ThreadLocal.withInitial(() -> new Deflater(this.level));
+	}
+
+	public static PayloadCompression disabled()
+	{
+		return new PayloadCompression(false, Deflater.NO_COMPRESSION, Integer.MAX_VALUE, 0);
+	}
+
+	/**
+	 * @return compressed block, null if payload should be stored raw
+	 */
+	public ByteBuffer compress(ByteBuffer[] payload)
+	{
+		long length = 0;
+		for (ByteBuffer buffer : payload)
+		{
+			length += buffer.remaining();
+		}
+		if (!this.enabled || length < this.minSize || length > Integer.MAX_VALUE)
+		{
+			return null;
+		}
+
+		long start = System.nanoTime();
+		Deflater deflater = this.deflaters.get();
+		deflater.reset();
+		byte[] out = new byte[(int)Math.min(Integer.MAX_VALUE - 8, 4 + length / 2 + 64)];
+		int outLength = 4;
+		for (ByteBuffer buffer : payload)
+		{
+			setInput(deflater, buffer.duplicate());
+			while (!deflater.needsInput())
+			{
+				if (outLength == out.length) {
+					out = Arrays.copyOf(out, out.length * 2);
+				}
+				outLength += deflater.deflate(out, outLength, out.length - outLength);
+			}
+		}
+		deflater.finish();
+		while (!deflater.finished())
+		{
+			if (outLength == out.length) {
+				out = Arrays.copyOf(out, out.length * 2);
+			}
+			outLength += deflater.deflate(out, outLength, out.length - outLength);
+		}
+		this.compressNanos.addAndGet(System.nanoTime() - start);
+
+		this.rawBytes.addAndGet(length);
+		if (outLength >= length * this.maxRatio)
+		{
+			this.skippedCount.incrementAndGet();
+			this.storedBytes.addAndGet(length);
+			return null;
+		}
+
+		this.compressedCount.incrementAndGet();
+		this.storedBytes.addAndGet(outLength);
+		ByteBuffer block = ByteBuffer.wrap(out, 0, outLength);
+		block.putInt(0, (int)length);
+		return block;
+	}
+
+	public byte[] decompress(byte[] block) throws IOException
+	{
+		long start = System.nanoTime();
+		ByteBuffer in = ByteBuffer.wrap(block);
+		byte[] data = new byte[in.getInt()];
+		Inflater inflater = this.inflaters.get();
+		inflater.reset();
+		inflater.setInput(block, 4, block.length - 4);
+		try {
+			int n = 0;
+			while (n < data.length && !inflater.finished())
+			{
+				int inflated = inflater.inflate(data, n, data.length - n);
+				if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					throw new IOException("truncated compressed payload");
+				}
+				n += inflated;
+			}
+		} catch (DataFormatException e) {
+			throw new IOException(e);
+		}
+		this.decompressNanos.addAndGet(System.nanoTime() - start);
+		return data;
+	}
+
+	/**
+	 * Deflater.setInput(ByteBuffer) is java 11, off-heap chunks copied to heap
+	 */
+	private static void setInput(Deflater deflater, ByteBuffer buffer)
+	{
+		if (buffer.hasArray()) {
+			deflater.setInput(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+		} else {
+			byte[] copy = new byte[buffer.remaining()];
+			buffer.get(copy);
+			deflater.setInput(copy);
+		}
+	}
+
+	/**
+	 * decompressed data of compressed block region, closing it closes region.
+	 */
+	public InflatingChannel decompressing(FileRegion block)
+	{
+		return new InflatingChannel(block);
+	}
+
+	/**
+	 * either read as blocking channel, inflating while reading region,
+	 * or region read by async reader and its chunks passed to {@link #inflate(ByteBuffer)} in order, so no thread waits on disk.
+	 */
+	public class InflatingChannel implements ReadableByteChannel
+	{
+		private final FileRegion block;
+		private final Inflater inflater = new Inflater();
+		private int headerRemaining = 4; // original length, not needed for streaming
+		private ReadableByteChannel blocking;
+
+		InflatingChannel(FileRegion block)
+		{
+			this.block = block;
+		}
+
+		/**
+		 * compressed block to read from
+		 */
+		public FileRegion getRegion() {
+			return this.block;
+		}
+
+		/**
+		 * @param chunk next bytes of compressed block
+		 * @return data inflated from chunk, may be empty
+		 */
+		public ByteBuffer inflate(ByteBuffer chunk) throws IOException
+		{
+			long start = System.nanoTime();
+			while (this.headerRemaining > 0 && chunk.hasRemaining())
+			{
+				chunk.get();
+				this.headerRemaining--;
+			}
+			if (!chunk.hasRemaining() || this.inflater.finished())
+			{
+				return ByteBuffer.allocate(0);
+			}
+
+			byte[] in = new byte[chunk.remaining()];
+			chunk.get(in);
+			this.inflater.setInput(in);
+			ByteArrayOutputStream out = new ByteArrayOutputStream(2 * in.length);
+			byte[] buffer = new byte[8192];
+			try {
+				while (!this.inflater.needsInput() && !this.inflater.finished())
+				{
+					int n = this.inflater.inflate(buffer);
+					if (n == 0 && this.inflater.needsDictionary()) {
+						throw new IOException("invalid compressed payload");
+					}
+					out.write(buffer, 0, n);
+				}
+			} catch (DataFormatException e) {
+				throw new IOException(e);
+			}
+			PayloadCompression.this.decompressNanos.addAndGet(System.nanoTime() - start);
+			return ByteBuffer.wrap(out.toByteArray());
+		}
+
+		@Override
+		public int read(ByteBuffer dst) throws IOException {
+			if (this.blocking == null)
+			{
+				InputStream in = Channels.newInputStream(this.block);
+				new DataInputStream(in).readInt();
+				this.headerRemaining = 0;
+				this.blocking = Channels.newChannel(new InflaterInputStream(in, this.inflater));
+			}
+			return this.blocking.read(dst);
+		}
+
+		@Override
+		public boolean isOpen() {
+			return this.block.isOpen();
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.inflater.end();
+			this.block.close();
+		}
+	}
+
+	public long getCompressedCount() {
+		return this.compressedCount.get();
+	}
+
+	/**
+	 * payloads over min size stored raw as not compressible enough
+	 */
+	public long getSkippedCount() {
+		return this.skippedCount.get();
+	}
+
+	/**
+	 * stored/original bytes of payloads considered for compression, 1 if none yet
+	 */
+	public double getRatio() {
+		long raw = this.rawBytes.get();
+		return raw > 0 ? 1.0 * this.storedBytes.get() / raw : 1;
+	}
+
+	public long getCompressNanos() {
+		return this.compressNanos.get();
+	}
+
+	public long getDecompressNanos() {
+		return this.decompressNanos.get();
+	}
+}
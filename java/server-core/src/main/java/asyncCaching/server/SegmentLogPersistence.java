@@ -0,0 +1,1122 @@
+package asyncCaching.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import asyncCaching.server.di.AbortableChannel;
+import asyncCaching.server.di.EntryMetadata;
+import asyncCaching.server.di.FileRegion;
+import asyncCaching.server.di.Persistence;
+import asyncCaching.server.di.RecoveryListener;
+
+/**
+ * Log-structured persistence: payloads appended to rolling segment files,
+ * in-memory key -> (segment, offset, length) index, tombstone appended when entry retrieved/removed,
+ * background compaction rewrites live records of mostly-dead segments and deletes them.
+ *
+ * record: [byte type][byte codec][long keyMsb][long keyLsb][int length][long hotTime][long expireAt][payload]
+ * payloads stored by {@link #store} are compressed per {@link PayloadCompression}, codec tells how each one was written.
+ * tombstone payload is the (segment id, offset) of the killed record,
+ * kept by compaction only while that segment still exists.
+ * segments left by previous run are scanned in parallel by {@link #recover(RecoveryListener)}.
+ */
+public class SegmentLogPersistence implements Persistence, AutoCloseable {
+	private Logger logger = LoggerFactory.getLogger(SegmentLogPersistence.class);
+
+	static final byte RECORD_DATA = 1;
+	static final byte RECORD_TOMBSTONE = 2;
+	static final byte RECORD_ABORTED = 3;
+	static final int HEADER_SIZE = 1 + 1 + 8 + 8 + 4 + 8 + 8;
+	private static final int TOMBSTONE_SIZE = 8 + 8;
+	private static final int RECOVERY_READ_SIZE = 1024 * 1024;
+	private static final long MERGE_MAX_GAP = 64 * 1024;
+	private static final long MERGE_MAX_SIZE = 4 * 1024 * 1024;
+	private static final String SEGMENT_PREFIX = "segment-";
+	private static final String SEGMENT_SUFFIX = ".log";
+
+	private final String baseFolder;
+	private final long segmentSize;
+	private final double compactionThreshold;
+	private final ConcurrentHashMap<UUID, Location> index = new ConcurrentHashMap<>();
+	private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+	private final AtomicLong nextSegmentId = new AtomicLong();
+	private volatile Segment activeSegment;
+	private final ScheduledExecutorService compactionExecutor;
+	
+	/**
+	 * tombstones appended in background, killing a record never blocks reader/event loop on disk write.
+	 */
+	private final ExecutorService tombstoneExecutor;
+	private static final long TOMBSTONE_DRAIN_SECONDS = 10;
+	private final PayloadCompression compression;
+	private final AtomicLong mergedReadCount = new AtomicLong();
+	private final AtomicLong bytesWritten = new AtomicLong();
+	private final AtomicLong bytesRead = new AtomicLong();
+
+	/**
+	 * segment ids left by previous run, compaction paused until they are recovered.
+	 */
+	private final List<Long> segmentsToRecover = new ArrayList<>();
+	private volatile boolean recovering;
+
+	/**
+	 * @param baseFolder folder to keep segment files
+	 * @param segmentSize roll to new segment when active one reach this size
+	 * @param compactionThreshold compact sealed segment when live bytes ratio below this
+	 * @param compactionInterval seconds between compaction checks
+	 */
+	public SegmentLogPersistence(String baseFolder, long segmentSize, double compactionThreshold, int compactionInterval) throws IOException {
+		this(baseFolder, segmentSize, compactionThreshold, compactionInterval, PayloadCompression.disabled());
+	}
+
+	/**
+	 * @param compression compression of stored payloads, streamed ones are always kept raw
+	 */
+	public SegmentLogPersistence(String baseFolder, long segmentSize, double compactionThreshold, int compactionInterval, PayloadCompression compression) throws IOException {
+		this.baseFolder = baseFolder;
+		this.compression = compression;
+		this.segmentSize = segmentSize;
+		this.compactionThreshold = compactionThreshold;
+
+		Files.createDirectories(Paths.get(baseFolder));
+		try (Stream<Path> files = Files.list(Paths.get(baseFolder))) {
+			files.map(p -> p.getFileName().toString())
+					.filter(n -> n.startsWith(SEGMENT_PREFIX) && n.endsWith(SEGMENT_SUFFIX))
+					.mapToLong(n -> Long.parseLong(n.substring(SEGMENT_PREFIX.length(), n.length() - SEGMENT_SUFFIX.length())))
+					.sorted()
+					.forEach(this.segmentsToRecover::add);
+			this.nextSegmentId.set(this.segmentsToRecover.isEmpty() ? 0 : this.segmentsToRecover.get(this.segmentsToRecover.size() - 1) + 1);
+			this.recovering = !this.segmentsToRecover.isEmpty();
+		}
+		this.activeSegment = this.newSegment(this.segmentSize);
+
+		this.compactionExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "segment-compaction");
+			t.setDaemon(true);
+			return t;
+		});
+		this.compactionExecutor.scheduleWithFixedDelay(this::compact, compactionInterval, compactionInterval, TimeUnit.SECONDS);
+		this.tombstoneExecutor = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "segment-tombstones");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	@Override
+	public boolean store(EntryMetadata metadata, ByteBuffer... data) {
+		try {
+			ByteBuffer compressed = this.compression.compress(data);
+			Location loc = compressed == null
+							? this.append(RECORD_DATA, PayloadCompression.CODEC_NONE, metadata.getKey(), metadata.getHotTime(), metadata.getExpireAt(), data)
+							: this.append(RECORD_DATA, PayloadCompression.CODEC_DEFLATE, metadata.getKey(), metadata.getHotTime(), metadata.getExpireAt(), compressed);
+			this.publish(metadata.getKey(), loc);
+			return true;
+		} catch (IOException e) {
+			this.logger.error("Store {} failed", metadata.getKey(), e);
+			return false;
+		}
+	}
+
+	/**
+	 * group write: records appended in one reserved region and forced to disk once,
+	 * split only where the batch would overflow a segment.
+	 */
+	@Override
+	public boolean[] storeAll(List<EntryMetadata> entries, List<ByteBuffer[]> raw) {
+		boolean[] stored = new boolean[entries.size()];
+		List<ByteBuffer[]> data = new ArrayList<>(raw.size());
+		byte[] codecs = new byte[raw.size()];
+		for (ByteBuffer[] payload : raw)
+		{
+			ByteBuffer compressed = this.compression.compress(payload);
+			codecs[data.size()] = compressed == null ? PayloadCompression.CODEC_NONE : PayloadCompression.CODEC_DEFLATE;
+			data.add(compressed == null ? payload : new ByteBuffer[] { compressed });
+		}
+
+		int from = 0;
+		while (from < entries.size())
+		{
+			long size = 0;
+			int to = from;
+			while (to < entries.size() && (to == from || size + recordSize(data.get(to)) <= this.segmentSize))
+			{
+				size += recordSize(data.get(to));
+				to++;
+			}
+
+			try {
+				Location[] locs = this.appendAll(entries.subList(from, to), data.subList(from, to), codecs, from, size);
+				for (int i = 0; i < locs.length; i++)
+				{
+					this.publish(entries.get(from + i).getKey(), locs[i]);
+					stored[from + i] = true;
+				}
+			} catch (IOException e) {
+				this.logger.error("Store batch of {} failed", to - from, e);
+			}
+			from = to;
+		}
+		return stored;
+	}
+
+	@Override
+	public byte[] retrieve(UUID key) {
+		Location loc = this.acquire(key);
+		if (loc == null)
+		{
+			return null;
+		}
+
+		try {
+			byte[] data = new byte[loc.length];
+			loc.segment.readFully(ByteBuffer.wrap(data), loc.offset);
+			return loc.codec == PayloadCompression.CODEC_DEFLATE ? this.compression.decompress(data) : data;
+		} catch (IOException e) {
+			this.logger.error("Retrieve {} failed", key, e);
+			return null;
+		} finally {
+			this.kill(key, loc);
+			loc.segment.release();
+		}
+	}
+
+	@Override
+	public CompletableFuture<byte[]> retrieveAsync(UUID key) {
+		Location loc = this.acquire(key);
+		if (loc == null)
+		{
+			return CompletableFuture.completedFuture(null);
+		}
+
+		CompletableFuture<byte[]> read;
+		try {
+			read = AsyncFileReads.read(loc.segment.asyncChannel(), loc.offset, loc.length);
+			this.bytesRead.addAndGet(loc.length);
+		} catch (IOException e) {
+			read = new CompletableFuture<>();
+			read.completeExceptionally(e);
+		}
+
+		return read.handle((data, ex) -> this.completeRead(key, loc, data, ex));
+	}
+
+	/**
+	 * records of same segment close to each other are read at once, so are records of same eviction batch.
+	 */
+	@Override
+	public List<CompletableFuture<byte[]>> retrieveAllAsync(List<UUID> keys) {
+		List<CompletableFuture<byte[]>> res = new ArrayList<>(keys.size());
+		Location[] locs = new Location[keys.size()];
+		List<Integer> found = new ArrayList<>(keys.size());
+		for (int i = 0; i < locs.length; i++)
+		{
+			locs[i] = this.acquire(keys.get(i));
+			res.add(locs[i] == null ? CompletableFuture.completedFuture(null) : null);
+			if (locs[i] != null) {
+				found.add(i);
+			}
+		}
+		found.sort(Comparator.<Integer>comparingLong(i -> locs[i].segment.id).thenComparingLong(i -> locs[i].offset));
+
+		int from = 0;
+		while (from < found.size())
+		{
+			Location first = locs[found.get(from)];
+			long end = first.offset + first.length;
+			int to = from + 1;
+			while (to < found.size())
+			{
+				Location next = locs[found.get(to)];
+				long nextEnd = Math.max(end, next.offset + next.length);
+				if (next.segment != first.segment || next.offset - end > MERGE_MAX_GAP || nextEnd - first.offset > MERGE_MAX_SIZE)
+				{
+					break;
+				}
+				end = nextEnd;
+				to++;
+			}
+
+			CompletableFuture<byte[]> read;
+			try {
+				read = AsyncFileReads.read(first.segment.asyncChannel(), first.offset, (int)(end - first.offset));
+				this.bytesRead.addAndGet(end - first.offset);
+			} catch (IOException e) {
+				read = new CompletableFuture<>();
+				read.completeExceptionally(e);
+			}
+
+			boolean merged = to - from > 1;
+			for (int i : found.subList(from, to))
+			{
+				UUID key = keys.get(i);
+				Location loc = locs[i];
+				int start = (int)(loc.offset - first.offset);
+				res.set(i, read.handle((data, ex) -> this.completeRead(key, loc,
+											merged && data != null ? Arrays.copyOfRange(data, start, start + loc.length) : data, ex)));
+			}
+			this.mergedReadCount.addAndGet(to - from - 1);
+			from = to;
+		}
+		return res;
+	}
+
+	/**
+	 * segment and 1MB block of it holding record.
+	 */
+	@Override
+	public long regionOf(UUID key) {
+		Location loc = this.index.get(key);
+		return loc == null ? -1 : (loc.segment.id << 24) | (loc.offset >> 20);
+	}
+
+	/**
+	 * read of acquired record done: kill it and decode data.
+	 */
+	private byte[] completeRead(UUID key, Location loc, byte[] data, Throwable ex)
+	{
+		this.kill(key, loc);
+		loc.segment.release();
+		if (ex == null && data != null && loc.codec == PayloadCompression.CODEC_DEFLATE) {
+			try {
+				return this.compression.decompress(data);
+			} catch (IOException e) {
+				ex = e;
+			}
+		}
+		if (ex != null) {
+			this.logger.error("Retrieve {} failed", key, ex);
+			return null;
+		}
+		return data;
+	}
+
+	@Override
+	public void remove(UUID key) {
+		Location loc = this.acquire(key);
+		if (loc != null)
+		{
+			this.kill(key, loc);
+			loc.segment.release();
+		}
+	}
+
+	@Override
+	public AbortableChannel openStore(EntryMetadata metadata, long length) throws IOException {
+		if (length >= 0 && length <= Integer.MAX_VALUE)
+		{
+			long recordSize = HEADER_SIZE + length;
+			while (true)
+			{
+				Segment seg = this.activeSegment;
+				long pos = seg.reserve(recordSize);
+				if (pos >= 0)
+				{
+					try {
+						// aborted until completed, so recovery can skip the region if crashed meanwhile
+						seg.writeFully(header(RECORD_ABORTED, PayloadCompression.CODEC_NONE, metadata.getKey(), (int)length, metadata.getHotTime(), metadata.getExpireAt()), pos);
+					} catch (IOException e) {
+						seg.pendingWrites.decrementAndGet();
+						throw e;
+					}
+					return new StoreChannel(metadata, seg, pos, length);
+				}
+				this.roll(seg);
+			}
+		} else {
+			// unknown length, use dedicated segment, header completed when closed.
+			Segment seg = this.newSegment(Long.MAX_VALUE);
+			seg.reserve(HEADER_SIZE);
+			return new StoreChannel(metadata, seg, 0, -1);
+		}
+	}
+
+	/**
+	 * @return {@link FileRegion} of raw payload, decompressing channel over it for compressed one.
+	 */
+	@Override
+	public ReadableByteChannel openRetrieve(UUID key) throws IOException {
+		Location loc = this.acquire(key);
+		if (loc == null)
+		{
+			throw new IOException("key not found " + key);
+		}
+
+		this.bytesRead.addAndGet(loc.length); // counted once, region may be sent by sendfile without reading through it
+		FileRegion region = new FileRegion(loc.segment.path, loc.offset, loc.length) {
+			@Override
+			protected int readAt(ByteBuffer dst, long position) throws IOException {
+				return loc.segment.channel.read(dst, position);
+			}
+
+			@Override
+			protected void release() throws IOException {
+				SegmentLogPersistence.this.kill(key, loc);
+				loc.segment.release();
+			}
+		};
+		return loc.codec == PayloadCompression.CODEC_DEFLATE ? this.compression.decompressing(region) : region;
+	}
+
+	/**
+	 * rebuild index from segments of previous run:
+	 * segments scanned in parallel (headers only, payloads skipped) collecting records and tombstones,
+	 * then records not killed by any tombstone are published segment by segment, in parallel.
+	 */
+	@Override
+	public void recover(RecoveryListener listener) {
+		try {
+			List<SegmentScan> scans = this.segmentsToRecover.parallelStream()
+										.map(this::scan)
+										.filter(scan -> scan != null)
+										.collect(Collectors.toList());
+
+			Set<RecordRef> killed = new HashSet<>();
+			for (SegmentScan scan : scans)
+			{
+				killed.addAll(scan.killed);
+			}
+
+			scans.parallelStream().forEach(scan -> this.publishRecovered(scan, killed, listener));
+		} finally {
+			this.recovering = false;
+		}
+	}
+
+	private SegmentScan scan(long id)
+	{
+		Path path = Paths.get(this.baseFolder, String.format("%s%016d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+		try {
+			long fileSize = Files.size(path);
+			Segment seg = new Segment(id, path, fileSize);
+			SegmentScan scan = new SegmentScan(seg);
+
+			ByteBuffer buffer = ByteBuffer.allocate(RECOVERY_READ_SIZE);
+			buffer.limit(0);
+			long bufferStart = 0;
+			long pos = 0;
+			while (pos + HEADER_SIZE <= fileSize)
+			{
+				long needed = Math.min(HEADER_SIZE + TOMBSTONE_SIZE, fileSize - pos);
+				if (pos + needed > bufferStart + buffer.limit())
+				{
+					buffer.clear();
+					bufferStart = pos;
+					while (buffer.hasRemaining() && seg.channel.read(buffer, bufferStart + buffer.position()) > 0);
+					buffer.flip();
+				}
+
+				int i = (int)(pos - bufferStart);
+				byte type = buffer.get(i);
+				byte codec = buffer.get(i + 1);
+				int length = buffer.getInt(i + 18);
+				long payloadOffset = pos + HEADER_SIZE;
+				if ((type != RECORD_DATA && type != RECORD_TOMBSTONE && type != RECORD_ABORTED)
+						|| length < 0 || payloadOffset + length > fileSize)
+				{
+					break; // unfinished tail
+				}
+
+				UUID key = new UUID(buffer.getLong(i + 2), buffer.getLong(i + 10));
+				if (type == RECORD_DATA)
+				{
+					// compressed block starts with original length, needed by cache accounting
+					int originalLength = codec == PayloadCompression.CODEC_DEFLATE && length >= 4 ? buffer.getInt(i + HEADER_SIZE) : length;
+					scan.records.add(new RecoveredRecord(key, payloadOffset, length, codec, originalLength, buffer.getLong(i + 22), buffer.getLong(i + 30)));
+				} else if (type == RECORD_TOMBSTONE && length == TOMBSTONE_SIZE)
+				{
+					scan.killed.add(new RecordRef(buffer.getLong(i + HEADER_SIZE), buffer.getLong(i + HEADER_SIZE + 8)));
+				}
+				pos = payloadOffset + length;
+			}
+
+			seg.writePosition.set(pos);
+			seg.seal();
+			this.segments.put(id, seg);
+			return scan;
+		} catch (IOException e) {
+			this.logger.error("Recover segment {} failed", id, e);
+			return null;
+		}
+	}
+
+	private void publishRecovered(SegmentScan scan, Set<RecordRef> killed, RecoveryListener listener)
+	{
+		Segment seg = scan.segment;
+		for (RecoveredRecord record : scan.records)
+		{
+			if (killed.contains(new RecordRef(seg.id, record.offset)))
+			{
+				continue;
+			}
+
+			Location loc = new Location(seg, record.offset, record.length, record.codec);
+			seg.liveBytes.addAndGet(HEADER_SIZE + record.length);
+			if (this.index.putIfAbsent(record.key, loc) != null) // stored again since restart
+			{
+				this.kill(record.key, loc);
+				continue;
+			}
+			listener.recovered(new EntryMetadata(record.key, record.hotTime, record.expireAt), record.originalLength);
+		}
+	}
+
+	public boolean isRecovering() {
+		return this.recovering;
+	}
+
+	public int getSegmentCount() {
+		return this.segments.size();
+	}
+
+	public int getIndexSize() {
+		return this.index.size();
+	}
+
+	/**
+	 * records read as part of another record's read
+	 */
+	public long getMergedReadCount() {
+		return this.mergedReadCount.get();
+	}
+
+	/**
+	 * bytes written to segments, including headers, tombstones and compaction
+	 */
+	public long getBytesWritten() {
+		return this.bytesWritten.get();
+	}
+	
+	/**
+	 * bytes read from segments, including compaction
+	 */
+	public long getBytesRead() {
+		return this.bytesRead.get();
+	}
+	
+	/**
+	 * bytes of records still live, headers included
+	 */
+	public long getLiveBytes() {
+		long live = 0;
+		for (Segment seg : this.segments.values())
+		{
+			live += seg.liveBytes.get();
+		}
+		return live;
+	}
+	
+	public PayloadCompression getCompression() {
+		return this.compression;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.compactionExecutor.shutdownNow();
+		this.tombstoneExecutor.shutdown();
+		try {
+			if (!this.tombstoneExecutor.awaitTermination(TOMBSTONE_DRAIN_SECONDS, TimeUnit.SECONDS)) {
+				this.logger.warn("Tombstones not all written on close");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		for (Segment seg : this.segments.values())
+		{
+			seg.channel.close();
+			seg.closeAsyncChannel();
+		}
+	}
+
+	private Segment newSegment(long capacity) throws IOException
+	{
+		long id = this.nextSegmentId.getAndIncrement();
+		Path path = Paths.get(this.baseFolder, String.format("%s%016d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+		Segment seg = new Segment(id, path, capacity);
+		this.segments.put(id, seg);
+		return seg;
+	}
+
+	private void roll(Segment full) throws IOException
+	{
+		synchronized (this) {
+			if (this.activeSegment == full)
+			{
+				full.seal();
+				this.activeSegment = this.newSegment(this.segmentSize);
+			}
+		}
+	}
+
+	private Location append(byte type, byte codec, UUID key, long hotTime, long expireAt, ByteBuffer... payload) throws IOException
+	{
+		int length = 0;
+		for (ByteBuffer buffer : payload)
+		{
+			length += buffer.remaining();
+		}
+
+		while (true)
+		{
+			Segment seg = this.activeSegment;
+			long pos = seg.reserve(HEADER_SIZE + length);
+			if (pos < 0)
+			{
+				this.roll(seg);
+				continue;
+			}
+
+			try {
+				seg.writeFully(header(type, codec, key, length, hotTime, expireAt), pos);
+				long position = pos + HEADER_SIZE;
+				for (ByteBuffer buffer : payload)
+				{
+					int n = buffer.remaining();
+					seg.writeFully(buffer, position);
+					position += n;
+				}
+			} finally {
+				seg.pendingWrites.decrementAndGet();
+			}
+			return new Location(seg, pos + HEADER_SIZE, length, codec);
+		}
+	}
+
+	private Location[] appendAll(List<EntryMetadata> entries, List<ByteBuffer[]> payloads, byte[] codecs, int codecsOffset, long size) throws IOException
+	{
+		while (true)
+		{
+			Segment seg = this.activeSegment;
+			long pos = seg.reserve(size);
+			if (pos < 0)
+			{
+				this.roll(seg);
+				continue;
+			}
+
+			Location[] locs = new Location[entries.size()];
+			try {
+				long position = pos;
+				for (int i = 0; i < locs.length; i++)
+				{
+					int length = (int)(recordSize(payloads.get(i)) - HEADER_SIZE);
+					EntryMetadata metadata = entries.get(i);
+					byte codec = codecs[codecsOffset + i];
+					seg.writeFully(header(RECORD_DATA, codec, metadata.getKey(), length, metadata.getHotTime(), metadata.getExpireAt()), position);
+					position += HEADER_SIZE;
+					locs[i] = new Location(seg, position, length, codec);
+					for (ByteBuffer buffer : payloads.get(i))
+					{
+						int n = buffer.remaining();
+						seg.writeFully(buffer, position);
+						position += n;
+					}
+				}
+				seg.channel.force(false);
+			} finally {
+				seg.pendingWrites.decrementAndGet();
+			}
+			return locs;
+		}
+	}
+
+	private static long recordSize(ByteBuffer[] payload)
+	{
+		long size = HEADER_SIZE;
+		for (ByteBuffer buffer : payload)
+		{
+			size += buffer.remaining();
+		}
+		return size;
+	}
+
+	private static ByteBuffer header(byte type, byte codec, UUID key, int length, long hotTime, long expireAt)
+	{
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.put(type);
+		header.put(codec);
+		header.putLong(key.getMostSignificantBits());
+		header.putLong(key.getLeastSignificantBits());
+		header.putInt(length);
+		header.putLong(hotTime);
+		header.putLong(expireAt);
+		header.flip();
+		return header;
+	}
+
+	private void publish(UUID key, Location loc)
+	{
+		loc.segment.liveBytes.addAndGet(HEADER_SIZE + loc.length);
+		Location prev = this.index.put(key, loc);
+		if (prev != null) // overwritten, old one is dead
+		{
+			this.kill(key, prev);
+		}
+	}
+
+	/**
+	 * take entry out of index, with its segment retained against compaction deleting it.
+	 */
+	private Location acquire(UUID key)
+	{
+		while (true)
+		{
+			Location loc = this.index.get(key);
+			if (loc == null)
+			{
+				return null;
+			}
+
+			if (loc.segment.retain())
+			{
+				if (this.index.remove(key, loc))
+				{
+					return loc;
+				}
+				loc.segment.release();
+			}
+		}
+	}
+
+	/**
+	 * mark record dead and log tombstone for it.
+	 */
+	private void kill(UUID key, Location loc)
+	{
+		loc.segment.liveBytes.addAndGet(-(HEADER_SIZE + loc.length));
+		ByteBuffer target = ByteBuffer.allocate(TOMBSTONE_SIZE);
+		target.putLong(loc.segment.id);
+		target.putLong(loc.offset);
+		target.flip();
+		try {
+			this.tombstoneExecutor.execute(() -> {
+				try {
+					this.append(RECORD_TOMBSTONE, PayloadCompression.CODEC_NONE, key, 0, 0, target);
+				} catch (IOException e) {
+					this.logger.error("Tombstone {} failed", key, e);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// closing, record recovered again on restart
+			this.logger.warn("Tombstone {} dropped, persistence closed", key);
+		}
+	}
+
+	private void compact()
+	{
+		if (this.recovering)
+		{
+			return;
+		}
+
+		for (Segment seg : this.segments.values())
+		{
+			if (seg == this.activeSegment || !seg.sealed || seg.pendingWrites.get() > 0)
+			{
+				continue;
+			}
+
+			long end = seg.end();
+			if (end > 0 && 1.0 * seg.liveBytes.get() / end >= this.compactionThreshold)
+			{
+				continue;
+			}
+
+			try {
+				int moved = this.compact(seg, end);
+				this.logger.info("Compacted segment {}, moved {} records", seg.id, moved);
+			} catch (IOException e) {
+				this.logger.error("Compact segment {} failed", seg.id, e);
+			}
+		}
+	}
+
+	private int compact(Segment seg, long end) throws IOException
+	{
+		int moved = 0;
+		long pos = 0;
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		while (pos + HEADER_SIZE <= end)
+		{
+			header.clear();
+			seg.readFully(header, pos);
+			header.flip();
+			byte type = header.get();
+			byte codec = header.get();
+			UUID key = new UUID(header.getLong(), header.getLong());
+			int length = header.getInt();
+			long hotTime = header.getLong();
+			long expireAt = header.getLong();
+			long payloadOffset = pos + HEADER_SIZE;
+
+			if (type == RECORD_DATA)
+			{
+				Location loc = this.index.get(key);
+				if (loc != null && loc.segment == seg && loc.offset == payloadOffset)
+				{
+					ByteBuffer payload = ByteBuffer.allocate(length);
+					seg.readFully(payload, payloadOffset);
+					payload.flip();
+					Location newLoc = this.append(RECORD_DATA, codec, key, hotTime, expireAt, payload);
+					newLoc.segment.liveBytes.addAndGet(HEADER_SIZE + length);
+					if (this.index.replace(key, loc, newLoc)) {
+						seg.liveBytes.addAndGet(-(HEADER_SIZE + length));
+						moved++;
+					} else { // retrieved meanwhile
+						this.kill(key, newLoc);
+					}
+				}
+			} else if (type == RECORD_TOMBSTONE)
+			{
+				ByteBuffer target = ByteBuffer.allocate(TOMBSTONE_SIZE);
+				seg.readFully(target, payloadOffset);
+				target.flip();
+				long targetId = target.getLong(0);
+				if (targetId != seg.id && this.segments.containsKey(targetId))
+				{
+					this.append(RECORD_TOMBSTONE, PayloadCompression.CODEC_NONE, key, 0, 0, target);
+				}
+			} else if (type != RECORD_ABORTED) {
+				break; // unfinished tail
+			}
+
+			pos = payloadOffset + length;
+		}
+
+		this.segments.remove(seg.id);
+		seg.release();
+		return moved;
+	}
+
+	/**
+	 * position of live record
+	 */
+	static class Location
+	{
+		final Segment segment;
+		final long offset;
+		final int length;
+		final byte codec;
+
+		Location(Segment segment, long offset, int length, byte codec)
+		{
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+			this.codec = codec;
+		}
+	}
+
+	/**
+	 * records and tombstones found in one segment by recovery
+	 */
+	static class SegmentScan
+	{
+		final Segment segment;
+		final List<RecoveredRecord> records = new ArrayList<>();
+		final Set<RecordRef> killed = new HashSet<>();
+
+		SegmentScan(Segment segment)
+		{
+			this.segment = segment;
+		}
+	}
+
+	static class RecoveredRecord
+	{
+		final UUID key;
+		final long offset;
+		final int length;
+		final byte codec;
+		final int originalLength;
+		final long hotTime;
+		final long expireAt;
+
+		RecoveredRecord(UUID key, long offset, int length, byte codec, int originalLength, long hotTime, long expireAt)
+		{
+			this.key = key;
+			this.offset = offset;
+			this.length = length;
+			this.codec = codec;
+			this.originalLength = originalLength;
+			this.hotTime = hotTime;
+			this.expireAt = expireAt;
+		}
+	}
+
+	/**
+	 * (segment id, payload offset) of record, target of tombstone
+	 */
+	static class RecordRef
+	{
+		final long segmentId;
+		final long offset;
+
+		RecordRef(long segmentId, long offset)
+		{
+			this.segmentId = segmentId;
+			this.offset = offset;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof RecordRef)) {
+				return false;
+			}
+			RecordRef other = (RecordRef)obj;
+			return this.segmentId == other.segmentId && this.offset == other.offset;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(this.segmentId * 31 + this.offset);
+		}
+	}
+
+	class Segment
+	{
+		final long id;
+		final Path path;
+		final FileChannel channel;
+		final long capacity;
+		final AtomicLong writePosition = new AtomicLong();
+		final AtomicLong firstRejectedPosition = new AtomicLong(Long.MAX_VALUE);
+		final AtomicLong liveBytes = new AtomicLong();
+		final AtomicInteger pendingWrites = new AtomicInteger();
+		private AsynchronousFileChannel asyncChannel;
+
+		/**
+		 * 1 held by segments map, plus one per reader; file deleted when reach 0.
+		 */
+		final AtomicInteger refs = new AtomicInteger(1);
+		volatile boolean sealed = false;
+
+		Segment(long id, Path path, long capacity) throws IOException
+		{
+			this.id = id;
+			this.path = path;
+			this.capacity = capacity;
+			this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		}
+
+		/**
+		 * reserve region for record.
+		 * @return start position, -1 if segment full.
+		 */
+		long reserve(long size)
+		{
+			if (this.sealed)
+			{
+				return -1;
+			}
+
+			this.pendingWrites.incrementAndGet();
+			long pos = this.writePosition.getAndAdd(size);
+			if (pos > 0 && pos + size > this.capacity)
+			{
+				this.firstRejectedPosition.accumulateAndGet(pos, Math::min);
+				this.sealed = true;
+				this.pendingWrites.decrementAndGet();
+				return -1;
+			}
+			return pos;
+		}
+
+		void seal()
+		{
+			this.firstRejectedPosition.accumulateAndGet(this.writePosition.get(), Math::min);
+			this.sealed = true;
+		}
+
+		long end()
+		{
+			return Math.min(this.firstRejectedPosition.get(), this.writePosition.get());
+		}
+
+		void writeFully(ByteBuffer buffer, long position) throws IOException
+		{
+			while (buffer.hasRemaining())
+			{
+				int n = this.channel.write(buffer, position);
+				SegmentLogPersistence.this.bytesWritten.addAndGet(n);
+				position += n;
+			}
+		}
+
+		void readFully(ByteBuffer buffer, long position) throws IOException
+		{
+			while (buffer.hasRemaining())
+			{
+				int n = this.channel.read(buffer, position);
+				if (n < 0)
+				{
+					throw new IOException("unexpected end of segment " + this.id);
+				}
+				SegmentLogPersistence.this.bytesRead.addAndGet(n);
+				position += n;
+			}
+		}
+
+		boolean retain()
+		{
+			int r;
+			do {
+				r = this.refs.get();
+				if (r == 0)
+				{
+					return false;
+				}
+			} while (!this.refs.compareAndSet(r, r + 1));
+			return true;
+		}
+
+		/**
+		 * channel for non-blocking reads, opened on first use.
+		 */
+		synchronized AsynchronousFileChannel asyncChannel() throws IOException
+		{
+			if (this.asyncChannel == null)
+			{
+				this.asyncChannel = AsynchronousFileChannel.open(this.path, StandardOpenOption.READ);
+			}
+			return this.asyncChannel;
+		}
+
+		synchronized void closeAsyncChannel() throws IOException
+		{
+			if (this.asyncChannel != null)
+			{
+				this.asyncChannel.close();
+			}
+		}
+
+		void release()
+		{
+			if (this.refs.decrementAndGet() == 0)
+			{
+				try {
+					this.channel.close();
+					this.closeAsyncChannel();
+					Files.deleteIfExists(this.path);
+				} catch (IOException e) {
+					SegmentLogPersistence.this.logger.error("Delete segment {} failed", this.id, e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * stream payload into reserved region, published to index when closed.
+	 */
+	private class StoreChannel implements AbortableChannel
+	{
+		final EntryMetadata metadata;
+		final Segment segment;
+		final long start;
+		final long expectedLength;
+		long written = 0;
+		boolean open = true;
+
+		StoreChannel(EntryMetadata metadata, Segment segment, long start, long expectedLength)
+		{
+			this.metadata = metadata;
+			this.segment = segment;
+			this.start = start;
+			this.expectedLength = expectedLength;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return this.open;
+		}
+
+		@Override
+		public int write(ByteBuffer src) throws IOException {
+			if (!this.open) {
+				throw new ClosedChannelException();
+			}
+
+			int n = src.remaining();
+			if (this.expectedLength >= 0 && this.written + n > this.expectedLength) {
+				throw new IOException("payload exceed declared length " + this.expectedLength);
+			}
+			this.segment.writeFully(src, this.start + HEADER_SIZE + this.written);
+			this.written += n;
+			return n;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!this.open) {
+				return;
+			}
+			this.open = false;
+
+			try {
+				boolean complete = this.expectedLength < 0 || this.written == this.expectedLength;
+				int length = (int)(this.expectedLength < 0 ? this.written : this.expectedLength);
+				this.segment.writeFully(header(complete ? RECORD_DATA : RECORD_ABORTED, PayloadCompression.CODEC_NONE, this.metadata.getKey(), length,
+												this.metadata.getHotTime(), this.metadata.getExpireAt()), this.start);
+				if (this.expectedLength < 0) {
+					this.segment.writePosition.set(HEADER_SIZE + this.written);
+					this.segment.seal();
+				}
+
+				if (complete) {
+					SegmentLogPersistence.this.publish(this.metadata.getKey(), new Location(this.segment, this.start + HEADER_SIZE, length, PayloadCompression.CODEC_NONE));
+				}
+			} finally {
+				this.segment.pendingWrites.decrementAndGet();
+			}
+		}
+
+		/**
+		 * known length: region keeps its aborted header, skipped by recovery and compaction.
+		 * unknown length: dedicated segment holds nothing else, deleted.
+		 */
+		@Override
+		public void abort() throws IOException {
+			if (!this.open) {
+				return;
+			}
+			this.open = false;
+
+			this.segment.pendingWrites.decrementAndGet();
+			if (this.expectedLength < 0) {
+				this.segment.seal();
+				SegmentLogPersistence.this.segments.remove(this.segment.id);
+				this.segment.release();
+			}
+		}
+	}
+}
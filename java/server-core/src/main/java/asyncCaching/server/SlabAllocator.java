@@ -0,0 +1,290 @@
+package asyncCaching.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Off-heap storage for resident payloads.
+ * direct slabs are carved into chunks of power-of-2 size classes, chunks are recycled via per-class free lists,
+ * payloads larger than max chunk size are chained over several chunks.
+ * slabs are never returned to OS, total reserved off-heap memory is bounded by maxMemory.
+ */
+public class SlabAllocator {
+	private final int slabSize;
+	private final long maxMemory;
+	private final SizeClass[] sizeClasses;
+	private final int minChunkShift;
+
+	private final AtomicLong reservedBytes = new AtomicLong();
+	private final AtomicLong chunkBytes = new AtomicLong();
+	private final AtomicLong payloadBytes = new AtomicLong();
+
+	/**
+	 * @param minChunkSize smallest size class, rounded to power of 2
+	 * @param maxChunkSize largest size class, rounded to power of 2
+	 * @param slabSize bytes of each direct buffer carved into chunks, at least maxChunkSize
+	 * @param maxMemory upper bound of off-heap bytes reserved by slabs
+	 */
+	public SlabAllocator(int minChunkSize, int maxChunkSize, int slabSize, long maxMemory) {
+		this.minChunkShift = 32 - Integer.numberOfLeadingZeros(Math.max(minChunkSize, 8) - 1);
+		int maxChunkShift = Math.max(this.minChunkShift, 32 - Integer.numberOfLeadingZeros(maxChunkSize - 1));
+		this.slabSize = Math.max(slabSize, 1 << maxChunkShift);
+		this.maxMemory = maxMemory;
+		this.sizeClasses = new SizeClass[maxChunkShift - this.minChunkShift + 1];
+		for (int i = 0; i < this.sizeClasses.length; i++)
+		{
+			this.sizeClasses[i] = new SizeClass(1 << (this.minChunkShift + i));
+		}
+	}
+
+	/**
+	 * copy data off-heap
+	 * @return null if off-heap memory exhausted
+	 */
+	public Payload copyOf(byte[] data)
+	{
+		int maxChunkSize = this.sizeClasses[this.sizeClasses.length - 1].chunkSize;
+		int numberOfChunks = Math.max(1, (data.length + maxChunkSize - 1) / maxChunkSize);
+		ByteBuffer[] chunks = new ByteBuffer[numberOfChunks];
+		SizeClass[] chunkClasses = new SizeClass[numberOfChunks];
+
+		int offset = 0;
+		for (int i = 0; i < numberOfChunks; i++)
+		{
+			int size = Math.min(maxChunkSize, data.length - offset);
+			chunkClasses[i] = this.sizeClassOf(size);
+			chunks[i] = chunkClasses[i].take();
+			if (chunks[i] == null)
+			{
+				for (int j = 0; j < i; j++)
+				{
+					chunkClasses[j].give(chunks[j]);
+				}
+				return null;
+			}
+
+			chunks[i].clear();
+			chunks[i].put(data, offset, size);
+			chunks[i].flip();
+			offset += size;
+		}
+
+		this.payloadBytes.addAndGet(data.length);
+		return new Payload(chunks, chunkClasses, data.length);
+	}
+
+	private SizeClass sizeClassOf(int size)
+	{
+		int shift = 32 - Integer.numberOfLeadingZeros(Math.max(size, 1) - 1);
+		return this.sizeClasses[Math.max(0, shift - this.minChunkShift)];
+	}
+
+	/**
+	 * off-heap bytes reserved by slabs
+	 */
+	public long getReservedBytes() {
+		return this.reservedBytes.get();
+	}
+
+	/**
+	 * bytes of chunks in use, including internal fragmentation
+	 */
+	public long getChunkBytes() {
+		return this.chunkBytes.get();
+	}
+
+	/**
+	 * exact bytes of payloads held
+	 */
+	public long getPayloadBytes() {
+		return this.payloadBytes.get();
+	}
+
+	private class SizeClass
+	{
+		final int chunkSize;
+		final Queue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+
+		SizeClass(int chunkSize)
+		{
+			this.chunkSize = chunkSize;
+		}
+
+		ByteBuffer take()
+		{
+			ByteBuffer chunk = this.free.poll();
+			while (chunk == null)
+			{
+				synchronized (this) {
+					chunk = this.free.poll();
+					if (chunk == null)
+					{
+						if (!this.carveSlab())
+						{
+							return null;
+						}
+						chunk = this.free.poll();
+					}
+				}
+			}
+			SlabAllocator.this.chunkBytes.addAndGet(this.chunkSize);
+			return chunk;
+		}
+
+		void give(ByteBuffer chunk)
+		{
+			SlabAllocator.this.chunkBytes.addAndGet(-this.chunkSize);
+			this.free.offer(chunk);
+		}
+
+		private boolean carveSlab()
+		{
+			long reserved;
+			do {
+				reserved = SlabAllocator.this.reservedBytes.get();
+				if (reserved + SlabAllocator.this.slabSize > SlabAllocator.this.maxMemory)
+				{
+					return false;
+				}
+			} while (!SlabAllocator.this.reservedBytes.compareAndSet(reserved, reserved + SlabAllocator.this.slabSize));
+
+			ByteBuffer slab = ByteBuffer.allocateDirect(SlabAllocator.this.slabSize);
+			for (int pos = 0; pos + this.chunkSize <= slab.capacity(); pos += this.chunkSize)
+			{
+				slab.limit(pos + this.chunkSize);
+				slab.position(pos);
+				this.free.offer(slab.slice());
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * payload bytes held in off-heap chunks.
+	 * reference counted so readers can use chunks while payload evicted, chunks recycled when last reference released.
+	 */
+	public class Payload
+	{
+		private final ByteBuffer[] chunks;
+		private final SizeClass[] chunkClasses;
+		private final int length;
+		private final AtomicInteger refs = new AtomicInteger(1);
+
+		Payload(ByteBuffer[] chunks, SizeClass[] chunkClasses, int length)
+		{
+			this.chunks = chunks;
+			this.chunkClasses = chunkClasses;
+			this.length = length;
+		}
+
+		public int length() {
+			return this.length;
+		}
+
+		/**
+		 * @return false if payload already freed
+		 */
+		public boolean retain()
+		{
+			int r;
+			do {
+				r = this.refs.get();
+				if (r == 0)
+				{
+					return false;
+				}
+			} while (!this.refs.compareAndSet(r, r + 1));
+			return true;
+		}
+
+		public void release()
+		{
+			if (this.refs.decrementAndGet() == 0)
+			{
+				SlabAllocator.this.payloadBytes.addAndGet(-this.length);
+				for (int i = 0; i < this.chunks.length; i++)
+				{
+					this.chunkClasses[i].give(this.chunks[i]);
+				}
+			}
+		}
+
+		/**
+		 * read-only views of data, caller must hold a reference while using them.
+		 */
+		public ByteBuffer[] buffers()
+		{
+			ByteBuffer[] views = new ByteBuffer[this.chunks.length];
+			for (int i = 0; i < this.chunks.length; i++)
+			{
+				views[i] = this.chunks[i].asReadOnlyBuffer();
+			}
+			return views;
+		}
+
+		public byte[] toByteArray()
+		{
+			byte[] data = new byte[this.length];
+			int offset = 0;
+			for (ByteBuffer view : this.buffers())
+			{
+				int n = view.remaining();
+				view.get(data, offset, n);
+				offset += n;
+			}
+			return data;
+		}
+
+		/**
+		 * channel reading data directly from chunks, takes over one reference, released when closed.
+		 */
+		public ReadableByteChannel channel()
+		{
+			final ByteBuffer[] views = this.buffers();
+			return new ReadableByteChannel() {
+				int current = 0;
+				boolean open = true;
+
+				@Override
+				public boolean isOpen() {
+					return this.open;
+				}
+
+				@Override
+				public int read(ByteBuffer dst) throws IOException {
+					if (!this.open) {
+						throw new ClosedChannelException();
+					}
+					while (this.current < views.length && !views[this.current].hasRemaining()) {
+						this.current++;
+					}
+					if (this.current >= views.length) {
+						return -1;
+					}
+
+					ByteBuffer src = views[this.current];
+					int n = Math.min(src.remaining(), dst.remaining());
+					ByteBuffer part = src.duplicate();
+					part.limit(part.position() + n);
+					dst.put(part);
+					src.position(src.position() + n);
+					return n;
+				}
+
+				@Override
+				public void close() throws IOException {
+					if (this.open) {
+						this.open = false;
+						Payload.this.release();
+					}
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,15 @@
+package asyncCaching.server.di;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * channel storing written data when closed, or dropping it when aborted.
+ */
+public interface AbortableChannel extends WritableByteChannel {
+	/**
+	 * drop data written so far and release what was reserved for it, nothing stored.
+	 * no-op when already closed or aborted.
+	 */
+	public void abort() throws IOException;
+}
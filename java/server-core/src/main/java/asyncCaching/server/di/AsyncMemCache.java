@@ -0,0 +1,32 @@
+package asyncCaching.server.di;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+public interface AsyncMemCache {
+	/**
+	 * admission control, checked before accepting a store.
+	 * @param length payload bytes, -1 if unknown
+	 * @return 0 if admitted, otherwise milliseconds client should wait before retrying
+	 */
+	public long admit(long length);
+	public void cache(UUID key, byte[] data, long expectedDuration);
+	public CompletableFuture<byte[]> retrieve(UUID key);
+	/**
+	 * @param deadline epoch millis data is needed by, 0 if none; persisted entries needed sooner are read first
+	 */
+	public CompletableFuture<byte[]> retrieve(UUID key, long deadline);
+	public CompletableFuture<Void> remove(UUID key);
+	/**
+	 * @return channel to stream payload into, entry registered when closed, dropped when aborted; null if already stored
+	 */
+	public AbortableChannel cacheStream(UUID key, long length, long expectedDuration) throws IOException;
+	/**
+	 * @return channel over resident data, or {@link FileRegion} when data persisted uncompressed, null if not found.
+	 * not completed on calling thread while data being read back from storage.
+	 */
+	public CompletableFuture<ReadableByteChannel> retrieveStream(UUID key);
+	public long size();
+}
@@ -0,0 +1,35 @@
+package asyncCaching.server.di;
+
+import java.util.UUID;
+
+/**
+ * Durable metadata persisted along with payload, so entries survive restart.
+ */
+public class EntryMetadata {
+	private final UUID key;
+	private final long hotTime;
+	private final long expireAt;
+
+	/**
+	 * @param key
+	 * @param hotTime time entry expected to be retrieved, epoch milliseconds
+	 * @param expireAt time entry dropped if not retrieved, epoch milliseconds
+	 */
+	public EntryMetadata(UUID key, long hotTime, long expireAt) {
+		this.key = key;
+		this.hotTime = hotTime;
+		this.expireAt = expireAt;
+	}
+
+	public UUID getKey() {
+		return this.key;
+	}
+
+	public long getHotTime() {
+		return this.hotTime;
+	}
+
+	public long getExpireAt() {
+		return this.expireAt;
+	}
+}
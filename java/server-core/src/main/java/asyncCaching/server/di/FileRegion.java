@@ -0,0 +1,83 @@
+package asyncCaching.server.di;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * Stored data located in a region of a file.
+ * readable as plain (blocking) channel, or directly from path/position/length by async readers,
+ * data is removed from storage when region closed.
+ */
+public abstract class FileRegion implements ReadableByteChannel {
+	private final Path path;
+	private final long position;
+	private final long length;
+	private long consumed = 0;
+	private boolean open = true;
+
+	protected FileRegion(Path path, long position, long length) {
+		this.path = path;
+		this.position = position;
+		this.length = length;
+	}
+
+	public Path getPath() {
+		return this.path;
+	}
+
+	public long getPosition() {
+		return this.position;
+	}
+
+	public long getLength() {
+		return this.length;
+	}
+
+	@Override
+	public boolean isOpen() {
+		return this.open;
+	}
+
+	@Override
+	public int read(ByteBuffer dst) throws IOException {
+		if (!this.open) {
+			throw new ClosedChannelException();
+		}
+		long remaining = this.length - this.consumed;
+		if (remaining <= 0) {
+			return -1;
+		}
+
+		int limit = dst.limit();
+		if (dst.remaining() > remaining) {
+			dst.limit(dst.position() + (int)remaining);
+		}
+		int n = this.readAt(dst, this.position + this.consumed);
+		dst.limit(limit);
+		if (n > 0) {
+			this.consumed += n;
+		}
+		return n;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.open) {
+			this.open = false;
+			this.release();
+		}
+	}
+
+	/**
+	 * positional read from file.
+	 */
+	protected abstract int readAt(ByteBuffer dst, long position) throws IOException;
+
+	/**
+	 * region done with, remove data from storage.
+	 */
+	protected abstract void release() throws IOException;
+}
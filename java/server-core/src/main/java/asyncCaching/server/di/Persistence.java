@@ -0,0 +1,106 @@
+package asyncCaching.server.di;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+public interface Persistence {
+
+	/**
+	 * save data storage
+	 * @param metadata key and durable metadata of entry
+	 * @param data
+	 * @return false if storage failed to write it, nothing stored then
+	 */
+	public boolean store(EntryMetadata metadata, ByteBuffer... data);
+	
+	/**
+	 * save batch of entries, implementations may group them into one write.
+	 * @param entries
+	 * @param data data of entries at same index
+	 * @return whether entry at same index stored, caller keeps the others
+	 */
+	public default boolean[] storeAll(List<EntryMetadata> entries, List<ByteBuffer[]> data)
+	{
+		boolean[] stored = new boolean[entries.size()];
+		for (int i = 0; i < entries.size(); i++)
+		{
+			try {
+				stored[i] = this.store(entries.get(i), data.get(i));
+			} catch (RuntimeException e) {
+				stored[i] = false;
+			}
+		}
+		return stored;
+	}
+	
+	/**
+	 * retrieve and remove data from storage
+	 * @param key
+	 * @return
+	 */
+	public byte[] retrieve(UUID key);
+	
+	/**
+	 * retrieve and remove data from storage without blocking caller on disk.
+	 * @param key
+	 * @return completed with null if not found
+	 */
+	public CompletableFuture<byte[]> retrieveAsync(UUID key);
+
+	/**
+	 * retrieve and remove batch of entries, implementations may merge reads of nearby data into one.
+	 * @param keys
+	 * @return future of each key at same index
+	 */
+	public default List<CompletableFuture<byte[]>> retrieveAllAsync(List<UUID> keys)
+	{
+		List<CompletableFuture<byte[]>> res = new ArrayList<>(keys.size());
+		for (UUID key : keys)
+		{
+			res.add(this.retrieveAsync(key));
+		}
+		return res;
+	}
+
+	/**
+	 * storage region holding data of key, reads of same region are worth merging by {@link #retrieveAllAsync(List)}.
+	 * @param key
+	 * @return region id, -1 if unknown or nothing to merge with
+	 */
+	public default long regionOf(UUID key)
+	{
+		return -1;
+	}
+
+	/**
+	 * remove data from storage.
+	 * @param key
+	 */
+	public void remove(UUID key);
+	
+	/**
+	 * open channel to stream data directly to storage, for large payloads.
+	 * @param metadata key and durable metadata of entry
+	 * @param length expected length in bytes, -1 if unknown
+	 * @return channel, data is stored completely when channel closed, dropped when aborted
+	 */
+	public AbortableChannel openStore(EntryMetadata metadata, long length) throws IOException;
+	
+	/**
+	 * locate data to stream from storage, data removed from storage when channel closed.
+	 * @param key
+	 * @return {@link FileRegion} when data stored as is, so it can be sent without copying
+	 */
+	public ReadableByteChannel openRetrieve(UUID key) throws IOException;
+	
+	/**
+	 * rebuild index of entries persisted before restart, blocking, to be called on background thread.
+	 * entries are retrievable as soon as reported to listener, before whole recovery done.
+	 */
+	public void recover(RecoveryListener listener);
+}
@@ -0,0 +1,13 @@
+package asyncCaching.server.di;
+
+/**
+ * Notified of entries persisted before restart while persistence rebuilds its index.
+ */
+public interface RecoveryListener {
+	/**
+	 * entry already retrievable from persistence, may be called from several recovery threads.
+	 * @param metadata
+	 * @param length payload length in bytes
+	 */
+	public void recovered(EntryMetadata metadata, long length);
+}
@@ -0,0 +1,151 @@
+package asyncCaching.benchmark;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.Random;
+
+import asyncMemManager.common.ManagedObjectQueue;
+import asyncMemManager.common.PrimitiveManagedObjectQueue;
+import asyncMemManager.common.di.IndexableQueuedObject;
+
+/**
+ * compare candle heaps on add / reprioritize / remove-at / poll:
+ * ManagedObjectQueue with LocalDateTime comparator (as client candles) vs PrimitiveManagedObjectQueue with long priorities.
+ * args: [elements=1000000] [rounds=5]
+ */
+public class ManagedObjectQueueBenchmark {
+
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		LocalDateTime base = LocalDateTime.now();
+
+		for (int round = 1; round <= rounds; round++)
+		{
+			boolean report = round == rounds; // earlier rounds warm up JIT
+			runReference(n, base, report);
+			runPrimitive(n, 2, base, report);
+			runPrimitive(n, 4, base, report);
+			runPrimitive(n, 8, base, report);
+		}
+	}
+
+	private static void runReference(int n, LocalDateTime base, boolean report)
+	{
+		Node[] nodes = nodes(n, base);
+		Comparator<Node> comparator = (n1, n2) -> n2.hotTime.compareTo(n1.hotTime);
+		ManagedObjectQueue<Node> queue = new ManagedObjectQueue<>(16, comparator);
+		Random random = new Random(7);
+		long checksum = 0;
+
+		long t0 = System.nanoTime();
+		for (Node node : nodes)
+		{
+			queue.add(node);
+		}
+		long t1 = System.nanoTime();
+		for (int i = 0; i < n; i++)
+		{
+			Node node = nodes[random.nextInt(n)];
+			node.hotTime = node.hotTime.plusNanos(random.nextInt(2000000) - 1000000);
+			queue.syncPriorityAt(node.index);
+		}
+		long t2 = System.nanoTime();
+		for (int i = 0; i < n / 2; i++)
+		{
+			checksum += queue.getAndRemoveAt(random.nextInt(queue.getSize())).id;
+		}
+		long t3 = System.nanoTime();
+		while (queue.getSize() > 0)
+		{
+			checksum += queue.getAndRemoveAt(0).id;
+		}
+		long t4 = System.nanoTime();
+
+		if (report) {
+			print("ManagedObjectQueue(LocalDateTime)", n, t0, t1, t2, t3, t4, -1, checksum);
+		}
+	}
+
+	private static void runPrimitive(int n, int arity, LocalDateTime base, boolean report)
+	{
+		Node[] nodes = nodes(n, base);
+		PrimitiveManagedObjectQueue<Node> queue = new PrimitiveManagedObjectQueue<>(16, arity);
+		Random random = new Random(7);
+		long checksum = 0;
+
+		long t0 = System.nanoTime();
+		for (Node node : nodes)
+		{
+			queue.add(node, -node.priority);
+		}
+		long t1 = System.nanoTime();
+		for (int i = 0; i < n; i++)
+		{
+			Node node = nodes[random.nextInt(n)];
+			node.priority += random.nextInt(2000) - 1000;
+			queue.updatePriorityAt(node.index, -node.priority);
+		}
+		long t2 = System.nanoTime();
+		for (int i = 0; i < n / 2; i++)
+		{
+			checksum += queue.getAndRemoveAt(random.nextInt(queue.getSize())).id;
+		}
+		long t3 = System.nanoTime();
+		while (queue.getSize() > 0)
+		{
+			checksum += queue.getAndRemoveAt(0).id;
+		}
+		long t4 = System.nanoTime();
+
+		if (report) {
+			print("PrimitiveManagedObjectQueue(arity=" + arity + ")", n, t0, t1, t2, t3, t4, queue.getCapacity(), checksum);
+		}
+	}
+
+	private static Node[] nodes(int n, LocalDateTime base)
+	{
+		Random random = new Random(42);
+		Node[] nodes = new Node[n];
+		for (int i = 0; i < n; i++)
+		{
+			long offsetMillis = random.nextInt(3600 * 1000);
+			LocalDateTime hotTime = base.plusNanos(offsetMillis * 1000000);
+			nodes[i] = new Node(i, hotTime, hotTime.toInstant(ZoneOffset.UTC).toEpochMilli());
+		}
+		return nodes;
+	}
+
+	private static void print(String name, int n, long t0, long t1, long t2, long t3, long t4, int capacityAfter, long checksum)
+	{
+		System.out.println(String.format("%-36s add=%6.1f ns/op  reprioritize=%6.1f ns/op  removeAt=%6.1f ns/op  poll=%6.1f ns/op  capacity-after-drain=%d  (checksum %d)",
+											name, (t1 - t0) / (double)n, (t2 - t1) / (double)n, (t3 - t2) / (n / 2.0), (t4 - t3) / (n - n / 2.0),
+											capacityAfter, checksum));
+	}
+
+	static class Node implements IndexableQueuedObject
+	{
+		final int id;
+		LocalDateTime hotTime;
+		long priority;
+		int index;
+
+		Node(int id, LocalDateTime hotTime, long priority)
+		{
+			this.id = id;
+			this.hotTime = hotTime;
+			this.priority = priority;
+		}
+
+		@Override
+		public void setIndexInQueue(int idx) {
+			this.index = idx;
+		}
+
+		@Override
+		public boolean isPeekable() {
+			return true;
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package asyncCaching.benchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import asyncCaching.server.AsyncMemCache;
+import asyncCaching.server.SegmentLogPersistence;
+import asyncCaching.server.di.EntryMetadata;
+import asyncMemManager.common.Configuration;
+
+/**
+ * measure warm restart: persist N entries into segment log, then time index rebuild
+ * of a fresh persistence and of a fresh cache server on top of it.
+ * args: [entries=1000000] [payloadSize=100] [folder=temp]
+ */
+public class RecoveryBenchmark {
+	private static final int BATCH_SIZE = 1000;
+
+	public static void main(String[] args) throws Exception {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int payloadSize = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+		Path folder = args.length > 2 ? Files.createDirectories(java.nio.file.Paths.get(args[2])) : Files.createTempDirectory("recovery-benchmark");
+		long segmentSize = 64L * 1024 * 1024;
+
+		long start = System.currentTimeMillis();
+		try (SegmentLogPersistence persistence = new SegmentLogPersistence(folder.toString() + "/", segmentSize, 0.3, 3600)) {
+			byte[] payload = new byte[payloadSize];
+			long expireAt = System.currentTimeMillis() + 3600 * 1000;
+			List<EntryMetadata> metadata = new ArrayList<>(BATCH_SIZE);
+			List<ByteBuffer[]> data = new ArrayList<>(BATCH_SIZE);
+			for (int i = 0; i < n; i++)
+			{
+				metadata.add(new EntryMetadata(UUID.randomUUID(), expireAt - 1000, expireAt));
+				data.add(new ByteBuffer[] { ByteBuffer.wrap(payload) });
+				if (metadata.size() == BATCH_SIZE || i == n - 1)
+				{
+					persistence.storeAll(metadata, data);
+					metadata.clear();
+					data.clear();
+				}
+			}
+			System.out.println(String.format("persisted entries=%d segments=%d ms=%d", n, persistence.getSegmentCount(), System.currentTimeMillis() - start));
+		}
+
+		// persistence alone
+		start = System.nanoTime();
+		AtomicLong recovered = new AtomicLong();
+		AtomicLong firstRecoveredNanos = new AtomicLong(-1);
+		final long recoveryStart = start;
+		try (SegmentLogPersistence persistence = new SegmentLogPersistence(folder.toString() + "/", segmentSize, 0.3, 3600)) {
+			persistence.recover((entry, length) -> {
+				if (recovered.incrementAndGet() == 1) {
+					firstRecoveredNanos.set(System.nanoTime() - recoveryStart);
+				}
+			});
+			long nanos = System.nanoTime() - start;
+			System.out.println(String.format("persistence recover entries=%d first-entry-ms=%.1f total-ms=%.1f entries/s=%.0f",
+												recovered.get(), firstRecoveredNanos.get() / 1e6, nanos / 1e6, recovered.get() / (nanos / 1e9)));
+		}
+
+		// whole cache server, reads served while recovering
+		start = System.nanoTime();
+		try (SegmentLogPersistence persistence = new SegmentLogPersistence(folder.toString() + "/", segmentSize, 0.3, 3600)) {
+			Configuration config = new Configuration(64L * 1024 * 1024, 100, 3600, 4, new HashMap<>());
+			AsyncMemCache cache = new AsyncMemCache(config, persistence);
+			long servingNanos = -1;
+			while (cache.isRecovering())
+			{
+				if (servingNanos < 0 && cache.size() > 0) {
+					servingNanos = System.nanoTime() - start;
+				}
+				Thread.sleep(1);
+			}
+			long nanos = System.nanoTime() - start;
+			System.out.println(String.format("cache startup entries=%d first-served-ms=%.1f total-ms=%.1f",
+												cache.size(), servingNanos / 1e6, nanos / 1e6));
+		}
+		System.exit(0); // cache executors are not daemon
+	}
+}
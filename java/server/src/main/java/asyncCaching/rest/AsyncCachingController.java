@@ -1,45 +1,254 @@
 package asyncCaching.rest;
 
+import java.io.IOException;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.Channel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.UUID;
-import java.util.concurrent.Future;
+
+import javax.annotation.PostConstruct;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ZeroCopyHttpOutputMessage;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.PathVariable;
-import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 
+import asyncCaching.server.PayloadCompression;
+import asyncCaching.server.di.AbortableChannel;
 import asyncCaching.server.di.AsyncMemCache;
+import asyncCaching.server.di.FileRegion;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 @RestController
 public class AsyncCachingController {
 	private Logger logger = LoggerFactory.getLogger(AsyncCachingController.class);
+
+	/**
+	 * payloads larger than this (or unknown length) are streamed to storage instead of materialized.
+	 */
+	private static final long STREAMING_THRESHOLD = 64 * 1024;
+
+	/**
+	 * bounded buffer size when streaming from storage to response.
+	 */
+	private static final int STREAM_BUFFER_SIZE = 16 * 1024;
+
+	/**
+	 * persisted payloads at least this large are sent from file to socket directly (sendfile), skipping java heap.
+	 */
+	private static final long ZERO_COPY_THRESHOLD = 64 * 1024;
+
+	/**
+	 * retry delay in milliseconds, finer than standard Retry-After seconds.
+	 */
+	private static final String RETRY_AFTER_MILLIS_HEADER = "X-Retry-After-Millis";
+
 	@Autowired
 	AsyncMemCache asyncMemCache;
-	
+
+	@Autowired
+	MeterRegistry meterRegistry;
+
+	/**
+	 * request latency per operation, until response body written
+	 */
+	private Timer storeTimer;
+	private Timer retrieveTimer;
+	private Timer removeTimer;
+
+	@PostConstruct
+	void registerTimers()
+	{
+		this.storeTimer = requestTimer(this.meterRegistry, "store");
+		this.retrieveTimer = requestTimer(this.meterRegistry, "retrieve");
+		this.removeTimer = requestTimer(this.meterRegistry, "remove");
+	}
+
+	private static Timer requestTimer(MeterRegistry meterRegistry, String operation)
+	{
+		return Timer.builder("asynccache.requests")
+				.tag("protocol", "rest")
+				.tag("op", operation)
+				.publishPercentileHistogram()
+				.register(meterRegistry);
+	}
+
 	@RequestMapping(method = RequestMethod.POST, value = "/cache/{key}/{expectedDuration}")
-	public void store(@PathVariable UUID key, @PathVariable long expectedDuration, @RequestBody String data) throws Exception {
-		this.logger.info("Store {}", key);  
-		this.asyncMemCache.cache(key, data, expectedDuration);
+	public Mono<Void> store(@PathVariable UUID key, @PathVariable long expectedDuration, ServerHttpRequest request, ServerHttpResponse response) throws Exception {
+		this.logger.debug("Store {}", key);
+		return this.timed(this.storeTimer, this.doStore(key, expectedDuration, request, response));
+	}
+
+	private Mono<Void> doStore(UUID key, long expectedDuration, ServerHttpRequest request, ServerHttpResponse response) throws Exception {
+		long length = request.getHeaders().getContentLength();
+		long retryAfter = this.asyncMemCache.admit(length);
+		if (retryAfter > 0)
+		{
+			// overloaded, client should back off
+			response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+			response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf((retryAfter + 999) / 1000));
+			response.getHeaders().set(RETRY_AFTER_MILLIS_HEADER, String.valueOf(retryAfter));
+			return response.setComplete();
+		}
+		if (length >= 0 && length <= STREAMING_THRESHOLD)
+		{
+			return DataBufferUtils.join(request.getBody())
+					.doOnNext(buffer -> {
+						byte[] data = new byte[buffer.readableByteCount()];
+						buffer.read(data);
+						DataBufferUtils.release(buffer);
+						this.asyncMemCache.cache(key, data, expectedDuration);
+					})
+					.then();
+		}
+
+		AbortableChannel channel = this.asyncMemCache.cacheStream(key, length, expectedDuration);
+		if (channel == null) // already stored
+		{
+			return request.getBody().map(DataBufferUtils::release).then();
+		}
+
+		// channel ends exactly once: closed (entry registered) when whole body written,
+		// aborted (nothing registered, reservation released) on error or client disconnect
+		return Mono.usingWhen(Mono.just(channel),
+				ch -> DataBufferUtils.write(request.getBody().publishOn(Schedulers.boundedElastic()), ch)
+						.map(DataBufferUtils::release)
+						.then(),
+				ch -> Mono.fromCallable(() -> { ch.close(); return true; }).subscribeOn(Schedulers.boundedElastic()),
+				(ch, ex) -> this.abort(ch),
+				ch -> this.abort(ch));
 	}
-	
+
 	@RequestMapping(method = RequestMethod.GET, value = "/cache/{key}")
-	public Future<String> retrieve(@PathVariable UUID key) throws Exception {
-		this.logger.info("Retrieve {}", key);
-	    return this.asyncMemCache.retrieve(key);
-	}	
-	
+	public Mono<Void> retrieve(@PathVariable UUID key, ServerHttpResponse response) throws Exception {
+		this.logger.debug("Retrieve {}", key);
+		// composed, not joined: promotion read in flight completes it later, event loop never waits on it
+		return this.timed(this.retrieveTimer, Mono.defer(() -> Mono.fromFuture(this.asyncMemCache.retrieveStream(key)))
+				.flatMap(channel -> {
+					if (channel instanceof FileRegion && response instanceof ZeroCopyHttpOutputMessage
+							&& ((FileRegion)channel).getLength() >= ZERO_COPY_THRESHOLD)
+					{
+						FileRegion region = (FileRegion)channel;
+						response.getHeaders().setContentLength(region.getLength());
+						return ((ZeroCopyHttpOutputMessage)response).writeWith(region.getPath(), region.getPosition(), region.getLength())
+								.doFinally(signal -> this.closeLater(region));
+					}
+					return response.writeWith(this.read(channel, response.bufferFactory()));
+				}));
+	}
+
+	/**
+	 * resident data read from memory, persisted data read by async file channel so no thread blocks on disk,
+	 * compressed data inflated chunk by chunk as read.
+	 */
+	private Flux<DataBuffer> read(ReadableByteChannel channel, DataBufferFactory bufferFactory)
+	{
+		if (channel instanceof FileRegion)
+		{
+			FileRegion region = (FileRegion)channel;
+			return this.readAsync(region, bufferFactory)
+					.doFinally(signal -> this.closeLater(region));
+		}
+		
+		if (channel instanceof PayloadCompression.InflatingChannel)
+		{
+			PayloadCompression.InflatingChannel inflating = (PayloadCompression.InflatingChannel)channel;
+			return this.readAsync(inflating.getRegion(), bufferFactory)
+					.map(buffer -> {
+						try {
+							return bufferFactory.wrap(inflating.inflate(buffer.asByteBuffer()));
+						} catch (IOException e) {
+							throw Exceptions.propagate(e);
+						} finally {
+							DataBufferUtils.release(buffer);
+						}
+					})
+					.doFinally(signal -> this.closeLater(inflating));
+		}
+
+		return DataBufferUtils.readByteChannel(() -> channel, bufferFactory, STREAM_BUFFER_SIZE);
+	}
+
+	/**
+	 * opening file may block on disk, so channel opened on subscription off event loop, reads themselves are async.
+	 */
+	private Flux<DataBuffer> readAsync(FileRegion region, DataBufferFactory bufferFactory)
+	{
+		return DataBufferUtils.takeUntilByteCount(
+					DataBufferUtils.readAsynchronousFileChannel(() -> AsynchronousFileChannel.open(region.getPath(), StandardOpenOption.READ),
+																region.getPosition(), bufferFactory, STREAM_BUFFER_SIZE)
+							.subscribeOn(Schedulers.boundedElastic()),
+					region.getLength());
+	}
+
 	@RequestMapping(method = RequestMethod.DELETE, value = "/cache/{key}")
-	public void remove(@PathVariable UUID key) throws Exception {
-		this.logger.info("Remove {}", key);
-	    this.asyncMemCache.retrieve(key);
+	public Mono<Void> remove(@PathVariable UUID key) throws Exception {
+		this.logger.debug("Remove {}", key);
+		return this.timed(this.removeTimer, Mono.fromFuture(this.asyncMemCache.remove(key)));
 	}
-	
+
 	@RequestMapping(method = RequestMethod.GET, value = "/cache/stats")
 	public long stats() {
 	    return this.asyncMemCache.size();
 	}
+
+	/**
+	 * record latency of request, from subscription until response body written.
+	 */
+	private Mono<Void> timed(Timer timer, Mono<Void> handling)
+	{
+		return Mono.defer(() -> {
+			Timer.Sample sample = Timer.start(this.meterRegistry);
+			return handling.doFinally(signal -> sample.stop(timer));
+		});
+	}
+
+	/**
+	 * releasing stored data may touch disk (file delete, tombstone), kept off event loop
+	 */
+	private void closeLater(Channel channel)
+	{
+		Schedulers.boundedElastic().schedule(() -> this.closeQuietly(channel));
+	}
+
+	/**
+	 * drop partially streamed payload, off event loop as it may touch disk
+	 */
+	private Mono<Void> abort(AbortableChannel channel)
+	{
+		return Mono.<Void>fromRunnable(() -> {
+					try {
+						channel.abort();
+					} catch (Exception e) {
+						this.logger.warn("Abort store failed {}", e.getMessage());
+					}
+				})
+				.subscribeOn(Schedulers.boundedElastic());
+	}
+
+	private void closeQuietly(Channel channel)
+	{
+		try {
+			channel.close();
+		} catch (Exception e) {
+			this.logger.warn("Close channel failed {}", e.getMessage());
+		}
+	}
 }
@@ -1,16 +1,22 @@
 package asyncCaching.rest;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.zip.Deflater;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.scheduling.annotation.EnableAsync;
 
-import asyncCaching.server.FilePersistence;
+import asyncCaching.server.ExpiryPolicy;
+import asyncCaching.server.PayloadCompression;
+import asyncCaching.server.SegmentLogPersistence;
+import asyncCaching.server.SlabAllocator;
 import asyncCaching.server.di.AsyncMemCache;
-import asyncCaching.server.di.Persistence;
+import asyncCaching.tcp.BinaryProtocolServer;
+import io.micrometer.core.instrument.MeterRegistry;
 
 @SpringBootApplication()
 @EnableAsync
@@ -20,15 +26,44 @@ public class AsyncMemCacheApp {
 	}
 	
 	@Bean
-	public AsyncMemCache AsyncMemCacheBean() {
+	public SegmentLogPersistence SegmentLogPersistenceBean() throws IOException {
+		long segmentSize = 64 * 1024 * 1024;
+		double compactionThreshold = 0.3;
+		int compactionInterval = 30;
+		// fastest deflate level, payloads under 1KB or saving less than 10% are stored raw
+		PayloadCompression compression = new PayloadCompression(Deflater.BEST_SPEED, 1024, 0.9);
+		return new SegmentLogPersistence(System.getProperty("user.home") + "/async-caching/", 
+											segmentSize, compactionThreshold, compactionInterval, compression);
+	}
+	
+	@Bean
+	public AsyncMemCache AsyncMemCacheBean(SegmentLogPersistence segmentLogPersistence) {
 		int capacity = 20 * 1024;
 		int initialSize = 100;
 		int cleanupInterval = 3600;
 		int candelPoolSize = 4;
 		Map<String, asyncMemManager.common.FlowKeyConfiguration> flowKeyConfig = new HashMap<>();
 		asyncMemManager.common.Configuration config = new asyncMemManager.common.Configuration(capacity, initialSize, cleanupInterval, candelPoolSize, flowKeyConfig);
-				
-		Persistence filePersistence = new FilePersistence(System.getProperty("user.home") + "/async-caching/");
-		return new asyncCaching.server.AsyncMemCache(config, filePersistence);
+		
+		// entries not retrieved within 10x their expected duration (at least 1 hour) are reclaimed
+		ExpiryPolicy expiryPolicy = ExpiryPolicy.multipleOfExpectedDuration(10, 3600 * 1000);
+		
+		// resident payloads kept off-heap, in 64B..1MB size classes carved from 4MB slabs
+		SlabAllocator slabAllocator = new SlabAllocator(64, 1024 * 1024, 4 * 1024 * 1024, Math.max(2 * capacity, 64L * 1024 * 1024));
+		return new asyncCaching.server.AsyncMemCache(config, segmentLogPersistence, expiryPolicy, slabAllocator);
+	}
+	
+	/**
+	 * cache internals exposed through actuator, /actuator/prometheus
+	 */
+	@Bean
+	public CacheMetrics CacheMetricsBean(AsyncMemCache asyncMemCache, SegmentLogPersistence segmentLogPersistence) {
+		return new CacheMetrics((asyncCaching.server.AsyncMemCache)asyncMemCache, segmentLogPersistence);
+	}
+	
+	@Bean(initMethod = "start", destroyMethod = "close")
+	public BinaryProtocolServer BinaryProtocolServerBean(AsyncMemCache asyncMemCache, MeterRegistry meterRegistry) {
+		int binaryPort = 8081;
+		return new BinaryProtocolServer(asyncMemCache, binaryPort, meterRegistry);
 	}
 }
@@ -0,0 +1,94 @@
+package asyncCaching.rest;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import asyncCaching.server.AsyncMemCache;
+import asyncCaching.server.ColdReadScheduler;
+import asyncCaching.server.PayloadCompression;
+import asyncCaching.server.SegmentLogPersistence;
+import io.micrometer.core.instrument.BaseUnits;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/**
+ * Exposes cache server internals as Micrometer meters, polled from existing counters when scraped.
+ * request latencies are recorded by the endpoints themselves.
+ */
+public class CacheMetrics implements MeterBinder {
+	private final AsyncMemCache cache;
+	private final SegmentLogPersistence persistence;
+
+	public CacheMetrics(AsyncMemCache cache, SegmentLogPersistence persistence) {
+		this.cache = cache;
+		this.persistence = persistence;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		// entries and bytes, resident vs persisted
+		Gauge.builder("asynccache.entries", this.cache, c -> c.getResidentCount())
+				.tag("state", "resident").register(registry);
+		Gauge.builder("asynccache.entries", this.cache, c -> Math.max(0, c.size() - c.getResidentCount()))
+				.tag("state", "persisted").register(registry);
+		Gauge.builder("asynccache.bytes", this.cache, c -> c.getUsedSize())
+				.tag("state", "resident").baseUnit(BaseUnits.BYTES).register(registry);
+		Gauge.builder("asynccache.bytes", this.persistence, p -> p.getLiveBytes())
+				.tag("state", "persisted").baseUnit(BaseUnits.BYTES).register(registry);
+		Gauge.builder("asynccache.offheap.reserved", this.cache, c -> c.getSlabAllocator().getReservedBytes())
+				.baseUnit(BaseUnits.BYTES).register(registry);
+
+		// eviction, average batch size is evicted entries over batches
+		FunctionTimer.builder("asynccache.eviction.batches", this.cache, c -> c.getEvictionBatchCount(), c -> c.getEvictionNanos(), TimeUnit.NANOSECONDS)
+				.register(registry);
+		FunctionCounter.builder("asynccache.eviction.entries", this.cache, c -> c.getEvictedCount()).register(registry);
+		FunctionCounter.builder("asynccache.eviction.bytes", this.cache, c -> c.getEvictedBytes())
+				.baseUnit(BaseUnits.BYTES).register(registry);
+		Gauge.builder("asynccache.eviction.last.batch.size", this.cache, c -> c.getLastEvictionBatchSize()).register(registry);
+		FunctionCounter.builder("asynccache.eviction.failed", this.cache, c -> c.getEvictionFailedCount()).register(registry);
+		FunctionCounter.builder("asynccache.expired", this.cache, c -> c.getExpiredCount()).register(registry);
+
+		// disk throughput
+		FunctionCounter.builder("asynccache.disk.written", this.persistence, p -> p.getBytesWritten())
+				.baseUnit(BaseUnits.BYTES).register(registry);
+		FunctionCounter.builder("asynccache.disk.read", this.persistence, p -> p.getBytesRead())
+				.baseUnit(BaseUnits.BYTES).register(registry);
+		Gauge.builder("asynccache.disk.segments", this.persistence, p -> p.getSegmentCount()).register(registry);
+		PayloadCompression compression = this.persistence.getCompression();
+		Gauge.builder("asynccache.compression.ratio", compression, c -> c.getRatio()).register(registry);
+		FunctionCounter.builder("asynccache.compression.cpu", compression, c -> c.getCompressNanos() / 1e9)
+				.tag("op", "compress").baseUnit(BaseUnits.SECONDS).register(registry);
+		FunctionCounter.builder("asynccache.compression.cpu", compression, c -> c.getDecompressNanos() / 1e9)
+				.tag("op", "decompress").baseUnit(BaseUnits.SECONDS).register(registry);
+
+		// cold reads and promotion
+		ColdReadScheduler coldReads = this.cache.getColdReadScheduler();
+		Gauge.builder("asynccache.coldreads.pending", coldReads, s -> s.getPendingReads()).register(registry);
+		Gauge.builder("asynccache.coldreads.inflight", coldReads, s -> s.getInFlightReads()).register(registry);
+		FunctionCounter.builder("asynccache.coldreads.merged", coldReads, s -> s.getMergedCount()).register(registry);
+		FunctionCounter.builder("asynccache.coldreads.late", coldReads, s -> s.getLateCount()).register(registry);
+		FunctionCounter.builder("asynccache.promotion", this.cache, c -> c.getPromotedCount()).tag("outcome", "promoted").register(registry);
+		FunctionCounter.builder("asynccache.promotion", this.cache, c -> c.getPromotionHitCount()).tag("outcome", "hit").register(registry);
+		FunctionCounter.builder("asynccache.promotion", this.cache, c -> c.getPromotionLateHitCount()).tag("outcome", "late").register(registry);
+		FunctionCounter.builder("asynccache.promotion", this.cache, c -> c.getPromotionWasteCount()).tag("outcome", "waste").register(registry);
+		FunctionCounter.builder("asynccache.promotion", this.cache, c -> c.getPromotionSkippedCount()).tag("outcome", "skipped").register(registry);
+
+		// backpressure and saturation
+		Gauge.builder("asynccache.manage.queue.depth", this.cache, c -> c.getManageQueueDepth()).register(registry);
+		FunctionCounter.builder("asynccache.manage.failed", this.cache, c -> c.getManageFailedCount()).register(registry);
+		Gauge.builder("asynccache.admission.inflight", this.cache, c -> c.getInFlightBytes())
+				.baseUnit(BaseUnits.BYTES).register(registry);
+		FunctionCounter.builder("asynccache.admission.rejected", this.cache, c -> c.getRejectedCount()).register(registry);
+		FunctionCounter.builder("asynccache.store.failed", this.cache, c -> c.getStoreFailedCount()).register(registry);
+		for (Map.Entry<String, ExecutorService> executor : this.cache.getExecutors().entrySet())
+		{
+			new ExecutorServiceMetrics(executor.getValue(), "asynccache." + executor.getKey(), Tags.empty()).bindTo(registry);
+		}
+	}
+}
@@ -0,0 +1,323 @@
+package asyncCaching.tcp;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import asyncCaching.server.di.AsyncMemCache;
+import asyncMemManager.common.BinaryProtocol;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * NIO endpoint serving {@link BinaryProtocol} alongside the REST api.
+ * single selector thread reads frames and hands them to the cache,
+ * responses are queued per connection and written back when socket is writable.
+ */
+public class BinaryProtocolServer implements AutoCloseable {
+	private Logger logger = LoggerFactory.getLogger(BinaryProtocolServer.class);
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+	private final AsyncMemCache asyncMemCache;
+	private final int port;
+	private Selector selector;
+	private ServerSocketChannel serverChannel;
+	private Thread selectorThread;
+	private volatile boolean running = false;
+
+	/**
+	 * connections having pending responses, registered for write by selector thread.
+	 */
+	private final Queue<Connection> pendingWrites = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * request latency per operation, until response queued
+	 */
+	private final Timer storeTimer;
+	private final Timer retrieveTimer;
+	private final Timer removeTimer;
+
+	public BinaryProtocolServer(AsyncMemCache asyncMemCache, int port) {
+		this(asyncMemCache, port, Metrics.globalRegistry);
+	}
+
+	public BinaryProtocolServer(AsyncMemCache asyncMemCache, int port, MeterRegistry meterRegistry) {
+		this.asyncMemCache = asyncMemCache;
+		this.port = port;
+		this.storeTimer = requestTimer(meterRegistry, "store");
+		this.retrieveTimer = requestTimer(meterRegistry, "retrieve");
+		this.removeTimer = requestTimer(meterRegistry, "remove");
+	}
+
+	private static Timer requestTimer(MeterRegistry meterRegistry, String operation)
+	{
+		return Timer.builder("asynccache.requests")
+				.tag("protocol", "binary")
+				.tag("op", operation)
+				.publishPercentileHistogram()
+				.register(meterRegistry);
+	}
+
+	public void start() throws IOException
+	{
+		this.selector = Selector.open();
+		this.serverChannel = ServerSocketChannel.open();
+		this.serverChannel.bind(new InetSocketAddress(this.port));
+		this.serverChannel.configureBlocking(false);
+		this.serverChannel.register(this.selector, SelectionKey.OP_ACCEPT);
+
+		this.running = true;
+		this.selectorThread = new Thread(this::selectLoop, "binary-protocol-selector");
+		this.selectorThread.setDaemon(true);
+		this.selectorThread.start();
+		this.logger.info("Binary protocol listening on {}", this.port);
+	}
+
+	private void selectLoop()
+	{
+		while (this.running)
+		{
+			try {
+				this.selector.select();
+
+				Connection connection;
+				while ((connection = this.pendingWrites.poll()) != null)
+				{
+					if (connection.key.isValid())
+					{
+						connection.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+					}
+				}
+
+				Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+				while (keys.hasNext())
+				{
+					SelectionKey key = keys.next();
+					keys.remove();
+					try {
+						if (!key.isValid()) {
+							continue;
+						}
+
+						if (key.isAcceptable()) {
+							this.accept();
+						} else {
+							connection = (Connection)key.attachment();
+							if (key.isReadable()) {
+								connection.read();
+							}
+							if (key.isValid() && key.isWritable()) {
+								connection.write();
+							}
+						}
+					} catch (IOException ex) {
+						this.logger.debug("Connection closed {}", ex.getMessage());
+						this.closeConnection(key);
+					} catch (RuntimeException ex) {
+						// undecodable frame: stream position no longer trusted, drop only this connection
+						this.logger.warn("Connection dropped, bad request", ex);
+						this.closeConnection(key);
+					}
+				}
+			} catch (IOException | RuntimeException ex) {
+				// keep serving other connections
+				this.logger.error("Binary protocol selector failed", ex);
+			}
+		}
+	}
+
+	private void closeConnection(SelectionKey key)
+	{
+		key.cancel();
+		try {
+			key.channel().close();
+		} catch (IOException ex) {
+			this.logger.debug("Close connection failed {}", ex.getMessage());
+		}
+	}
+
+	private void accept() throws IOException
+	{
+		SocketChannel channel = this.serverChannel.accept();
+		if (channel != null)
+		{
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			SelectionKey key = channel.register(this.selector, SelectionKey.OP_READ);
+			key.attach(new Connection(channel, key));
+		}
+	}
+
+	/**
+	 * failure of one request answered with error, connection and other requests go on.
+	 */
+	private void handle(Connection connection, BinaryProtocol.Request request)
+	{
+		try {
+			this.doHandle(connection, request);
+		} catch (RuntimeException ex) {
+			this.logger.error("Request {} on {} failed", request.opcode, request.key, ex);
+			connection.respond(BinaryProtocol.encodeResponse(request.requestId, BinaryProtocol.STATUS_ERROR, null));
+		}
+	}
+
+	private void doHandle(Connection connection, BinaryProtocol.Request request)
+	{
+		long start = System.nanoTime();
+		switch (request.opcode)
+		{
+		case BinaryProtocol.OP_STORE:
+			long retryAfter = this.asyncMemCache.admit(request.payload.length);
+			if (retryAfter > 0)
+			{
+				byte[] payload = ByteBuffer.allocate(8).putLong(retryAfter).array();
+				connection.respond(BinaryProtocol.encodeResponse(request.requestId, BinaryProtocol.STATUS_RETRY_LATER, payload));
+				break;
+			}
+			this.asyncMemCache.cache(request.key, request.payload, request.expectedDuration);
+			connection.respond(BinaryProtocol.encodeResponse(request.requestId, BinaryProtocol.STATUS_OK, null));
+			this.storeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			break;
+		case BinaryProtocol.OP_RETRIEVE:
+			// expected duration field of retrieve carries read deadline, millis from now
+			long deadline = request.expectedDuration > 0 ? System.currentTimeMillis() + request.expectedDuration : 0;
+			this.asyncMemCache.retrieve(request.key, deadline).whenComplete((data, ex) -> {
+				if (ex != null) {
+					connection.respond(BinaryProtocol.encodeResponse(request.requestId, BinaryProtocol.STATUS_ERROR, null));
+				} else if (data == null) {
+					connection.respond(BinaryProtocol.encodeResponse(request.requestId, BinaryProtocol.STATUS_NOT_FOUND, null));
+				} else {
+					connection.respond(BinaryProtocol.encodeResponse(request.requestId, BinaryProtocol.STATUS_OK, data));
+				}
+				this.retrieveTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			});
+			break;
+		case BinaryProtocol.OP_REMOVE:
+			this.asyncMemCache.remove(request.key).whenComplete((v, ex) -> {
+				connection.respond(BinaryProtocol.encodeResponse(request.requestId,
+									ex == null ? BinaryProtocol.STATUS_OK : BinaryProtocol.STATUS_ERROR, null));
+				this.removeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			});
+			break;
+		default:
+			connection.respond(BinaryProtocol.encodeResponse(request.requestId, BinaryProtocol.STATUS_ERROR, null));
+		}
+	}
+
+	@Override
+	public void close() throws Exception {
+		this.running = false;
+		if (this.selector != null) {
+			this.selector.wakeup();
+			this.selectorThread.join();
+			for (SelectionKey key : this.selector.keys()) {
+				key.channel().close();
+			}
+			this.selector.close();
+		}
+	}
+
+	/**
+	 * per socket state, read side only touched by selector thread.
+	 */
+	private class Connection
+	{
+		final SocketChannel channel;
+		final SelectionKey key;
+		ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+		final Queue<ByteBuffer> responses = new ConcurrentLinkedQueue<>();
+
+		Connection(SocketChannel channel, SelectionKey key)
+		{
+			this.channel = channel;
+			this.key = key;
+		}
+
+		void read() throws IOException
+		{
+			if (this.channel.read(this.readBuffer) < 0)
+			{
+				throw new IOException("end of stream");
+			}
+
+			this.readBuffer.flip();
+			while (this.readBuffer.remaining() >= BinaryProtocol.LENGTH_FIELD_SIZE)
+			{
+				int frameLength = this.readBuffer.getInt(this.readBuffer.position());
+				if (frameLength < BinaryProtocol.REQUEST_HEADER_SIZE || frameLength > BinaryProtocol.MAX_FRAME_SIZE)
+				{
+					throw new IOException("invalid frame length " + frameLength);
+				}
+
+				if (this.readBuffer.remaining() < BinaryProtocol.LENGTH_FIELD_SIZE + frameLength)
+				{
+					break;
+				}
+
+				this.readBuffer.position(this.readBuffer.position() + BinaryProtocol.LENGTH_FIELD_SIZE);
+				ByteBuffer frame = this.readBuffer.slice();
+				frame.limit(frameLength);
+				this.readBuffer.position(this.readBuffer.position() + frameLength);
+				BinaryProtocolServer.this.handle(this, new BinaryProtocol.Request(frame));
+			}
+
+			int needed = this.readBuffer.remaining() >= BinaryProtocol.LENGTH_FIELD_SIZE
+							? BinaryProtocol.LENGTH_FIELD_SIZE + this.readBuffer.getInt(this.readBuffer.position()) : 0;
+			if (needed > this.readBuffer.capacity())
+			{
+				// large frame, grow to hold it entirely
+				ByteBuffer larger = ByteBuffer.allocate(needed);
+				larger.put(this.readBuffer);
+				this.readBuffer = larger;
+			} else {
+				this.readBuffer.compact();
+				if (this.readBuffer.capacity() > READ_BUFFER_SIZE && this.readBuffer.position() <= READ_BUFFER_SIZE)
+				{
+					ByteBuffer normal = ByteBuffer.allocate(READ_BUFFER_SIZE);
+					this.readBuffer.flip();
+					normal.put(this.readBuffer);
+					this.readBuffer = normal;
+				}
+			}
+		}
+
+		void respond(ByteBuffer response)
+		{
+			this.responses.add(response);
+			BinaryProtocolServer.this.pendingWrites.add(this);
+			BinaryProtocolServer.this.selector.wakeup();
+		}
+
+		void write() throws IOException
+		{
+			ByteBuffer response;
+			while ((response = this.responses.peek()) != null)
+			{
+				this.channel.write(response);
+				if (response.hasRemaining())
+				{
+					return; // socket buffer full, wait for next writable
+				}
+				this.responses.poll();
+			}
+
+			this.key.interestOps(SelectionKey.OP_READ);
+			if (!this.responses.isEmpty()) // raced with respond
+			{
+				this.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+			}
+		}
+	}
+}